@@ -12,20 +12,27 @@ import org.junit.runners.Parameterized;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ucar.ma2.InvalidRangeException;
+import ucar.nc2.NetcdfFile;
 import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
 import ucar.nc2.constants.FeatureType;
 import ucar.nc2.dataset.NetcdfDataset;
 import ucar.nc2.dt.grid.GridDataset;
 import ucar.nc2.ft2.coverage.*;
 import ucar.nc2.ft2.coverage.writer.CFGridCoverageWriter2;
+import ucar.nc2.util.CompareNetcdf2;
 import ucar.nc2.util.Optional;
 import ucar.unidata.util.test.category.NeedsCdmUnitTest;
 import ucar.unidata.util.test.TestDir;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.Formatter;
 import java.util.List;
 
 /**
@@ -125,4 +132,80 @@ public class TestCoverageFileWriterP {
 
   }
 
+  @Test
+  public void writeTestStream() throws IOException, InvalidRangeException {
+    if (version != NetcdfFileWriter.Version.netcdf3) return;
+    File fileOut = tempFolder.newFile();
+    File streamOut = tempFolder.newFile();
+
+    try (FeatureDatasetCoverage cc = CoverageDatasetFactory.open(endpoint)) {
+      Assert.assertNotNull(endpoint, cc);
+      CoverageCollection gcs = cc.findCoverageDataset(type);
+
+      NetcdfFileWriter writer = NetcdfFileWriter.createNew(version, fileOut.getPath(), null);
+      Assert.assertTrue(CFGridCoverageWriter2.writeOrTestSize(gcs, covList, params, false, false, writer).isPresent());
+
+      // the length is known before any data is written
+      Optional<CFGridCoverageWriter2.Netcdf3Stream> streamo =
+              CFGridCoverageWriter2.makeNetcdf3Stream(gcs, covList, params, false);
+      Assert.assertTrue(streamo.getErrorMessage(), streamo.isPresent());
+      try (OutputStream out = new BufferedOutputStream(new FileOutputStream(streamOut))) {
+        streamo.get().write(out);
+      }
+      Assert.assertEquals(streamo.get().getLength(), streamOut.length());
+    }
+
+    // the streamed file has the same variables and data as the one written through NetcdfFileWriter
+    compareData(fileOut, streamOut);
+  }
+
+  @Test
+  public void writeTestSlabs() throws IOException, InvalidRangeException {
+    File fileOut = tempFolder.newFile();
+    File slabOut = tempFolder.newFile();
+    File streamOut = tempFolder.newFile();
+
+    try (FeatureDatasetCoverage cc = CoverageDatasetFactory.open(endpoint)) {
+      Assert.assertNotNull(endpoint, cc);
+      CoverageCollection gcs = cc.findCoverageDataset(type);
+
+      NetcdfFileWriter writer = NetcdfFileWriter.createNew(version, fileOut.getPath(), null);
+      Assert.assertTrue(CFGridCoverageWriter2.writeOrTestSize(gcs, covList, params, false, false, writer).isPresent());
+
+      // every coverage with an outer dimension is read one slab at a time
+      CFGridCoverageWriter2.setMaxSlabBytes(1);
+      CFGridCoverageWriter2.setPrefetch(true);
+      try {
+        writer = NetcdfFileWriter.createNew(version, slabOut.getPath(), null);
+        Assert.assertTrue(CFGridCoverageWriter2.writeOrTestSize(gcs, covList, params, false, false, writer).isPresent());
+
+        if (version == NetcdfFileWriter.Version.netcdf3) {
+          try (OutputStream out = new BufferedOutputStream(new FileOutputStream(streamOut))) {
+            Assert.assertTrue(CFGridCoverageWriter2.writeNetcdf3Stream(gcs, covList, params, false, out).isPresent());
+          }
+        }
+      } finally {
+        CFGridCoverageWriter2.setMaxSlabBytes(100 * 1000 * 1000);
+        CFGridCoverageWriter2.setPrefetch(false);
+      }
+    }
+
+    compareData(fileOut, slabOut);
+    if (version == NetcdfFileWriter.Version.netcdf3)
+      compareData(fileOut, streamOut);
+  }
+
+  private void compareData(File expected, File actual) throws IOException {
+    try (NetcdfFile ncfile = NetcdfFile.open(expected.getPath());
+         NetcdfFile ncother = NetcdfFile.open(actual.getPath())) {
+      Assert.assertEquals(ncfile.getVariables().size(), ncother.getVariables().size());
+      CompareNetcdf2 compare = new CompareNetcdf2(new Formatter(), false, false, true);
+      for (Variable v : ncfile.getVariables()) {
+        Variable vo = ncother.findVariable(v.getFullNameEscaped());
+        Assert.assertNotNull(v.getFullName(), vo);
+        Assert.assertTrue(v.getFullName(), compare.compareData(v.getFullName(), v.read(), vo.read(), false));
+      }
+    }
+  }
+
 }
@@ -5,6 +5,7 @@
 
 package ucar.nc2.grib;
 
+import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -26,8 +27,14 @@ import ucar.unidata.util.test.TestDir;
 import java.io.File;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Test GribCdmIndex scanning
@@ -48,9 +55,24 @@ public class TestGribCdmIndexUpdating {
     String dataDir = TestDir.cdmUnitTestDir + "gribCollections/changing/filePartition/";
     FeatureCollectionConfig config = new FeatureCollectionConfig("TestGribCdmIndex", "changing/filePartition", FeatureCollectionType.GRIB1,
             dataDir + "GFS_CONUS_80km_#yyyyMMdd_HHmm#.grib1", null, null, null, "file", null);
-    // String dataDir, String newModel, FeatureCollectionConfig config, String indexFile, String varIdValue, int orgLen
+    // String dataDir, String newModel, FeatureCollectionConfig config, String indexFile, String varIdValue, int orgLen, int remLen,
+    //   String newModelIndex, int nleaves
     result.add(new Object[]{dataDir, "GFS_CONUS_80km_20141024_1200.grib1", config, "TestGribCdmIndex.ncx4", "Relative_humidity_isobaric",
-            4, 3});
+            4, 3, "GFS_CONUS_80km_20141024_1200.grib1" + GribCdmIndex.NCX_SUFFIX, 4});
+
+    // directory partition: the same files, two in each of two directories
+    if (new File(dataDir).isDirectory()) {
+      try {
+        tempDir = makeDirectoryPartition(dataDir, "GFS_CONUS_80km_20141024_1200.grib1");
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      String tempName = tempDir.getFileName().toString();
+      FeatureCollectionConfig configDir = new FeatureCollectionConfig("TestGribCdmIndexDir", "changing/dirPartition", FeatureCollectionType.GRIB1,
+              tempDir + "/**/GFS_CONUS_80km_#yyyyMMdd_HHmm#.grib1", null, null, null, "directory", null);
+      result.add(new Object[]{tempDir + "/", "b/GFS_CONUS_80km_20141024_1200.grib1", configDir, "TestGribCdmIndexDir-" + tempName + GribCdmIndex.NCX_SUFFIX,
+              "Relative_humidity_isobaric", 4, 3, "b/TestGribCdmIndexDir-b" + GribCdmIndex.NCX_SUFFIX, 2});
+    }
 
     /* directory partition
     dataDir = TestDir.cdmUnitTestDir + "ncss/GFS/CONUS_80km/";
@@ -67,6 +89,31 @@ public class TestGribCdmIndexUpdating {
     return result;
   }
 
+  private static Path tempDir;
+
+  // copy the file partition into directories a and b, keeping the old timestamps; newModel goes into b
+  private static Path makeDirectoryPartition(String fromDir, String newModel) throws IOException {
+    File[] files = new File(fromDir).listFiles((dir, name) -> name.endsWith(".grib1"));
+    if (files == null || files.length != 4) throw new IOException("expected 4 grib1 files in " + fromDir);
+    Arrays.sort(files, Comparator.comparing(f -> f.getName().equals(newModel)));  // newModel last
+
+    Path top = Files.createTempDirectory("TestGribCdmIndexUpdating");
+    for (int i = 0; i < files.length; i++) {
+      Path sub = top.resolve(i < 2 ? "a" : "b");
+      Files.createDirectories(sub);
+      Files.copy(files[i].toPath(), sub.resolve(files[i].getName()), StandardCopyOption.COPY_ATTRIBUTES);
+    }
+    return top;
+  }
+
+  @AfterClass
+  public static void deleteDirectoryPartition() throws IOException {
+    if (tempDir == null) return;
+    try (Stream<Path> walk = Files.walk(tempDir)) {
+      walk.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+  }
+
 
   ///////////////////////////////////////
 
@@ -76,8 +123,11 @@ public class TestGribCdmIndexUpdating {
   String indexFile;
   String varName;
   int orgLen, remLen;
+  String newModelIndex;
+  int nleaves;
 
-  public TestGribCdmIndexUpdating(String dataDir, String newModel, FeatureCollectionConfig config, String indexFile, String varName, int orgLen, int remLen) {
+  public TestGribCdmIndexUpdating(String dataDir, String newModel, FeatureCollectionConfig config, String indexFile, String varName, int orgLen, int remLen,
+                                  String newModelIndex, int nleaves) {
     this.dataDir = dataDir;
     this.newModel = newModel;
     this.config = config;
@@ -85,6 +135,8 @@ public class TestGribCdmIndexUpdating {
     this.varName = varName;
     this.orgLen = orgLen;
     this.remLen = remLen;
+    this.newModelIndex = newModelIndex;
+    this.nleaves = nleaves;
   }
 
   @Test
@@ -97,6 +149,77 @@ public class TestGribCdmIndexUpdating {
     testRemoveFileFromCollection(CollectionUpdateType.test, orgLen, remLen);
   }
 
+  @Test
+  public void testRemoveFileFromCollectionSkipUnchanged() throws IOException {
+    GribCdmIndex.setSkipUnchangedLeaves(true);
+    try {
+      testRemoveFileFromCollection(CollectionUpdateType.test, orgLen, remLen);
+    } finally {
+      GribCdmIndex.setSkipUnchangedLeaves(false);
+    }
+  }
+
+  // nothing changed since the last update, so every leaf is skipped, and the partition index is not rewritten
+  @Test
+  public void testUnchangedLeavesSkipped() throws IOException {
+    GribCdmIndex.updateGribCollection(config, CollectionUpdateType.always, logger);
+    File partitionIndex = GribIndexCache.getExistingFileOrCache(dataDir + indexFile);
+    Assert.assertNotNull(indexFile, partitionIndex);
+    long partitionModified = partitionIndex.lastModified();
+
+    GribCdmIndex.setSkipUnchangedLeaves(true);
+    try {
+      int before = GribCdmIndex.getCountLeavesSkipped();
+      boolean changed = GribCdmIndex.updateGribCollection(config, CollectionUpdateType.test, logger);
+      Assert.assertFalse(changed);
+      Assert.assertEquals(nleaves, GribCdmIndex.getCountLeavesSkipped() - before);
+      Assert.assertEquals(partitionModified, partitionIndex.lastModified());
+    } finally {
+      GribCdmIndex.setSkipUnchangedLeaves(false);
+    }
+    checkRuntimes(orgLen);
+  }
+
+  // a file with no index arrives: its leaf is not skipped, and the partition picks it up
+  @Test
+  public void testAddedFileNotSkipped() throws IOException {
+    File newModelFile = new File(dataDir + newModel);
+    File newModelFileSave = new File(dataDir + newModel + ".save");
+    if (newModelFile.exists() && !newModelFileSave.exists() && !newModelFile.renameTo(newModelFileSave))
+      throw new IOException("cant rename file " + newModelFile);
+
+    GribCdmIndex.setSkipUnchangedLeaves(true);
+    try {
+      GribCdmIndex.updateGribCollection(config, CollectionUpdateType.test, logger);
+      File leafIndex = GribIndexCache.getExistingFileOrCache(dataDir + newModelIndex);
+      if (leafIndex != null && !leafIndex.delete())
+        throw new IOException("cant delete file " + leafIndex.getPath());
+      checkRuntimes(remLen);
+
+      if (!newModelFileSave.renameTo(newModelFile))
+        throw new IOException("cant rename file " + newModelFileSave);
+      int before = GribCdmIndex.getCountLeavesSkipped();
+      boolean changed = GribCdmIndex.updateGribCollection(config, CollectionUpdateType.test, logger);
+      Assert.assertTrue(changed);
+      Assert.assertEquals(nleaves - 1, GribCdmIndex.getCountLeavesSkipped() - before);
+      Assert.assertNotNull(GribIndexCache.getExistingFileOrCache(dataDir + newModelIndex));
+
+    } finally {
+      GribCdmIndex.setSkipUnchangedLeaves(false);
+      newModelFileSave.renameTo(newModelFile);  // leave it the way we found it
+    }
+    checkRuntimes(orgLen);
+  }
+
+  private void checkRuntimes(int expectedLen) throws IOException {
+    try (NetcdfFile ncfile = NetcdfFile.open(dataDir + indexFile)) {
+      Group g = ncfile.findGroup("TwoD");
+      Variable v = ncfile.findVariable(g, varName);
+      Assert.assertNotNull(varName, v);
+      Assert.assertEquals(v.getFullName(), expectedLen, v.getDimension(0).getLength());
+    }
+  }
+
   @Test
   public void testRemoveFileFromCollectionTestOnly() throws IOException {
     testRemoveFileFromCollection(CollectionUpdateType.testIndexOnly, orgLen, orgLen);
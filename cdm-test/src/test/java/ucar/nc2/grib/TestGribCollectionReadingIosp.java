@@ -12,10 +12,12 @@ import org.slf4j.LoggerFactory;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
 import ucar.nc2.NCdumpW;
 import ucar.nc2.Variable;
 import ucar.nc2.dataset.NetcdfDataset;
 import ucar.nc2.dataset.VariableDS;
+import ucar.nc2.grib.collection.GribDataReader;
 import ucar.nc2.util.Misc;
 import ucar.unidata.util.test.Assert2;
 import ucar.unidata.util.test.TestDir;
@@ -62,6 +64,44 @@ public class TestGribCollectionReadingIosp {
     }
   }
 
+  @Test
+  public void testReadParallel() throws IOException, InvalidRangeException {
+    // partitioned and unpartitioned reads must give the same result when decoded concurrently
+    String[][] tests = {
+            {"gribCollections/gfs_conus80/gfsConus80_file.ncx4", "Best/Temperature_height_above_ground", "0:30,0,:,:"},
+            {"gribCollections/tp/GFSonedega.ncx4", "Relative_humidity_isobaric", "0:1, 10:20:2, :, :"},
+    };
+
+    for (String[] test : tests) {
+      try (NetcdfDataset ds = NetcdfDataset.openDataset(TestDir.cdmUnitTestDir + test[0])) {
+        Variable v = ds.findVariable(null, test[1]);
+        assert v != null;
+        Array serial = v.read(test[2]);
+
+        GribDataReader.setMaxParallelism(4);
+        Array parallel;
+        try {
+          parallel = v.read(test[2]);
+        } finally {
+          GribDataReader.shutdown();
+        }
+        Assert.assertTrue(test[0], MAMath.nearlyEquals(serial, parallel));
+      }
+    }
+  }
+
+  @Test
+  public void testReadWindow() throws IOException, InvalidRangeException {
+    // a small (y,x) window is decoded directly from the packed data; must agree with a section of the full grid
+    try (NetcdfDataset ds = NetcdfDataset.openDataset(TestDir.cdmUnitTestDir + "gribCollections/tp/GFSonedega.ncx4")) {
+      Variable v = ds.findVariable(null, "Pressure_surface");
+      assert v != null;
+      Array window = v.read("0:1,50:59,100:119");
+      Array full = v.read("0:1,:,:").section(new int[] {0, 50, 100}, new int[] {2, 10, 20});
+      Assert.assertTrue(MAMath.nearlyEquals(full, window));
+    }
+  }
+
   @Test
   public void testReadMrutpTimeRange() throws IOException, InvalidRangeException {
     // read more than one time coordinate at a time in a MRUTP, no vertical
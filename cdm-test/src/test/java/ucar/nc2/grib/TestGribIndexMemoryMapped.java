@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.grib.collection.GribCdmIndex;
+import ucar.unidata.util.test.TestDir;
+import ucar.unidata.util.test.category.NeedsCdmUnitTest;
+
+import java.io.IOException;
+
+/**
+ * Test that reading ncx files memory mapped gives the same collections as reading them into a byte array.
+ *
+ * @since 10/18/2026
+ */
+@Category(NeedsCdmUnitTest.class)
+public class TestGribIndexMemoryMapped {
+  private static final String[] indexes = {
+          TestDir.cdmUnitTestDir + "gribCollections/gfs_2p5deg/gfs_2p5deg.ncx4",
+          TestDir.cdmUnitTestDir + "ncss/GFS/CONUS_80km/GFS_CONUS_80km_20120227_0000.grib1.ncx4",
+  };
+
+  @Test
+  public void testSameCollection() throws IOException {
+    try {
+      for (String index : indexes) {
+        GribCdmIndex.setIndexMemoryMapped(false);
+        String expected = read(index);
+
+        GribCdmIndex.setIndexMemoryMapped(true);
+        Assert.assertEquals(index, expected, read(index));
+      }
+    } finally {
+      GribCdmIndex.setIndexMemoryMapped(true);
+    }
+  }
+
+  private String read(String index) throws IOException {
+    try (NetcdfFile ncfile = NetcdfFile.open(index, null)) {
+      return ncfile.toString();
+    }
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import thredds.featurecollection.FeatureCollectionConfig;
+import thredds.featurecollection.FeatureCollectionType;
+import thredds.inventory.CollectionUpdateType;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.grib.collection.GribCdmIndex;
+import ucar.unidata.util.test.TestDir;
+import ucar.unidata.util.test.category.NeedsCdmUnitTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * Test that making the gbx9 indexes of a collection on several threads gives the same collection as making them serially.
+ *
+ * @since 10/18/2026
+ */
+@Category(NeedsCdmUnitTest.class)
+public class TestGribIndexThreads {
+  private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  @Test
+  public void testGrib2() throws IOException {
+    compare(new FeatureCollectionConfig("gfs_2p5deg_threads", "test/gfs_2p5deg", FeatureCollectionType.GRIB2,
+            TestDir.cdmUnitTestDir + "gribCollections/gfs_2p5deg/.*grib2", null, null, null, "none", null));
+  }
+
+  @Test
+  public void testGrib1() throws IOException {
+    compare(new FeatureCollectionConfig("GFS_CONUS_80km_threads", "test/gfsConus80", FeatureCollectionType.GRIB1,
+            TestDir.cdmUnitTestDir + "ncss/GFS/CONUS_80km/.*grib1", null, null, null, "none", null));
+  }
+
+  private void compare(FeatureCollectionConfig config) throws IOException {
+    try {
+      String serial = makeCollection(config, 1);
+      for (int nthreads : new int[]{2, 7}) {
+        Assert.assertEquals("nthreads=" + nthreads, serial, makeCollection(config, nthreads));
+      }
+    } finally {
+      GribCdmIndex.setIndexThreads(1);
+    }
+  }
+
+  // rewrite the ncx4 index, and return the CDL of the collection
+  private String makeCollection(FeatureCollectionConfig config, int nthreads) throws IOException {
+    GribCdmIndex.setIndexThreads(nthreads);
+    boolean changed = GribCdmIndex.updateGribCollection(config, CollectionUpdateType.always, logger);
+    Assert.assertTrue(changed);
+
+    File indexFile = GribCdmIndex.getTopIndexFileFromConfig(config);
+    Assert.assertNotNull(indexFile);
+    try (NetcdfFile ncfile = NetcdfFile.open(indexFile.getPath(), null)) {
+      return ncfile.toString();
+    }
+  }
+
+}
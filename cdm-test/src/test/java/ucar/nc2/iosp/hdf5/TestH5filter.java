@@ -5,17 +5,30 @@
 
 package ucar.nc2.iosp.hdf5;
 
+import org.junit.Rule;
 import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ucar.ma2.Array;
 import ucar.ma2.Index;
+import ucar.ma2.MAMath;
+import ucar.ma2.Section;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
 import ucar.unidata.util.test.category.NeedsCdmUnitTest;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Class Description.
@@ -26,6 +39,9 @@ import java.lang.invoke.MethodHandles;
 public class TestH5filter {
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
   @org.junit.Test
   public void testFilterNoneApplied() throws IOException {
     // H5header.setDebugFlags( new ucar.nc2.util.DebugFlagsImpl("H5header/header"));
@@ -80,6 +96,122 @@ public class TestH5filter {
     }
   }
 
+  @org.junit.Test
+  public void testDeflateParallel() throws Exception {
+    try (NetcdfFile ncfile = TestH5.openH5("msg/MSG1_8bit_HRV.H5")) {
+      Variable v = ncfile.findVariable("image1/image_data");
+      assert v != null;
+      Array serial = v.read();
+      Array serialSubset = v.read(new Section("100:700,200:1300"));
+
+      try {
+        H5iosp.setChunkDecodeThreads(4);
+        Array parallel = v.read();
+        Array parallelSubset = v.read(new Section("100:700,200:1300"));
+
+        assert MAMath.nearlyEquals(serial, parallel);
+        assert MAMath.nearlyEquals(serialSubset, parallelSubset);
+      } finally {
+        H5iosp.setChunkDecodeThreads(1);
+      }
+    }
+  }
+
+  // several files reading at once share one pool, and decode on their own thread when it is busy
+  @org.junit.Test
+  public void testDeflateParallelSharedPool() throws Exception {
+    Array expected;
+    try (NetcdfFile ncfile = TestH5.openH5("msg/MSG1_8bit_HRV.H5")) {
+      expected = ncfile.findVariable("image1/image_data").read();
+    }
+
+    H5iosp.setChunkDecodeThreads(2);
+    ExecutorService readers = Executors.newFixedThreadPool(6);
+    try {
+      List<Future<Array>> results = new ArrayList<>();
+      for (int i = 0; i < 6; i++) {
+        results.add(readers.submit(() -> {
+          try (NetcdfFile ncfile = TestH5.openH5("msg/MSG1_8bit_HRV.H5")) {
+            return ncfile.findVariable("image1/image_data").read();
+          }
+        }));
+      }
+      for (Future<Array> result : results)
+        assert MAMath.nearlyEquals(expected, result.get());
+    } finally {
+      readers.shutdown();
+      H5iosp.setChunkDecodeThreads(1);
+    }
+  }
+
+  @org.junit.Test
+  public void testDeflateChunkCache() throws Exception {
+    H5iosp.initChunkCache(100 * 1000 * 1000);
+    try (NetcdfFile ncfile = TestH5.openH5("msg/MSG1_8bit_HRV.H5")) {
+      Variable v = ncfile.findVariable("image1/image_data");
+      assert v != null;
+      Array first = v.read(new Section("100:700,200:1300"));
+      long misses = H5iosp.getChunkCache().getMisses();
+      assert misses > 0;
+
+      Array second = v.read(new Section("100:700,200:1300"));
+      assert H5iosp.getChunkCache().getMisses() == misses;
+      assert H5iosp.getChunkCache().getHits() >= misses;
+      assert MAMath.nearlyEquals(first, second);
+    } finally {
+      H5iosp.disableChunkCache();
+    }
+  }
+
+  // a file rewritten since it was cached has a new last modified time, so its chunks are decoded again
+  @org.junit.Test
+  public void testChunkCacheFileRewritten() throws Exception {
+    File copy = tempFolder.newFile("MSG1_8bit_HRV.H5");
+    Files.copy(Paths.get(TestH5.testDir + "msg/MSG1_8bit_HRV.H5"), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+    H5iosp.initChunkCache(100 * 1000 * 1000);
+    try {
+      Array first;
+      try (NetcdfFile ncfile = NetcdfFile.open(copy.getPath())) {
+        first = ncfile.findVariable("image1/image_data").read(new Section("100:700,200:1300"));
+      }
+      long misses = H5iosp.getChunkCache().getMisses();
+      assert misses > 0;
+
+      assert copy.setLastModified(copy.lastModified() + 10 * 1000);
+      try (NetcdfFile ncfile = NetcdfFile.open(copy.getPath())) {
+        Array second = ncfile.findVariable("image1/image_data").read(new Section("100:700,200:1300"));
+        assert H5iosp.getChunkCache().getMisses() == 2 * misses;
+        assert MAMath.nearlyEquals(first, second);
+      }
+    } finally {
+      H5iosp.disableChunkCache();
+    }
+  }
+
+  @org.junit.Test
+  public void testChunkIndex() throws Exception {
+    String[] sections = {"0:999,0:1499", "100:700,200:1300", "999,1499", "0:999:7,3:1400:11"};
+    Array[] fromBtree = new Array[sections.length];
+
+    DataBTree.setChunkIndexMaxBytes(0);
+    try (NetcdfFile ncfile = TestH5.openH5("msg/MSG1_8bit_HRV.H5")) {
+      Variable v = ncfile.findVariable("image1/image_data");
+      assert v != null;
+      for (int i = 0; i < sections.length; i++)
+        fromBtree[i] = v.read(new Section(sections[i]));
+    } finally {
+      DataBTree.setChunkIndexMaxBytes(16 * 1000 * 1000);
+    }
+
+    try (NetcdfFile ncfile = TestH5.openH5("msg/MSG1_8bit_HRV.H5")) {
+      Variable v = ncfile.findVariable("image1/image_data");
+      assert v != null;
+      for (int i = 0; i < sections.length; i++)
+        assert MAMath.nearlyEquals(fromBtree[i], v.read(new Section(sections[i]))) : sections[i];
+    }
+  }
+
   @org.junit.Test
   public void testMissing() throws IOException {
     //H5header.setDebugFlags( new ucar.nc2.util.DebugFlagsImpl("H5header/header"));
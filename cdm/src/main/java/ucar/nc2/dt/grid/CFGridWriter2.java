@@ -415,16 +415,21 @@ public class CFGridWriter2 {
     int ny = yData.length;
 
     // create the data
-    ProjectionPointImpl projPoint = new ProjectionPointImpl();
-    LatLonPointImpl latlonPoint = new LatLonPointImpl();
     double[] latData = new double[nx * ny];
     double[] lonData = new double[nx * ny];
-    for (int i = 0; i < ny; i++) {
-      for (int j = 0; j < nx; j++) {
-        projPoint.setLocation(xData[j], yData[i]);
-        proj.projToLatLon(projPoint, latlonPoint);
-        latData[i * nx + j] = latlonPoint.getLatitude();
-        lonData[i * nx + j] = latlonPoint.getLongitude();
+    if (proj instanceof ProjectionImpl) {
+      ((ProjectionImpl) proj).projToLatLonGrid(xData, yData, latData, lonData);
+
+    } else {
+      ProjectionPointImpl projPoint = new ProjectionPointImpl();
+      LatLonPointImpl latlonPoint = new LatLonPointImpl();
+      for (int i = 0; i < ny; i++) {
+        for (int j = 0; j < nx; j++) {
+          projPoint.setLocation(xData[j], yData[i]);
+          proj.projToLatLon(projPoint, latlonPoint);
+          latData[i * nx + j] = latlonPoint.getLatitude();
+          lonData[i * nx + j] = latlonPoint.getLongitude();
+        }
       }
     }
     Array latDataArray = Array.factory(DataType.DOUBLE, new int[]{ny, nx}, latData);
@@ -1,18 +1,32 @@
 package ucar.nc2.ft.point;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 import com.google.common.base.Preconditions;
+import ucar.ma2.ArrayStructureBB;
+import ucar.ma2.StructureData;
+import ucar.ma2.StructureMembers;
 import ucar.nc2.constants.FeatureType;
+import ucar.nc2.ft.DsgFeatureCollection;
 import ucar.nc2.ft.FeatureDatasetFactoryManager;
 import ucar.nc2.ft.FeatureDatasetPoint;
 import ucar.nc2.ft.NoFactoryFoundException;
 import ucar.nc2.ft.PointFeatureIterator;
+import ucar.nc2.ft.point.remote.PointStream;
+import ucar.nc2.ft.point.remote.PointStreamProto;
+import ucar.nc2.stream.NcStream;
 import ucar.nc2.units.DateUnit;
 
+import javax.annotation.Nonnull;
+
 /**
+ * Sorts StationPointFeatures with a Comparator. Features that compare equal keep the order they were added in.
+ * <p>
+ * By default all features are kept in memory. If a memory budget is given, then each time the features in memory
+ * reach it, they are written, sorted, to a temporary run file in the PointStream encoding, and getPointFeatureIterator()
+ * merges the runs back together. Call close() to delete the run files.
  *
  * @author cwardgar
  * @since 2014/08/21
@@ -20,27 +34,54 @@ import ucar.nc2.units.DateUnit;
 // This class ought to be a PointFeatureCollection, by extending PointCollectionImpl.
 // However, we do not have the timeUnit and altUnits that the constructor requires. Does it really need
 // that info? Can't it calculate it from one of its features? That interface may need to be re-thought.
-public class SortingStationPointFeatureCache {
+public class SortingStationPointFeatureCache implements Closeable {
     public static final Comparator<StationPointFeature> stationNameComparator = (pointFeat1, pointFeat2) ->
             pointFeat1.getStation().getName().compareTo(pointFeat2.getStation().getName());
 
+    private final Comparator<StationPointFeature> comp;
     private final SortedMap<StationPointFeature, List<StationPointFeature>> inMemCache;
+    private int inMemCount;
 
     private volatile StationFeatureCopyFactory stationFeatCopyFactory;
 
+    // spilling to run files
+    private final long maxMemoryBytes;
+    private final File tempDir;
+    private final List<File> runFiles = new ArrayList<>();
+    private final List<Integer> runCounts = new ArrayList<>();
+    private final List<StationFeature> runStations = new ArrayList<>();
+    private final Map<StationFeature, Integer> runStationIndex = new IdentityHashMap<>();
+    private final List<DsgFeatureCollection> runDsgs = new ArrayList<>();
+    private final Map<DsgFeatureCollection, Integer> runDsgIndex = new IdentityHashMap<>();
+    private StructureMembers runMembers; // layout of the data in the run files
+
     public SortingStationPointFeatureCache() {
         this(stationNameComparator);
     }
 
     // We're going to init stationFeatCopyFactory using the first feat that's add()ed.
     public SortingStationPointFeatureCache(Comparator<StationPointFeature> comp) {
-        this.inMemCache = new TreeMap<>(Preconditions.checkNotNull(comp, "comp == null"));
+        this(comp, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * Keep about maxMemoryBytes of features in memory, and spill the rest to temporary run files.
+     *
+     * @param comp           sort order
+     * @param maxMemoryBytes approximate heap to use for features, see StationFeatureCopyFactory.getSizeInBytes()
+     * @param tempDir        directory for the run files, or null for the default temporary-file directory
+     */
+    public SortingStationPointFeatureCache(Comparator<StationPointFeature> comp, long maxMemoryBytes, File tempDir) {
+        this.comp = Preconditions.checkNotNull(comp, "comp == null");
+        this.inMemCache = new TreeMap<>(comp);
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.tempDir = tempDir;
         // stationFeatCopyFactory remains null.
     }
 
     public SortingStationPointFeatureCache(
             Comparator<StationPointFeature> comp, StationPointFeature proto, DateUnit dateUnit) throws IOException {
-        this.inMemCache = new TreeMap<>(Preconditions.checkNotNull(comp, "comp == null"));
+        this(comp);
 
         if (proto != null && dateUnit != null) {
             this.stationFeatCopyFactory = new StationFeatureCopyFactory(proto);
@@ -49,7 +90,8 @@ public class SortingStationPointFeatureCache {
 
     public void add(StationPointFeature feat) throws IOException {
         Preconditions.checkNotNull(feat, "feat == null");
-        StationPointFeature featCopy = getStationFeatureCopyFactory(feat).deepCopy(feat);
+        StationFeatureCopyFactory copyFactory = getStationFeatureCopyFactory(feat);
+        StationPointFeature featCopy = copyFactory.deepCopy(feat);
 
         List<StationPointFeature> bucket = inMemCache.get(featCopy);
         if (bucket == null) {
@@ -58,6 +100,11 @@ public class SortingStationPointFeatureCache {
         }
 
         bucket.add(featCopy);
+        inMemCount++;
+
+        if ((long) inMemCount * copyFactory.getSizeInBytes() > maxMemoryBytes) {
+            spill();
+        }
     }
 
     public void addAll(File datasetFile) throws NoFactoryFoundException, IOException {
@@ -98,7 +145,241 @@ public class SortingStationPointFeatureCache {
 
     // TODO: Once this method is called, prohibit any further additions to cache.
     public PointFeatureIterator getPointFeatureIterator() throws IOException {
-        return new PointIteratorAdapter(new Iter());
+        if (runFiles.isEmpty()) {
+            return new PointIteratorAdapter(new Iter());
+        }
+
+        MergeIter mergeIter = new MergeIter();
+        return new PointIteratorAdapter(mergeIter) {
+            @Override
+            public void close() {
+                mergeIter.close();
+                super.close();
+            }
+        };
+    }
+
+    /**
+     * Deletes the run files, if any. The features that were spilled to them are gone.
+     */
+    @Override
+    public void close() throws IOException {
+        for (File runFile : runFiles) {
+            if (runFile.exists() && !runFile.delete()) {
+                throw new IOException("Couldn't delete " + runFile);
+            }
+        }
+        runFiles.clear();
+        runCounts.clear();
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // run files
+
+    // Write the features in memory, in sorted order, to a new run file.
+    private void spill() throws IOException {
+        File runFile = File.createTempFile("stationPointSort", ".run", tempDir);
+        runFiles.add(runFile);
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(runFile))) {
+            Iter iter = new Iter();
+            while (iter.hasNext()) {
+                writeFeature(out, iter.next());
+            }
+        }
+
+        runCounts.add(inMemCount);
+        inMemCache.clear();
+        inMemCount = 0;
+    }
+
+    // Stations and collections are written as an index into a list that stays in memory.
+    private void writeFeature(OutputStream out, StationPointFeature feat) throws IOException {
+        if (runMembers == null) {
+            runMembers = new StructureMembers(feat.getFeatureData().getStructureMembers());
+            ArrayStructureBB.setOffsets(runMembers);  // same layout that PointStream.encodePointFeature() uses
+        }
+
+        byte[] data = PointStream.encodePointFeature(feat).toByteArray();
+        NcStream.writeVInt(out, indexOf(feat.getStation(), runStations, runStationIndex));
+        NcStream.writeVInt(out, indexOf(feat.getFeatureCollection(), runDsgs, runDsgIndex));
+        NcStream.writeVInt(out, data.length);
+        out.write(data);
+    }
+
+    private static <T> int indexOf(T obj, List<T> list, Map<T, Integer> index) {
+        Integer result = index.get(obj);
+        if (result == null) {
+            result = list.size();
+            list.add(obj);
+            index.put(obj, result);
+        }
+        return result;
+    }
+
+    private StationPointFeature readFeature(InputStream in) throws IOException {
+        int stationIndex = NcStream.readVInt(in);
+        int dsgIndex = NcStream.readVInt(in);
+        int len = NcStream.readVInt(in);
+        if (stationIndex < 0 || dsgIndex < 0 || len < 0) {
+            throw new EOFException("Run file is truncated");
+        }
+        byte[] data = new byte[len];
+        if (NcStream.readFully(in, data) != len) {
+            throw new EOFException("Run file is truncated");
+        }
+
+        StationFeature station = runStations.get(stationIndex);
+        DsgFeatureCollection dsg = runDsgs.get(dsgIndex);
+
+        PointStreamProto.PointFeature pfp = PointStreamProto.PointFeature.parseFrom(data);
+        ArrayStructureBB asbb = new ArrayStructureBB(runMembers, new int[]{1},
+                ByteBuffer.wrap(pfp.getData().toByteArray()), 0);
+        for (String s : pfp.getSdataList()) {
+            asbb.addObjectToHeap(s);
+        }
+
+        PointStreamProto.Location locp = pfp.getLoc();
+        return new RunStationPointFeature(dsg, station, locp.getTime(), locp.getNomTime(), asbb.getStructureData(0));
+    }
+
+    private static class RunStationPointFeature extends PointFeatureImpl implements StationPointFeature {
+        private final StationFeature station;
+        private final StructureData data;
+
+        RunStationPointFeature(DsgFeatureCollection dsg, StationFeature station, double obsTime, double nomTime,
+                StructureData data) {
+            super(dsg, station, obsTime, nomTime, dsg.getTimeUnit());
+            this.station = station;
+            this.data = data;
+        }
+
+        @Nonnull
+        @Override
+        public StructureData getDataAll() throws IOException {
+            return data;
+        }
+
+        @Nonnull
+        @Override
+        public StructureData getFeatureData() throws IOException {
+            return data;
+        }
+
+        @Override
+        public StationFeature getStation() {
+            return station;
+        }
+    }
+
+    private class RunIter implements Iterator<StationPointFeature>, Closeable {
+        private final InputStream in;
+        private int remaining;
+
+        RunIter(File runFile, int count) throws IOException {
+            this.in = new BufferedInputStream(new FileInputStream(runFile));
+            this.remaining = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public StationPointFeature next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("There are no more elements.");
+            }
+
+            try {
+                StationPointFeature feat = readFeature(in);
+                remaining--;
+                return feat;
+            } catch (IOException e) {
+                // Iterator.next() isn't declared to throw IOException, so we must wrap it in an unchecked exception.
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // k-way merge of the run files and the features still in memory, which were added last.
+    // Ties go to the earlier run, so the sort stays stable.
+    private class MergeIter implements Iterator<StationPointFeature> {
+        private final List<Iterator<StationPointFeature>> runs = new ArrayList<>();
+        private final PriorityQueue<Head> heads = new PriorityQueue<>();
+
+        MergeIter() throws IOException {
+            try {
+                for (int i = 0; i < runFiles.size(); i++) {
+                    runs.add(new RunIter(runFiles.get(i), runCounts.get(i)));
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+            runs.add(new Iter());
+
+            for (int i = 0; i < runs.size(); i++) {
+                advance(i);
+            }
+        }
+
+        private void advance(int run) {
+            Iterator<StationPointFeature> iter = runs.get(run);
+            if (iter.hasNext()) {
+                heads.add(new Head(iter.next(), run));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {  // Method is idempotent.
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public StationPointFeature next() {
+            if (!hasNext()) {  // Don't rely on user to call this.
+                throw new NoSuchElementException("There are no more elements.");
+            }
+
+            Head head = heads.poll();
+            advance(head.run);
+            return head.feat;
+        }
+
+        void close() {
+            for (Iterator<StationPointFeature> run : runs) {
+                if (run instanceof RunIter) {
+                    try {
+                        ((RunIter) run).close();
+                    } catch (IOException e) {
+                        // ignore
+                    }
+                }
+            }
+        }
+
+        private class Head implements Comparable<Head> {
+            final StationPointFeature feat;
+            final int run;
+
+            Head(StationPointFeature feat, int run) {
+                this.feat = feat;
+                this.run = run;
+            }
+
+            @Override
+            public int compareTo(Head o) {
+                int c = comp.compare(feat, o.feat);
+                return (c != 0) ? c : Integer.compare(run, o.run);
+            }
+        }
     }
 
     private class Iter implements Iterator<StationPointFeature> {
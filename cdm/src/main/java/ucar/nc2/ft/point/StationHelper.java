@@ -4,25 +4,32 @@
  */
 package ucar.nc2.ft.point;
 
+import ucar.unidata.geoloc.LatLonPoint;
 import ucar.unidata.geoloc.LatLonPointImpl;
 import ucar.unidata.geoloc.LatLonRect;
 import ucar.unidata.geoloc.Station;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 
 /**
  * Helper class for Station Collections.
  * This assumes that calling getData( Station s) is cheap, ie that theres no cheaper filtering to do.
+ * <p>
+ * Bounding box and nearest station queries use a lat/lon grid index, made the first time one is needed.
  * @author caron
  * @since Feb 5, 2008
  */
 public class StationHelper {
   private List<StationFeature> stations;
   private Map<String, StationFeature> stationHash;
+  private volatile StationIndex index; // lazy, null when stations change
   private static final boolean debug = false;
 
   public StationHelper() {
@@ -33,11 +40,13 @@ public class StationHelper {
   public void addStation( StationFeature s) {
     stations.add(s);
     stationHash.put(s.getName(), s);
+    index = null;
   }
 
   public void setStations( List<StationFeature> nstations) {
     stations = new ArrayList<>();
     stationHash = new HashMap<>();
+    index = null;
     for (StationFeature s : nstations)
       addStation(s);
   }
@@ -84,26 +93,46 @@ public class StationHelper {
 
   public List<Station> getStations(LatLonRect boundingBox) throws IOException {
     if (boundingBox == null) return getStations();
-    
-    LatLonPointImpl latlonPt = new LatLonPointImpl();
+
     List<Station> result = new ArrayList<>();
-    for (StationFeature s : stations) {
-      latlonPt.set(s.getLatitude(), s.getLongitude());
-      if (boundingBox.contains(latlonPt))
-        result.add(s);
-    }
+    for (int i : getIndex().find(boundingBox))
+      result.add(stations.get(i));
     return result;
   }
 
+  /**
+   * Find the stations inside the bounding box, in the same order as getStationFeatures().
+   */
   public List<StationFeature> getStationFeatures(LatLonRect boundingBox) throws IOException {
     if (boundingBox == null) return stations;
 
-    LatLonPointImpl latlonPt = new LatLonPointImpl();
     List<StationFeature> result = new ArrayList<>();
-    for (StationFeature s : stations) {
-      latlonPt.set(s.getLatitude(), s.getLongitude());
-      if (boundingBox.contains(latlonPt))
-        result.add(s);
+    for (int i : getIndex().find(boundingBox))
+      result.add(stations.get(i));
+    return result;
+  }
+
+  /**
+   * Find the n stations nearest to a point, closest first.
+   * The metric is (lat-lat0)**2 + (cos(lat0)*(lon-lon0))**2, and ties go to the station that comes first.
+   * Stations with missing lat or lon are never returned.
+   *
+   * @param pt find stations near here
+   * @param n  number of stations wanted
+   * @return at most n stations
+   */
+  public List<StationFeature> getNearestStationFeatures(LatLonPoint pt, int n) {
+    List<StationFeature> result = new ArrayList<>(Math.min(n, stations.size()));
+    for (int i : getIndex().findNearest(pt.getLatitude(), pt.getLongitude(), n))
+      result.add(stations.get(i));
+    return result;
+  }
+
+  private StationIndex getIndex() {
+    StationIndex result = index;
+    if (result == null) { // two threads may both make one, thats ok
+      result = new StationIndex(stations);
+      index = result;
     }
     return result;
   }
@@ -168,5 +197,206 @@ public class StationHelper {
     return result;
   }
 
+  /**
+   * A grid of equal lat/lon cells, each holding the indices of its stations in increasing order.
+   * Lat and lon are normalized the same way as LatLonRect.contains(LatLonPoint), which makes the final decision,
+   * so the index gives exactly the same answer as checking each station.
+   */
+  private static class StationIndex {
+    private static final int stationsPerCell = 4;
+
+    private final double[] lat, lon; // normalized, lon in [-180, 180]
+    private final int nlat, nlon;
+    private final double cellSize;
+    private final int[] cellStart; // stations in cell k are cellStations[cellStart[k] .. cellStart[k+1])
+    private final int[] cellStations;
+    private final int[] missing; // stations with NaN lat or lon
+
+    StationIndex(List<StationFeature> stations) {
+      int n = stations.size();
+      lat = new double[n];
+      lon = new double[n];
+      LatLonPointImpl latlonPt = new LatLonPointImpl();
+      for (int i = 0; i < n; i++) {
+        StationFeature s = stations.get(i);
+        latlonPt.set(s.getLatitude(), s.getLongitude());
+        lat[i] = latlonPt.getLatitude();
+        lon[i] = latlonPt.getLongitude();
+      }
+
+      // about stationsPerCell stations in each cell, if they were spread evenly
+      int ncells = Math.max(2, n / stationsPerCell);
+      nlat = Math.max(1, Math.min(720, (int) Math.sqrt(ncells / 2.0)));
+      nlon = 2 * nlat;
+      cellSize = 180.0 / nlat;
+
+      // counting sort of the stations into cells, keeping index order within a cell
+      int[] cell = new int[n];
+      cellStart = new int[nlat * nlon + 1];
+      int nmissing = 0;
+      for (int i = 0; i < n; i++) {
+        if (Double.isNaN(lat[i]) || Double.isNaN(lon[i])) {
+          cell[i] = -1;
+          nmissing++;
+        } else {
+          cell[i] = latCell(lat[i]) * nlon + lonCell(lon[i]);
+          cellStart[cell[i] + 1]++;
+        }
+      }
+      for (int k = 0; k < nlat * nlon; k++)
+        cellStart[k + 1] += cellStart[k];
+      cellStations = new int[n - nmissing];
+      missing = new int[nmissing];
+      int[] next = Arrays.copyOf(cellStart, nlat * nlon);
+      nmissing = 0;
+      for (int i = 0; i < n; i++) {
+        if (cell[i] < 0) missing[nmissing++] = i;
+        else cellStations[next[cell[i]]++] = i;
+      }
+    }
+
+    private int latCell(double lat) {
+      return Math.max(0, Math.min(nlat - 1, (int) Math.floor((lat + 90.0) / cellSize)));
+    }
+
+    private int lonCell(double lon) {
+      return Math.max(0, Math.min(nlon - 1, (int) Math.floor((lon + 180.0) / cellSize)));
+    }
+
+    /**
+     * Indices of the stations that bb contains, in increasing order.
+     */
+    int[] find(LatLonRect bb) {
+      double eps = 1.0e-9; // same as LatLonRect.contains()
+      int lat0 = latCell(bb.getLowerLeftPoint().getLatitude() - eps);
+      int lat1 = latCell(bb.getUpperRightPoint().getLatitude() + eps);
+      double lonLeft = bb.getLowerLeftPoint().getLongitude();
+      double lonRight = bb.getUpperRightPoint().getLongitude();
+
+      // the lon cells to look in, one or two ranges
+      int[] lonRanges;
+      if (bb.getWidth() >= 360.0)
+        lonRanges = new int[]{0, nlon - 1};
+      else if (bb.crossDateline())
+        lonRanges = new int[]{lonCell(lonLeft), nlon - 1, 0, lonCell(lonRight)};
+      else if (lonLeft <= lonRight)
+        lonRanges = new int[]{lonCell(lonLeft), lonCell(lonRight)};
+      else
+        lonRanges = new int[0];
+
+      int[] result = new int[16];
+      int count = 0;
+      for (int i = lat0; i <= lat1; i++) {
+        for (int r = 0; r < lonRanges.length; r += 2) {
+          for (int j = lonRanges[r]; j <= lonRanges[r + 1]; j++) {
+            int k = i * nlon + j;
+            for (int m = cellStart[k]; m < cellStart[k + 1]; m++) {
+              int stn = cellStations[m];
+              if (bb.contains(lat[stn], lon[stn])) {
+                if (count == result.length) result = Arrays.copyOf(result, 2 * count);
+                result[count++] = stn;
+              }
+            }
+          }
+        }
+      }
+      for (int stn : missing) {
+        if (bb.contains(lat[stn], lon[stn])) {
+          if (count == result.length) result = Arrays.copyOf(result, 2 * count + 1);
+          result[count++] = stn;
+        }
+      }
+
+      result = Arrays.copyOf(result, count);
+      Arrays.sort(result); // back to station order
+      return result;
+    }
+
+    /**
+     * Indices of the n stations nearest to lat0, lon0, closest first.
+     * Search rings of cells around the point's cell, until the nth best station is closer than any
+     * station outside the cells searched so far can be.
+     */
+    int[] findNearest(double lat0, double lon0, int n) {
+      if (n <= 0 || cellStations.length == 0) return new int[0];
+      lat0 = LatLonPointImpl.latNormal(lat0);
+      lon0 = LatLonPointImpl.lonNormal(lon0);
+      double cos = Math.cos(Math.toRadians(lat0));
+
+      // the worst of the best n is at the head
+      PriorityQueue<Neighbor> best = new PriorityQueue<>(n, (a, b) -> b.compareTo(a));
+      BitSet visited = new BitSet(nlat * nlon);
+      int ci = latCell(lat0);
+      int cj = lonCell(lon0);
+      int maxRing = Math.max(nlat, nlon);
+
+      for (int r = 0; r <= maxRing; r++) {
+        for (int di = -r; di <= r; di++) {
+          int i = ci + di;
+          if (i < 0 || i >= nlat) continue;
+          int djStep = (Math.abs(di) == r) ? 1 : 2 * r; // only the edges of the ring
+          for (int dj = -r; dj <= r; dj += Math.max(1, djStep)) {
+            int j = Math.floorMod(cj + dj, nlon);
+            int k = i * nlon + j;
+            if (visited.get(k)) continue;
+            visited.set(k);
+            for (int m = cellStart[k]; m < cellStart[k + 1]; m++) {
+              int stn = cellStations[m];
+              Neighbor nb = new Neighbor(stn, distance(lat0, lon0, cos, stn));
+              if (best.size() < n) {
+                best.add(nb);
+              } else if (nb.compareTo(best.peek()) < 0) {
+                best.poll();
+                best.add(nb);
+              }
+            }
+          }
+        }
+
+        if (best.size() == n) {
+          // any station not yet seen is at least this far in lat, or in lon
+          double latGap = Double.MAX_VALUE;
+          if (ci - r > 0) latGap = Math.min(latGap, lat0 - (-90.0 + (ci - r) * cellSize));
+          if (ci + r < nlat - 1) latGap = Math.min(latGap, (-90.0 + (ci + r + 1) * cellSize) - lat0);
+          double lonGap = Double.MAX_VALUE;
+          if (2 * r + 1 < nlon) {
+            lonGap = Math.min(lon0 - (-180.0 + (cj - r) * cellSize), (-180.0 + (cj + r + 1) * cellSize) - lon0);
+          }
+          double gap = Math.toRadians(Math.min(latGap, cos * lonGap));
+          if (best.peek().dist < gap * gap) break;
+        }
+      }
+
+      int[] result = new int[best.size()];
+      for (int m = result.length - 1; m >= 0; m--)
+        result[m] = best.poll().index;
+      return result;
+    }
+
+    // same as the NCSS closest station
+    private double distance(double lat0, double lon0, double cos, int stn) {
+      double lon1 = LatLonPointImpl.lonNormal(lon[stn], lon0);
+      double dy = Math.toRadians(lat0 - lat[stn]);
+      double dx = cos * Math.toRadians(lon0 - lon1);
+      return dy * dy + dx * dx;
+    }
+  }
+
+  private static class Neighbor implements Comparable<Neighbor> {
+    final int index;
+    final double dist;
+
+    Neighbor(int index, double dist) {
+      this.index = index;
+      this.dist = dist;
+    }
+
+    @Override
+    public int compareTo(Neighbor o) {
+      int c = Double.compare(dist, o.dist);
+      return (c != 0) ? c : Integer.compare(index, o.index);
+    }
+  }
+
 }
 
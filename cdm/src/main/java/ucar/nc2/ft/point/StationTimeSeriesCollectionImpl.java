@@ -19,6 +19,7 @@ import ucar.nc2.ft.StationTimeSeriesFeatureCollection;
 import ucar.nc2.time.CalendarDateRange;
 import ucar.nc2.time.CalendarDateUnit;
 import ucar.nc2.util.IOIterator;
+import ucar.unidata.geoloc.LatLonPoint;
 import ucar.unidata.geoloc.LatLonRect;
 
 /**
@@ -78,6 +79,14 @@ public abstract class StationTimeSeriesCollectionImpl extends PointFeatureCCImpl
     return getStationHelper().getStationFeatures(boundingBox);
   }
 
+  /**
+   * Find the n stations nearest to a point, closest first.
+   * @see StationHelper#getNearestStationFeatures
+   */
+  public List<StationFeature> getNearestStationFeatures(LatLonPoint pt, int n) {
+    return getStationHelper().getNearestStationFeatures(pt, n);
+  }
+
   @Override
   public StationFeature findStationFeature(String name) {
     return getStationHelper().getStation(name);
@@ -5,11 +5,25 @@
 package ucar.nc2.ft.point.collection;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Formatter;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nonnull;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import thredds.inventory.TimedCollection;
 import ucar.nc2.Attribute;
 import ucar.nc2.VariableSimpleIF;
@@ -21,27 +35,70 @@ import ucar.nc2.ft.PointFeature;
 import ucar.nc2.ft.PointFeatureCollection;
 import ucar.nc2.ft.PointFeatureIterator;
 import ucar.nc2.ft.point.PointCollectionImpl;
+import ucar.nc2.ft.point.PointFeatureCopyFactory;
 import ucar.nc2.ft.point.PointIteratorAbstract;
+import ucar.nc2.ft.point.PointIteratorFiltered;
 import ucar.nc2.time.CalendarDateRange;
 import ucar.nc2.time.CalendarDateUnit;
 import ucar.unidata.geoloc.LatLonRect;
 
 /**
- * PointCollection composed of other PointCollections
+ * PointCollection composed of other PointCollections.
+ * By default the datasets are opened and read one after another. With setReadAhead(), the next datasets are
+ * opened and read on background threads while the current one is consumed.
  *
  * @author caron
  * @since May 19, 2009
  */
 public class CompositePointCollection extends PointCollectionImpl implements UpdateableCollection {
+  static private final int readAheadQueueSize = 1000; // features waiting, for each dataset being read ahead
+  static private final long putTimeoutSecs = 300;       // a read ahead task gives up if its features are not taken
+  static private ExecutorService readAheadPool;         // lazy, shared by all iterators
+
+  // bounded, when all threads are busy the iterator reads the dataset itself
+  static private synchronized ExecutorService getReadAheadPool() {
+    if (readAheadPool == null)
+      readAheadPool = new ThreadPoolExecutor(0, 4 * Runtime.getRuntime().availableProcessors(), 60L, TimeUnit.SECONDS,
+              new SynchronousQueue<>(),
+              new ThreadFactoryBuilder().setNameFormat("CompositePointCollection-%d").setDaemon(true).build());
+    return readAheadPool;
+  }
+
   private TimedCollection pointCollections;
   protected List<VariableSimpleIF> dataVariables;
   protected List<Attribute> globalAttributes;
 
+  private int readAhead = 0;
+  private boolean readAheadOrdered = true;
+
+  // subset() filters, applied to each dataset
+  private LatLonRect filterBB;
+  private CalendarDateRange filterDate;
+
   protected CompositePointCollection(String name, CalendarDateUnit timeUnit, String altUnits, TimedCollection pointCollections) throws IOException {
     super(name, timeUnit, altUnits);
     this.pointCollections = pointCollections;
   }
 
+  /**
+   * Read the datasets in the collection in parallel.
+   * Each dataset is opened, read and filtered on a background thread, keeping a bounded number of features waiting.
+   * Features are copied, so they remain valid after their dataset is closed.
+   * The threads are shared by all collections; when they are all busy, the iterator reads the dataset itself.
+   * If an iterator is neither read nor closed for 5 minutes, its background reads give up and it fails, so that
+   * abandoned iterators release their threads.
+   *
+   * @param nfiles  number of datasets to read at the same time; 0 (the default) reads them one after another
+   *                on the calling thread
+   * @param ordered if true (the default), features are returned in the same order as reading one after another;
+   *                otherwise in whatever order the datasets deliver them, which is faster
+   */
+  public void setReadAhead(int nfiles, boolean ordered) {
+    if (nfiles < 0) throw new IllegalArgumentException("nfiles must be >= 0");
+    this.readAhead = nfiles;
+    this.readAheadOrdered = ordered;
+  }
+
   private void readMetadata() {
     // must open a prototype in order to get the data variable
     TimedCollection.Dataset td = pointCollections.getPrototype();
@@ -74,16 +131,23 @@ public class CompositePointCollection extends PointCollectionImpl implements Upd
   public PointFeatureCollection subset(LatLonRect boundingBox, CalendarDateRange dateRange) throws IOException {
     if ((dateRange == null) && (boundingBox == null))
       return this;
-    else if (dateRange == null)
-      return new PointCollectionSubset(this, boundingBox, null);
+    else if ((filterBB != null) || (filterDate != null)) // already a subset
+      return new PointCollectionSubset(this, boundingBox, dateRange);
     else {
-      CompositePointCollection dateSubset = new CompositePointCollection(name, getTimeUnit(), getAltUnits(), pointCollections.subset(dateRange));
-      return new PointCollectionSubset(dateSubset, boundingBox, dateRange);
+      // filter each dataset as its read, so that read ahead threads do the filtering too
+      TimedCollection datasets = (dateRange == null) ? pointCollections : pointCollections.subset(dateRange);
+      CompositePointCollection subset = new CompositePointCollection(name, getTimeUnit(), getAltUnits(), datasets);
+      subset.setReadAhead(readAhead, readAheadOrdered);
+      subset.filterBB = boundingBox;
+      subset.filterDate = dateRange;
+      return subset;
     }
   }
 
   @Override
   public PointFeatureIterator getPointFeatureIterator() throws IOException {
+    if (readAhead > 0)
+      return new ReadAheadPointFeatureIterator();
     return new CompositePointFeatureIterator();
   }
 
@@ -92,6 +156,26 @@ public class CompositePointCollection extends PointCollectionImpl implements Upd
     return pointCollections.update();
   }
 
+  private FeatureDatasetPoint openDataset(TimedCollection.Dataset td) throws IOException {
+    Formatter errlog = new Formatter();
+    FeatureDatasetPoint fdp = (FeatureDatasetPoint) FeatureDatasetFactoryManager.open(FeatureType.POINT, td.getLocation(), null, errlog);
+    if (fdp == null)
+      throw new IllegalStateException("Cant open FeatureDatasetPoint " + td.getLocation());
+    if (CompositeDatasetFactory.debug)
+      System.out.printf("CompositePointFeatureIterator open dataset %s%n", td.getLocation());
+    return fdp;
+  }
+
+  // the features of one dataset, with the subset filters
+  private PointFeatureIterator getDatasetIterator(FeatureDatasetPoint fdp) throws IOException {
+    List<DsgFeatureCollection> fcList = fdp.getPointFeatureCollectionList();
+    PointFeatureCollection pc = (PointFeatureCollection) fcList.get(0);
+    PointFeatureIterator pfIter = pc.getPointFeatureIterator();
+    if ((filterBB != null) || (filterDate != null))
+      pfIter = new PointIteratorFiltered(pfIter, filterBB, filterDate);
+    return pfIter;
+  }
+
   private class CompositePointFeatureIterator extends PointIteratorAbstract {
     private boolean finished = false;
     private Iterator<TimedCollection.Dataset> iter;
@@ -106,16 +190,8 @@ public class CompositePointCollection extends PointCollectionImpl implements Upd
       if (!iter.hasNext()) return null;
       TimedCollection.Dataset td = iter.next();
 
-      Formatter errlog = new Formatter();
-      currentDataset = (FeatureDatasetPoint) FeatureDatasetFactoryManager.open(FeatureType.POINT, td.getLocation(), null, errlog);
-      if (currentDataset == null)
-        throw new IllegalStateException("Cant open FeatureDatasetPoint " + td.getLocation());
-      if (CompositeDatasetFactory.debug)
-        System.out.printf("CompositePointFeatureIterator open dataset %s%n", td.getLocation());
-
-      List<DsgFeatureCollection> fcList = currentDataset.getPointFeatureCollectionList();
-      PointFeatureCollection pc = (PointFeatureCollection) fcList.get(0);
-      return pc.getPointFeatureIterator();
+      currentDataset = openDataset(td);
+      return getDatasetIterator(currentDataset);
     }
 
     @Override
@@ -169,6 +245,228 @@ public class CompositePointCollection extends PointCollectionImpl implements Upd
     }
   }
 
+  /*
+   * Reads the datasets on the shared pool, each task putting copies of its features into a bounded queue.
+   * When ordered, each dataset has its own queue, and only the next readAhead datasets are submitted. Otherwise all
+   * datasets share one queue. A dataset that gets no thread is read here, when the iterator reaches it.
+   */
+  private class ReadAheadPointFeatureIterator extends PointIteratorAbstract {
+    private final Object endOfDataset = new Object();
+
+    private final List<TimedCollection.Dataset> datasets;
+    private final List<BlockingQueue<Object>> queues = new ArrayList<>(); // ordered: one for each dataset submitted, null if read here
+    private final BlockingQueue<Object> sharedQueue;                      // unordered
+    private final Deque<TimedCollection.Dataset> deferred = new ArrayDeque<>(); // unordered: datasets to read here
+    private final Set<BlockingQueue<Object>> abandoned = ConcurrentHashMap.newKeySet(); // a task gave up waiting
+    private volatile boolean cancelled = false;
+
+    private int nsubmitted = 0;
+    private int ndone = 0;  // datasets completely consumed
+    private PointFeature pointFeature;
+    private boolean finished = false;
+
+    // the dataset being read on this thread
+    private FeatureDatasetPoint inlineDataset;
+    private PointFeatureIterator inlineIter;
+    private PointFeatureCopyFactory inlineCopyFactory;
+
+    ReadAheadPointFeatureIterator() {
+      datasets = new ArrayList<>(pointCollections.getDatasets());
+
+      if (readAheadOrdered) {
+        sharedQueue = null;
+        while (nsubmitted < Math.min(readAhead, datasets.size()))
+          submitNext();
+      } else {
+        sharedQueue = new ArrayBlockingQueue<>(readAheadQueueSize * readAhead);
+        while (nsubmitted < datasets.size())
+          submitNext();
+      }
+    }
+
+    private void submitNext() {
+      TimedCollection.Dataset td = datasets.get(nsubmitted++);
+      BlockingQueue<Object> dest = (sharedQueue != null) ? sharedQueue : new ArrayBlockingQueue<>(readAheadQueueSize);
+      boolean submitted = true;
+      try {
+        getReadAheadPool().execute(() -> read(td, dest));
+      } catch (RejectedExecutionException e) { // all threads are busy
+        submitted = false;
+      }
+
+      if (sharedQueue == null)
+        queues.add(submitted ? dest : null);
+      else if (!submitted)
+        deferred.add(td);
+    }
+
+    // runs on the pool; ends with endOfDataset, or the exception
+    private void read(TimedCollection.Dataset td, BlockingQueue<Object> dest) {
+      if (cancelled) return;
+      try {
+        try (FeatureDatasetPoint fdp = openDataset(td);
+             PointFeatureIterator pfIter = getDatasetIterator(fdp)) {
+          PointFeatureCopyFactory copyFactory = null;
+          while (pfIter.hasNext()) {
+            PointFeature pf = pfIter.next();
+            if (copyFactory == null)
+              copyFactory = new PointFeatureCopyFactory(pf);
+            if (!put(dest, copyFactory.deepCopy(pf)))
+              return;
+          }
+        }
+        put(dest, endOfDataset);
+
+      } catch (Throwable t) {
+        try {
+          put(dest, t);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    // wait for room in the queue; return false if the iterator was closed, or not read for putTimeoutSecs
+    private boolean put(BlockingQueue<Object> dest, Object o) throws InterruptedException {
+      long start = System.nanoTime();
+      while (!dest.offer(o, 100, TimeUnit.MILLISECONDS)) {
+        if (cancelled) return false;
+        if (System.nanoTime() - start > TimeUnit.SECONDS.toNanos(putTimeoutSecs)) {
+          abandoned.add(dest);
+          return false;
+        }
+      }
+      return true;
+    }
+
+    // wait a little for the next object; null if there is none yet
+    private Object poll(BlockingQueue<Object> queue) throws InterruptedException {
+      Object o = queue.poll(100, TimeUnit.MILLISECONDS);
+      if (o == null && abandoned.contains(queue))
+        throw new IllegalStateException("CompositePointCollection read ahead gave up, iterator was not read for " + putTimeoutSecs + " secs");
+      return o;
+    }
+
+    private void openInline(TimedCollection.Dataset td) throws IOException {
+      inlineDataset = openDataset(td);
+      inlineIter = getDatasetIterator(inlineDataset);
+      inlineCopyFactory = null;
+    }
+
+    private void closeInline() throws IOException {
+      if (inlineIter != null) inlineIter.close();
+      if (inlineDataset != null) inlineDataset.close();
+      inlineIter = null;
+      inlineDataset = null;
+    }
+
+    private void datasetDone() {
+      if (readAheadOrdered) {
+        queues.set(ndone, null);
+        if (nsubmitted < datasets.size())
+          submitNext();
+      }
+      ndone++;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (pointFeature != null) return true;
+      if (finished) return false;
+
+      try {
+        while (ndone < datasets.size()) {
+          if (inlineIter != null) {
+            if (inlineIter.hasNext()) {
+              PointFeature pf = inlineIter.next();
+              if (inlineCopyFactory == null)
+                inlineCopyFactory = new PointFeatureCopyFactory(pf);
+              pointFeature = inlineCopyFactory.deepCopy(pf);
+              return true;
+            }
+            closeInline();
+            datasetDone();
+            continue;
+          }
+
+          Object o;
+          if (readAheadOrdered) {
+            BlockingQueue<Object> queue = queues.get(ndone);
+            if (queue == null) {
+              openInline(datasets.get(ndone));
+              continue;
+            }
+            o = poll(queue);
+          } else {
+            o = sharedQueue.poll();
+            if (o == null && !deferred.isEmpty()) {
+              openInline(deferred.remove());
+              continue;
+            }
+            if (o == null)
+              o = poll(sharedQueue);
+          }
+
+          if (o == null) {
+            continue;
+
+          } else if (o == endOfDataset) {
+            datasetDone();
+
+          } else if (o instanceof Throwable) {
+            close();
+            if (o instanceof RuntimeException) throw (RuntimeException) o;
+            if (o instanceof Error) throw (Error) o;
+            throw new RuntimeException((Throwable) o);
+
+          } else {
+            pointFeature = (PointFeature) o;
+            return true;
+          }
+        }
+
+      } catch (IOException | RuntimeException e) {
+        close();
+        if (e instanceof RuntimeException) throw (RuntimeException) e;
+        throw new RuntimeException(e);
+
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        close();
+        throw new RuntimeException(e);
+      }
+
+      close();
+      return false;
+    }
+
+    @Override
+    public PointFeature next() {
+      if (!hasNext())
+        throw new NoSuchElementException("This iterator has no more elements.");
+
+      PointFeature result = pointFeature;
+      calcBounds(result);
+      pointFeature = null;
+      return result;
+    }
+
+    @Override
+    public void close() {
+      if (finished) return;
+
+      cancelled = true; // tasks stop reading, and close their datasets
+      finished = true;
+      try {
+        closeInline();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      } finally {
+        finishCalcBounds();
+      }
+    }
+  }
+
   /* private class CompositePointFeatureIteratorMultithreaded extends PointIteratorAbstract {
     private boolean finished = false;
     private int bufferSize = -1;
@@ -4,6 +4,7 @@
  */
 package ucar.nc2.ft2.coverage.writer;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import ucar.ma2.Array;
 import ucar.ma2.DataType;
 import ucar.ma2.InvalidRangeException;
@@ -11,19 +12,35 @@ import ucar.ma2.Section;
 import ucar.nc2.*;
 import ucar.nc2.constants.*;
 import ucar.nc2.ft2.coverage.*;
+import ucar.nc2.iosp.netcdf3.N3iosp;
+import ucar.nc2.iosp.netcdf3.N3outputStreamWriter;
 import ucar.nc2.time.CalendarDate;
+import ucar.nc2.util.Misc;
 import ucar.nc2.util.Optional;
 import ucar.unidata.geoloc.*;
 import ucar.unidata.geoloc.projection.LatLonProjection;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Write CF Compliant Grid file from a Coverage.
  * First, single coverage only.
  * - The idea is to subset the coordsys, use that for the file's metadata.
  * - Then subset the grid, and write out the data. Check that the grid's metadata matches.
+ * - A grid bigger than maxSlabBytes is read and written one slab at a time along its outer dimension
+ *   (runtime, time, vertical or ensemble), so memory use is bounded by the slab size, not the request size.
  *
  * @author caron
  * @since 5/8/2015
@@ -35,6 +52,46 @@ public class CFGridCoverageWriter2 {
   static private final String BOUNDS = "_bounds";
   static private final String BOUNDS_DIM = "bounds_dim"; // dimension of length 2, can be used by any bounds coordinate
 
+  static private long maxSlabBytes = 100 * 1000 * 1000;
+  static private boolean prefetch = false;
+  static private ExecutorService prefetchPool; // lazy, shared by all writers
+
+  // bounded, when the queue is full the caller reads the slab itself
+  static private synchronized ExecutorService getPrefetchPool() {
+    if (prefetchPool == null) {
+      int nthreads = Runtime.getRuntime().availableProcessors();
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(nthreads, nthreads, 60L, TimeUnit.SECONDS,
+              new ArrayBlockingQueue<>(nthreads),
+              new ThreadFactoryBuilder().setNameFormat("CFGridCoverageWriter2-prefetch-%d").setDaemon(true).build(),
+              new ThreadPoolExecutor.CallerRunsPolicy());
+      pool.allowCoreThreadTimeOut(true);
+      prefetchPool = pool;
+    }
+    return prefetchPool;
+  }
+
+  /**
+   * Coverages whose subset is bigger than this are read and written in slabs along their outer dimension.
+   * Default is 100 Mbytes.
+   *
+   * @param maxBytes memory budget for reading one coverage, in bytes
+   */
+  static public void setMaxSlabBytes(long maxBytes) {
+    maxSlabBytes = maxBytes;
+  }
+
+  /**
+   * When reading in slabs, read the next slab in a background thread while the current one is written.
+   * This holds two slabs in memory instead of one. The threads are shared by all writers; when they are all busy
+   * the slab is read in the calling thread. Default is false.
+   */
+  static public void setPrefetch(boolean b) {
+    prefetch = b;
+  }
+
+  private boolean hasLatLon2D; // set in define()
+  private Array[] latLon2D; // lat, lon when streaming
+
   /**
    * Write a netcdf/CF file from a CoverageDataset
 
@@ -56,17 +113,125 @@ public class CFGridCoverageWriter2 {
     return writer2.writeFile(gdsOrg, gridNames, subset, tryToAddLatLon2D, testSizeOnly, writer);
   }
 
-  private ucar.nc2.util.Optional<Long> writeFile(CoverageCollection gdsOrg, List<String> gridNames,
-          SubsetParams subsetParams, boolean tryToAddLatLon2D, boolean testSizeOnly, NetcdfFileWriter writer)
-          throws IOException, InvalidRangeException {
-    if (gridNames == null) {  // want all of them
-      gridNames = new LinkedList<>();
+  /**
+   * Write a netcdf-3/CF file from a CoverageDataset straight to an OutputStream, without a temporary file.
+   * Same as makeNetcdf3Stream() followed by Netcdf3Stream.write().
+   *
+   * @param gdsOrg            the CoverageDataset
+   * @param gridNames         the list of coverage names to be written, or null for all
+   * @param subset            defines the requested subset, or null to include everything in gdsOrg
+   * @param tryToAddLatLon2D  add 2D lat/lon coordinates, if possible
+   * @param out               write to this stream. It is flushed but not closed.
+   * @return  the total number of bytes that the variables in the output file occupy, or empty if the subset fails,
+   *          in which case nothing has been written.
+   * @throws IOException
+   * @throws InvalidRangeException
+   */
+  public static ucar.nc2.util.Optional<Long> writeNetcdf3Stream(CoverageCollection gdsOrg, List<String> gridNames,
+          SubsetParams subset, boolean tryToAddLatLon2D, OutputStream out) throws IOException, InvalidRangeException {
+    Optional<Netcdf3Stream> opt = makeNetcdf3Stream(gdsOrg, gridNames, subset, tryToAddLatLon2D);
+    if (!opt.isPresent())
+      return ucar.nc2.util.Optional.empty(opt.getErrorMessage());
 
-      for (Coverage coverage : gdsOrg.getCoverages()) {
-        gridNames.add(coverage.getName());
+    Netcdf3Stream stream = opt.get();
+    stream.write(out);
+    return Optional.of(stream.getSizeOfVars());
+  }
+
+  /**
+   * Define a netcdf-3/CF file from a CoverageDataset, to be written later to an OutputStream.
+   * The subset is validated, and the header and the exact file length are worked out from the subset shapes,
+   * without reading any coverage data. So a server can reject a bad request, and set the Content-Length,
+   * before anything is sent.
+   *
+   * @param gdsOrg            the CoverageDataset
+   * @param gridNames         the list of coverage names to be written, or null for all
+   * @param subset            defines the requested subset, or null to include everything in gdsOrg
+   * @param tryToAddLatLon2D  add 2D lat/lon coordinates, if possible
+   * @return  the stream, ready to write, or empty if the subset fails
+   * @throws IOException
+   * @throws InvalidRangeException
+   */
+  public static ucar.nc2.util.Optional<Netcdf3Stream> makeNetcdf3Stream(CoverageCollection gdsOrg,
+          List<String> gridNames, SubsetParams subset, boolean tryToAddLatLon2D) throws IOException, InvalidRangeException {
+    CFGridCoverageWriter2 writer2 = new CFGridCoverageWriter2();
+    return writer2.makeStream(gdsOrg, gridNames, subset, tryToAddLatLon2D);
+  }
+
+  /**
+   * A netcdf-3 file that has been defined, but whose data has not been read yet.
+   */
+  public class Netcdf3Stream {
+    private final CoverageCollection gdsOrg, subsetDataset;
+    private final SubsetParams subsetParams;
+    private final NetcdfFile ncfile;
+    private final N3outputStreamWriter n3writer;
+    private final byte[] header;
+    private final long sizeOfVars;
+    private boolean written;
+
+    private Netcdf3Stream(CoverageCollection gdsOrg, CoverageCollection subsetDataset, SubsetParams subsetParams,
+            NetcdfFile ncfile, N3outputStreamWriter n3writer, byte[] header, long sizeOfVars) {
+      this.gdsOrg = gdsOrg;
+      this.subsetDataset = subsetDataset;
+      this.subsetParams = subsetParams;
+      this.ncfile = ncfile;
+      this.n3writer = n3writer;
+      this.header = header;
+      this.sizeOfVars = sizeOfVars;
+    }
+
+    /**
+     * @return the length in bytes of the whole file, header and padding included
+     */
+    public long getLength() {
+      return n3writer.getNonRecordLength();
+    }
+
+    /**
+     * @return the total number of bytes that the variables in the file occupy, as in writeOrTestSize()
+     */
+    public long getSizeOfVars() {
+      return sizeOfVars;
+    }
+
+    /**
+     * Write the header, then read and write each variable's data in file order, so the first bytes go out before
+     * any coverage data is read. Can only be called once.
+     * If this fails, what was already written is a truncated file, shorter than getLength().
+     *
+     * @param out write to this stream. It is flushed but not closed.
+     * @throws IOException
+     * @throws InvalidRangeException
+     */
+    public void write(OutputStream out) throws IOException, InvalidRangeException {
+      if (written) throw new IllegalStateException("Netcdf3Stream was already written");
+      written = true;
+
+      DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(out, 64 * 1000));
+      stream.write(header);
+      stream.flush();
+
+      // there are no record variables, and the non-record variables go out in the order they were added
+      for (Variable v : ncfile.getVariables()) {
+        if (show) System.out.printf("CFGridCoverageWriter2 stream %s%n", v.getNameAndDimensions());
+        Coverage coverage = subsetDataset.findCoverage(v.getShortName());
+        if (coverage != null) {
+          // we need to call readData on the original
+          Coverage coverageOrg = gdsOrg.findCoverage(coverage.getName());
+          readCoverageData(coverageOrg, coverage, subsetParams, gdsOrg.getName(),
+                  (slab, outerIndex) -> n3writer.writeNonRecordDataPart(v, stream, slab));
+        } else {
+          n3writer.writeNonRecordData(v, stream, readVariableData(v, subsetDataset));
+        }
       }
+      stream.flush();
     }
+  }
 
+  private ucar.nc2.util.Optional<Long> writeFile(CoverageCollection gdsOrg, List<String> gridNames,
+          SubsetParams subsetParams, boolean tryToAddLatLon2D, boolean testSizeOnly, NetcdfFileWriter writer)
+          throws IOException, InvalidRangeException {
     if (subsetParams == null) {
       subsetParams = new SubsetParams();
     }
@@ -79,15 +244,76 @@ public class CFGridCoverageWriter2 {
       }
     }
 
-    // We need global attributes, subsetted axes, transforms, and the coverages with attributes and referencing
-    // subsetted axes.
-    Optional<CoverageCollection> opt = CoverageSubsetter2.makeCoverageDatasetSubset(gdsOrg, gridNames, subsetParams);
+    Optional<CoverageCollection> opt = define(gdsOrg, gridNames, subsetParams, tryToAddLatLon2D, writer);
     if (!opt.isPresent())
       return ucar.nc2.util.Optional.empty(opt.getErrorMessage());
 
     CoverageCollection subsetDataset = opt.get();
+    long totalSizeOfVars = totalSizeOfVars(writer);
+
+    if (!testSizeOnly) {
+      // Actually create file and write variable data to it.
+      writer.setLargeFile(isLargeFile(totalSizeOfVars));
+      writer.create();
+
+      writeCoordinateData(subsetDataset, writer);
+      writeCoverageData(gdsOrg, subsetParams, subsetDataset, writer);
+
+      if (hasLatLon2D) {
+        writeLatLon2D(subsetDataset, writer);
+      }
+
+      writer.close();
+    }
+
+    return Optional.of(totalSizeOfVars);
+  }
+
+  private ucar.nc2.util.Optional<Netcdf3Stream> makeStream(CoverageCollection gdsOrg, List<String> gridNames,
+          SubsetParams subsetParams, boolean tryToAddLatLon2D) throws IOException, InvalidRangeException {
+    if (subsetParams == null) {
+      subsetParams = new SubsetParams();
+    }
+
+    // the writer only holds the definition, it never creates a file
+    NetcdfFileWriter writer = NetcdfFileWriter.createNew(null, false);
+    Optional<CoverageCollection> opt = define(gdsOrg, gridNames, subsetParams, tryToAddLatLon2D, writer);
+    if (!opt.isPresent())
+      return ucar.nc2.util.Optional.empty(opt.getErrorMessage());
+
+    long totalSizeOfVars = totalSizeOfVars(writer);
+
+    NetcdfFile ncfile = writer.getNetcdfFile();
+    N3outputStreamWriter n3writer = new N3outputStreamWriter(ncfile);
+    n3writer.setLargeFile(isLargeFile(totalSizeOfVars));
+
+    // the header is small, keep it until the data is written
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    DataOutputStream headerStream = new DataOutputStream(header);
+    n3writer.writeHeader(headerStream, 0);
+    headerStream.flush();
 
-    ////////////////////////////////////////////////////////////////////
+    return Optional.of(new Netcdf3Stream(gdsOrg, opt.get(), subsetParams, ncfile, n3writer, header.toByteArray(),
+            totalSizeOfVars));
+  }
+
+  // We need global attributes, subsetted axes, transforms, and the coverages with attributes and referencing
+  // subsetted axes.
+  private Optional<CoverageCollection> define(CoverageCollection gdsOrg, List<String> gridNames,
+          SubsetParams subsetParams, boolean tryToAddLatLon2D, NetcdfFileWriter writer) throws InvalidRangeException {
+    if (gridNames == null) {  // want all of them
+      gridNames = new LinkedList<>();
+
+      for (Coverage coverage : gdsOrg.getCoverages()) {
+        gridNames.add(coverage.getName());
+      }
+    }
+
+    Optional<CoverageCollection> opt = CoverageSubsetter2.makeCoverageDatasetSubset(gdsOrg, gridNames, subsetParams);
+    if (!opt.isPresent())
+      return opt;
+
+    CoverageCollection subsetDataset = opt.get();
 
     addGlobalAttributes(subsetDataset, writer);
     addDimensions(subsetDataset, writer);
@@ -95,13 +321,16 @@ public class CFGridCoverageWriter2 {
     addCoverages(subsetDataset, writer);
     addCoordTransforms(subsetDataset, writer);
 
-    boolean shouldAddLatLon2D = shouldAddLatLon2D(tryToAddLatLon2D, subsetDataset);
-    if (shouldAddLatLon2D) {
+    hasLatLon2D = shouldAddLatLon2D(tryToAddLatLon2D, subsetDataset);
+    if (hasLatLon2D) {
       addLatLon2D(subsetDataset, writer);
     }
 
-    addCFAnnotations(subsetDataset, writer, shouldAddLatLon2D);
+    addCFAnnotations(subsetDataset, writer, hasLatLon2D);
+    return opt;
+  }
 
+  private long totalSizeOfVars(NetcdfFileWriter writer) {
     long totalSizeOfVars = 0;
     // This is a hack to get the root group of writer's underlying NetcdfFile. See the method's Javadoc.
     Group rootGroup = writer.addGroup(null, null);
@@ -110,23 +339,30 @@ public class CFGridCoverageWriter2 {
     for (Variable var : rootGroup.getVariables()) {
       totalSizeOfVars += var.getSize() * var.getElementSize();
     }
+    return totalSizeOfVars;
+  }
 
-    if (!testSizeOnly) {
-      // Actually create file and write variable data to it.
-      writer.setLargeFile(isLargeFile(totalSizeOfVars));
-      writer.create();
+  // the data for one of the non-coverage variables added in define()
+  private Array readVariableData(Variable v, CoverageCollection subsetDataset) {
+    String name = v.getShortName();
 
-      writeCoordinateData(subsetDataset, writer);
-      writeCoverageData(gdsOrg, subsetParams, subsetDataset, writer);
+    for (CoverageCoordAxis axis : subsetDataset.getCoordAxes()) {
+      if (name.equals(axis.getName()))
+        return axis.getCoordsAsArray();
+      if (axis.isInterval() && name.equals(axis.getName() + BOUNDS))
+        return axis.getCoordBoundsAsArray();
+    }
 
-      if (shouldAddLatLon2D) {
-        writeLatLon2D(subsetDataset, writer);
-      }
+    if (subsetDataset.findCoordTransform(name) != null) // no data, just attributes
+      return Array.factory(DataType.INT, new int[0], new int[] {N3iosp.NC_FILL_INT});
 
-      writer.close();
+    if (hasLatLon2D && (name.equals("lat") || name.equals("lon"))) {
+      if (latLon2D == null)
+        latLon2D = makeLatLon2D(subsetDataset);
+      return name.equals("lat") ? latLon2D[0] : latLon2D[1];
     }
 
-    return Optional.of(totalSizeOfVars);
+    throw new IllegalStateException("CFGridCoverageWriter2 no data for " + name);
   }
 
   /**
@@ -390,26 +626,219 @@ public class CFGridCoverageWriter2 {
     for (Coverage coverage : subsetDataset.getCoverages()) {
       // we need to call readData on the original
       Coverage coverageOrg = gdsOrg.findCoverage(coverage.getName());
-      GeoReferencedArray array = coverageOrg.readData(subsetParams);
-
-      // test conform to whatever axis.getCoordsAsArray() returns
-      checkConformance(coverage, array, gdsOrg.getName());
 
       Variable v = writer.findVariable(coverage.getName());
       if (show) System.out.printf("CFGridCoverageWriter2 write coverage %s%n", v.getNameAndDimensions());
-      writer.write(v, array.getData());
+      readCoverageData(coverageOrg, coverage, subsetParams, gdsOrg.getName(), (slab, outerIndex) -> {
+        int[] origin = new int[v.getRank()];
+        origin[0] = outerIndex;
+        writer.write(v, origin, slab);
+      });
+    }
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+  // reading coverages in slabs
+
+  private interface SlabWriter {
+    // write the data starting at outerIndex along the outer dimension
+    void write(Array data, int outerIndex) throws IOException, InvalidRangeException;
+  }
+
+  private static final EnumSet<AxisType> slabAxisTypes =
+          EnumSet.of(AxisType.RunTime, AxisType.Time, AxisType.GeoZ, AxisType.Height, AxisType.Pressure, AxisType.Ensemble);
+
+  /*
+   * Read the data of one coverage, and pass it to the SlabWriter in order along the outer dimension.
+   * A small coverage is read all at once. A big one is read one coordinate of the outer axis at a time, by
+   * pinning that axis in the SubsetParams. If a slab does not come back with the expected coordinate and shape,
+   * the rest of the coverage is read all at once, as before.
+   */
+  private void readCoverageData(Coverage coverageOrg, Coverage coverage, SubsetParams subsetParams, String where,
+          SlabWriter out) throws IOException, InvalidRangeException {
+    CoverageCoordSys csys = coverage.getCoordSys();
+    int[] shape = csys.getShape();
+    long nbytes = new Section(shape).computeSize() * coverage.getDataType().getSize();
+    CoverageCoordAxis1D slabAxis = (nbytes > maxSlabBytes) ? findSlabAxis(csys, shape) : null;
+    if (slabAxis == null) {
+      readRemaining(coverageOrg, coverage, subsetParams, where, shape, 0, out);
+      return;
+    }
+
+    int n = shape[0];
+    int[] slabShape = shape.clone();
+    slabShape[0] = 1;
+    if (show) System.out.printf("CFGridCoverageWriter2 read %s in %d slabs along %s%n", coverage.getName(), n, slabAxis.getName());
+
+    ExecutorService exec = prefetch ? getPrefetchPool() : null;
+    Future<Array> next = null;
+    try {
+      for (int i = 0; i < n; i++) {
+        Array slab;
+        if (exec == null) {
+          slab = readSlab(coverageOrg, subsetParams, slabAxis, i, slabShape);
+        } else {
+          // the reader is not thread safe, so the next slab is not submitted until this one is read
+          slab = (next == null) ? readSlab(coverageOrg, subsetParams, slabAxis, i, slabShape) : getSlab(next);
+          next = (slab != null && i + 1 < n) ? submitSlab(exec, coverageOrg, subsetParams, slabAxis, i + 1, slabShape) : null;
+        }
+
+        if (slab == null) { // not what we expected, so dont trust the slabs
+          logger.debug("CFGridCoverageWriter2 cant read {} in slabs along {}", coverage.getName(), slabAxis.getName());
+          readRemaining(coverageOrg, coverage, subsetParams, where, shape, i, out);
+          return;
+        }
+        out.write(slab, i);
+      }
+
+    } finally {
+      if (next != null) waitFor(next);
+    }
+  }
+
+  // read the whole coverage, write it starting at index start along the outer dimension
+  private void readRemaining(Coverage coverageOrg, Coverage coverage, SubsetParams subsetParams, String where,
+          int[] shape, int start, SlabWriter out) throws IOException, InvalidRangeException {
+    GeoReferencedArray array = coverageOrg.readData(subsetParams);
+
+    // test conform to whatever axis.getCoordsAsArray() returns
+    checkConformance(coverage, array, where);
+
+    Array data = array.getData();
+    if (start > 0) {
+      int[] origin = new int[shape.length];
+      origin[0] = start;
+      int[] restShape = shape.clone();
+      restShape[0] -= start;
+      data = data.sectionNoReduce(origin, restShape, null);
+    }
+    out.write(data, start);
+  }
+
+  // the axis of the outer dimension, if the coverage can be subset one coordinate at a time along it
+  private CoverageCoordAxis1D findSlabAxis(CoverageCoordSys csys, int[] shape) {
+    if (shape.length < 3) return null; // nothing outside of the horizontal
+
+    for (CoverageCoordAxis axis : csys.getAxes()) {
+      if (csys.isTime2D(axis)) return null; // the 2D time dimensions come first
+      if (axis.getAxisType().isHoriz()) continue;
+      if (axis.getDependenceType() != CoverageCoordAxis.DependenceType.independent) continue;
+
+      // the first independent axis is the outer dimension
+      boolean ok = slabAxisTypes.contains(axis.getAxisType()) && (axis instanceof CoverageCoordAxis1D)
+              && !(axis instanceof TimeOffsetAxis) && axis.getNcoords() == shape[0] && shape[0] > 1;
+      return ok ? (CoverageCoordAxis1D) axis : null;
+    }
+    return null;
+  }
+
+  // the subset params with the slab axis pinned to its index-th coordinate
+  private SubsetParams makeSlabParams(SubsetParams subsetParams, CoverageCoordAxis1D axis, int index) {
+    List<String> replaced;
+    switch (axis.getAxisType()) {
+      case RunTime:
+        replaced = Arrays.asList(SubsetParams.runtime, SubsetParams.runtimeLatest, SubsetParams.runtimeAll);
+        break;
+      case Time:
+        replaced = Arrays.asList(SubsetParams.time, SubsetParams.timeRange, SubsetParams.timeStride,
+                SubsetParams.timePresent, SubsetParams.timeAll, SubsetParams.timeWindow);
+        break;
+      case Ensemble:
+        replaced = Collections.singletonList(SubsetParams.ensCoord);
+        break;
+      default:
+        replaced = Arrays.asList(SubsetParams.vertCoord, SubsetParams.vertIntv, SubsetParams.vertRange);
+        break;
+    }
+
+    SubsetParams result = new SubsetParams();
+    for (Map.Entry<String, Object> entry : subsetParams.getEntries()) {
+      if (!replaced.contains(entry.getKey()))
+        result.set(entry.getKey(), entry.getValue());
+    }
+
+    double coord = axis.getCoordMidpoint(index);
+    switch (axis.getAxisType()) {
+      case RunTime:
+        return result.setRunTime(axis.makeDate(coord));
+      case Time:
+        return result.setTime(axis.makeDate(coord));
+      case Ensemble:
+        return result.setEnsCoord(coord);
+      default:
+        return result.setVertCoord(coord);
+    }
+  }
+
+  // read one slab, return null if it does not have the expected coordinate and size
+  private Array readSlab(Coverage coverageOrg, SubsetParams subsetParams, CoverageCoordAxis1D axis, int index,
+          int[] slabShape) throws IOException, InvalidRangeException {
+    GeoReferencedArray geo = coverageOrg.readData(makeSlabParams(subsetParams, axis, index));
+
+    CoverageCoordAxis got = geo.findCoordAxis(axis.getName());
+    if (!(got instanceof CoverageCoordAxis1D) || got.getNcoords() != 1) return null;
+    CoverageCoordAxis1D got1D = (CoverageCoordAxis1D) got;
+    if (!Misc.nearlyEquals(got1D.getCoordMidpoint(0), axis.getCoordMidpoint(index))) return null;
+    if (axis.isInterval() && (!Misc.nearlyEquals(got1D.getCoordEdge1(0), axis.getCoordEdge1(index)) ||
+            !Misc.nearlyEquals(got1D.getCoordEdge2(0), axis.getCoordEdge2(index)))) return null;
+
+    Array data = geo.getData();
+    if (data.getSize() != new Section(slabShape).computeSize()) return null;
+    return Arrays.equals(data.getShape(), slabShape) ? data : data.reshape(slabShape);
+  }
+
+  private Future<Array> submitSlab(ExecutorService exec, Coverage coverageOrg, SubsetParams subsetParams,
+          CoverageCoordAxis1D axis, int index, int[] slabShape) {
+    return exec.submit(() -> readSlab(coverageOrg, subsetParams, axis, index, slabShape));
+  }
+
+  private Array getSlab(Future<Array> future) throws IOException, InvalidRangeException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted reading slab");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof InvalidRangeException) throw (InvalidRangeException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw new IOException(cause);
+    }
+  }
+
+  // wait for a prefetch to finish, ignoring its result
+  private void waitFor(Future<Array> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      logger.debug("CFGridCoverageWriter2 prefetch failed", e.getCause());
     }
   }
 
   private void writeLatLon2D(CoverageCollection subsetDataset, NetcdfFileWriter writer)
           throws IOException, InvalidRangeException {
+    Array[] latLon = makeLatLon2D(subsetDataset);
+
+    Variable latVar = writer.findVariable("lat");
+    assert latVar != null : "We should have added lat var in addLatLon2D().";
+    writer.write(latVar, latLon[0]);
+
+    Variable lonVar = writer.findVariable("lon");
+    assert lonVar != null : "We should have added lon var in addLatLon2D().";
+    writer.write(lonVar, latLon[1]);
+  }
+
+  // the 2D lat and lon arrays
+  private Array[] makeLatLon2D(CoverageCollection subsetDataset) {
     HorizCoordSys horizCoordSys = subsetDataset.getHorizCoordSys();
     CoverageCoordAxis1D xAxis = horizCoordSys.getXAxis();
     CoverageCoordAxis1D yAxis = horizCoordSys.getYAxis();
 
-    Projection proj = horizCoordSys.getTransform().getProjection();
-    ProjectionPointImpl projPoint = new ProjectionPointImpl();
-    LatLonPointImpl latlonPoint = new LatLonPointImpl();
+    ProjectionImpl proj = horizCoordSys.getTransform().getProjection();
 
     double[] xData = (double[]) xAxis.getCoordsAsArray().get1DJavaArray(DataType.DOUBLE);
     double[] yData = (double[]) yAxis.getCoordsAsArray().get1DJavaArray(DataType.DOUBLE);
@@ -421,24 +850,11 @@ public class CFGridCoverageWriter2 {
     double[] lonData = new double[numX * numY];
 
     // create the data
-    for (int i = 0; i < numY; i++) {
-      for (int j = 0; j < numX; j++) {
-        projPoint.setLocation(xData[j], yData[i]);
-        proj.projToLatLon(projPoint, latlonPoint);
-        latData[i * numX + j] = latlonPoint.getLatitude();
-        lonData[i * numX + j] = latlonPoint.getLongitude();
-      }
-    }
+    proj.projToLatLonGrid(xData, yData, latData, lonData);
 
-    Variable latVar = writer.findVariable("lat");
-    assert latVar != null : "We should have added lat var in addLatLon2D().";
     Array latDataArray = Array.factory(DataType.DOUBLE, new int[] { numY, numX }, latData);
-    writer.write(latVar, latDataArray);
-
-    Variable lonVar = writer.findVariable("lon");
-    assert lonVar != null : "We should have added lon var in addLatLon2D().";
     Array lonDataArray = Array.factory(DataType.DOUBLE, new int[] { numY, numX }, lonData);
-    writer.write(lonVar, lonDataArray);
+    return new Array[] {latDataArray, lonDataArray};
   }
 
   private void checkConformance(Coverage gridSubset, GeoReferencedArray geo, String where) {
@@ -133,6 +133,98 @@ public class BitReader {
     return result;
   }
 
+  /**
+   * Read the next n values of nb bits each, as unsigned ints.
+   * Same as calling bits2UInt(nb) n times, but much faster.
+   *
+   * @param nb     the number of bits in each value, must be 0 <= nb <= 32.
+   * @param result put values here
+   * @param offset starting at this index
+   * @param n      number of values
+   * @throws java.io.IOException on read error
+   * @see BitUnpacker
+   */
+  public void bits2UInt(int nb, int[] result, int offset, int n) throws IOException {
+    int bitOffset = (bitPos == 0) ? 0 : BIT_LENGTH - bitPos;
+    byte[] packed = readPacked(nb, n);
+    BitUnpacker.unpack(packed, bitOffset, nb, result, offset, n);
+  }
+
+  /**
+   * Read the next n values of nb bits each, as unsigned longs.
+   * Same as calling bits2UInt(nb) n times, but much faster.
+   *
+   * @param nb     the number of bits in each value, must be 0 <= nb <= 64.
+   * @param result put values here
+   * @param offset starting at this index
+   * @param n      number of values
+   * @throws java.io.IOException on read error
+   * @see BitUnpacker
+   */
+  public void bits2UInt(int nb, long[] result, int offset, int n) throws IOException {
+    int bitOffset = (bitPos == 0) ? 0 : BIT_LENGTH - bitPos;
+    byte[] packed = readPacked(nb, n);
+    BitUnpacker.unpack(packed, bitOffset, nb, result, offset, n);
+  }
+
+  /**
+   * Read the next n values X of nb bits each, and scale them as in GRIB: Y = (R + X * 2^E) / 10^D.
+   *
+   * @param nb           the number of bits in each value, must be 0 <= nb <= 64.
+   * @param result       put scaled values here
+   * @param offset       starting at this index
+   * @param n            number of values
+   * @param ref          reference value R
+   * @param binaryScale  2^E
+   * @param decimalScale 10^D
+   * @throws java.io.IOException on read error
+   * @see BitUnpacker#unpackScaled(byte[], long, int, float[], int, int, float, float, float)
+   */
+  public void bits2Float(int nb, float[] result, int offset, int n, float ref, float binaryScale, float decimalScale)
+          throws IOException {
+    int bitOffset = (bitPos == 0) ? 0 : BIT_LENGTH - bitPos;
+    byte[] packed = readPacked(nb, n);
+    BitUnpacker.unpackScaled(packed, bitOffset, nb, result, offset, n, ref, binaryScale, decimalScale);
+  }
+
+  // read the bytes holding the next n values of nb bits, starting with the partly consumed bitBuf if any,
+  // and leave bitBuf and bitPos as if they had been read one at a time
+  private byte[] readPacked(int nb, int n) throws IOException {
+    if (nb < 0 || nb > 64 || n < 0)
+      throw new IllegalArgumentException("nb " + nb + " n " + n);
+    int bitOffset = (bitPos == 0) ? 0 : BIT_LENGTH - bitPos;
+    long nbytes = BitUnpacker.nbytes(bitOffset, nb, n);
+    if (nbytes > Integer.MAX_VALUE)
+      throw new IllegalArgumentException(n + " values of " + nb + " bits is too many");
+
+    byte[] packed = new byte[(int) nbytes];
+    int have = 0;
+    if (bitPos > 0) {
+      packed[0] = bitBuf;
+      have = 1;
+    }
+    int len = packed.length - have;
+    if (len > 0) {
+      if (raf != null) {
+        raf.readFully(packed, have, len);
+      } else {
+        if (dataPos + len > data.length)
+          throw new EOFException();
+        System.arraycopy(data, dataPos, packed, have, len);
+        dataPos += len;
+      }
+    }
+
+    int used = (int) ((bitOffset + (long) nb * n) % BIT_LENGTH); // bits used in the last byte
+    if (used == 0) {
+      bitPos = 0;
+    } else {
+      bitBuf = packed[packed.length - 1];
+      bitPos = BIT_LENGTH - used;
+    }
+    return packed;
+  }
+
   /**
    * Read the next nb bits and return an Signed Long .
    *
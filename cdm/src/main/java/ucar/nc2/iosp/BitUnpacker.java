@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.iosp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Unpacks arrays of unsigned, fixed width, big endian bit packed values, as in GRIB simple packing and BUFR.
+ * Equivalent to calling BitReader.bits2UInt(nbits) n times, but much faster: bits are taken from a 64 bit
+ * accumulator that is refilled 32 bits at a time, and widths of 0, 8 and 16 bits on a byte boundary have
+ * their own loops.
+ * The unpackScaled() methods also apply the GRIB scaling Y = (R + X * 2^E) / 10^D in the same pass.
+ *
+ * @see BitReader
+ * @since 10/18/2026
+ */
+public class BitUnpacker {
+
+  private BitUnpacker() {
+  }
+
+  /**
+   * Number of bytes holding n values of nbits each, starting at bitOffset.
+   *
+   * @param bitOffset offset of the first value, in bits
+   * @param nbits     width of each value
+   * @param n         number of values
+   * @return number of bytes
+   */
+  public static long nbytes(long bitOffset, int nbits, int n) {
+    return (bitOffset + (long) nbits * n + 7) / 8;
+  }
+
+  /**
+   * Unpack n unsigned values of nbits each.
+   *
+   * @param src       packed values
+   * @param bitOffset offset in src of the first value, in bits
+   * @param nbits     width of each value, 0 <= nbits <= 32. Values of 32 bits are returned with the same bits
+   * @param dst       put values here
+   * @param dstOffset starting at this index
+   * @param n         number of values
+   */
+  public static void unpack(byte[] src, long bitOffset, int nbits, int[] dst, int dstOffset, int n) {
+    check(src.length, bitOffset, nbits, 32, dst.length, dstOffset, n);
+    int start = (int) (bitOffset >>> 3);
+    int end = dstOffset + n;
+
+    if (nbits == 0) {
+      for (int i = dstOffset; i < end; i++) dst[i] = 0;
+
+    } else if (nbits == 8 && (bitOffset & 7) == 0) {
+      for (int i = dstOffset, pos = start; i < end; i++, pos++)
+        dst[i] = src[pos] & 0xFF;
+
+    } else if (nbits == 16 && (bitOffset & 7) == 0) {
+      for (int i = dstOffset, pos = start; i < end; i++, pos += 2)
+        dst[i] = ((src[pos] & 0xFF) << 8) | (src[pos + 1] & 0xFF);
+
+    } else {
+      Cursor cursor = new Cursor(src, bitOffset);
+      for (int i = dstOffset; i < end; i++)
+        dst[i] = (int) cursor.next(nbits);
+    }
+  }
+
+  /**
+   * Unpack n unsigned values of nbits each.
+   *
+   * @param src       packed values
+   * @param bitOffset offset in src of the first value, in bits
+   * @param nbits     width of each value, 0 <= nbits <= 64. Values of 64 bits are returned with the same bits
+   * @param dst       put values here
+   * @param dstOffset starting at this index
+   * @param n         number of values
+   */
+  public static void unpack(byte[] src, long bitOffset, int nbits, long[] dst, int dstOffset, int n) {
+    check(src.length, bitOffset, nbits, 64, dst.length, dstOffset, n);
+    int start = (int) (bitOffset >>> 3);
+    int end = dstOffset + n;
+
+    if (nbits == 0) {
+      for (int i = dstOffset; i < end; i++) dst[i] = 0;
+
+    } else if (nbits == 8 && (bitOffset & 7) == 0) {
+      for (int i = dstOffset, pos = start; i < end; i++, pos++)
+        dst[i] = src[pos] & 0xFF;
+
+    } else if (nbits == 16 && (bitOffset & 7) == 0) {
+      for (int i = dstOffset, pos = start; i < end; i++, pos += 2)
+        dst[i] = ((src[pos] & 0xFF) << 8) | (src[pos + 1] & 0xFF);
+
+    } else if (nbits <= 32) {
+      Cursor cursor = new Cursor(src, bitOffset);
+      for (int i = dstOffset; i < end; i++)
+        dst[i] = cursor.next(nbits);
+
+    } else {
+      Cursor cursor = new Cursor(src, bitOffset);
+      int hibits = nbits - 32;
+      for (int i = dstOffset; i < end; i++)
+        dst[i] = (cursor.next(hibits) << 32) | cursor.next(32);
+    }
+  }
+
+  /**
+   * Unpack n unsigned values X of nbits each, and scale them: Y = (R + X * 2^E) / 10^D.
+   * To get the GRIB1 form Y = R * 10^-D + X * 2^E * 10^-D, pass those two factors as ref and binaryScale,
+   * and 1 as decimalScale.
+   *
+   * @param src          packed values
+   * @param bitOffset    offset in src of the first value, in bits
+   * @param nbits        width of each value, 0 <= nbits <= 64
+   * @param dst          put scaled values here
+   * @param dstOffset    starting at this index
+   * @param n            number of values
+   * @param ref          reference value R
+   * @param binaryScale  2^E
+   * @param decimalScale 10^D
+   */
+  public static void unpackScaled(byte[] src, long bitOffset, int nbits, float[] dst, int dstOffset, int n,
+                                  float ref, float binaryScale, float decimalScale) {
+    check(src.length, bitOffset, nbits, 64, dst.length, dstOffset, n);
+    int start = (int) (bitOffset >>> 3);
+    int end = dstOffset + n;
+
+    if (nbits == 0) {
+      float value = ref / decimalScale;
+      for (int i = dstOffset; i < end; i++) dst[i] = value;
+
+    } else if (nbits == 8 && (bitOffset & 7) == 0) {
+      for (int i = dstOffset, pos = start; i < end; i++, pos++)
+        dst[i] = (ref + (src[pos] & 0xFF) * binaryScale) / decimalScale;
+
+    } else if (nbits == 16 && (bitOffset & 7) == 0) {
+      for (int i = dstOffset, pos = start; i < end; i++, pos += 2)
+        dst[i] = (ref + (((src[pos] & 0xFF) << 8) | (src[pos + 1] & 0xFF)) * binaryScale) / decimalScale;
+
+    } else if (nbits <= 32) {
+      Cursor cursor = new Cursor(src, bitOffset);
+      for (int i = dstOffset; i < end; i++)
+        dst[i] = (ref + cursor.next(nbits) * binaryScale) / decimalScale;
+
+    } else {
+      Cursor cursor = new Cursor(src, bitOffset);
+      int hibits = nbits - 32;
+      for (int i = dstOffset; i < end; i++) {
+        long x = (cursor.next(hibits) << 32) | cursor.next(32);
+        dst[i] = (ref + unsignedToFloat(x) * binaryScale) / decimalScale;
+      }
+    }
+  }
+
+  /**
+   * Unpack n unsigned values of nbits each, from the buffer's position. The buffer's position is not changed.
+   *
+   * @see #unpack(byte[], long, int, int[], int, int)
+   */
+  public static void unpack(ByteBuffer src, long bitOffset, int nbits, int[] dst, int dstOffset, int n) {
+    byte[] array = array(src, bitOffset, nbits, n);
+    unpack(array, bitOffset + 8L * base(src), nbits, dst, dstOffset, n);
+  }
+
+  /**
+   * Unpack n unsigned values of nbits each, from the buffer's position. The buffer's position is not changed.
+   *
+   * @see #unpack(byte[], long, int, long[], int, int)
+   */
+  public static void unpack(ByteBuffer src, long bitOffset, int nbits, long[] dst, int dstOffset, int n) {
+    byte[] array = array(src, bitOffset, nbits, n);
+    unpack(array, bitOffset + 8L * base(src), nbits, dst, dstOffset, n);
+  }
+
+  /**
+   * Unpack and scale n unsigned values of nbits each, from the buffer's position.
+   * The buffer's position is not changed.
+   *
+   * @see #unpackScaled(byte[], long, int, float[], int, int, float, float, float)
+   */
+  public static void unpackScaled(ByteBuffer src, long bitOffset, int nbits, float[] dst, int dstOffset, int n,
+                                  float ref, float binaryScale, float decimalScale) {
+    byte[] array = array(src, bitOffset, nbits, n);
+    unpackScaled(array, bitOffset + 8L * base(src), nbits, dst, dstOffset, n, ref, binaryScale, decimalScale);
+  }
+
+  //////////////////////////////////////////////////////////////////////////
+
+  // the backing array if there is one, otherwise a copy of the bytes needed, starting at the position
+  private static byte[] array(ByteBuffer src, long bitOffset, int nbits, int n) {
+    if (bitOffset < 0 || n < 0)
+      throw new IllegalArgumentException("bitOffset " + bitOffset + " n " + n);
+    long nbytes = nbytes(bitOffset, nbits, n);
+    if (nbytes > src.remaining())
+      throw new IllegalArgumentException(n + " values of " + nbits + " bits need " + nbytes +
+              " bytes, buffer has " + src.remaining());
+    if (src.hasArray())
+      return src.array();
+
+    byte[] copy = new byte[(int) nbytes];
+    ByteBuffer dup = src.duplicate();
+    dup.get(copy);
+    return copy;
+  }
+
+  private static int base(ByteBuffer src) {
+    return src.hasArray() ? src.arrayOffset() + src.position() : 0;
+  }
+
+  private static void check(int srcLength, long bitOffset, int nbits, int maxBits, int dstLength, int dstOffset, int n) {
+    if (nbits < 0 || nbits > maxBits)
+      throw new IllegalArgumentException("nbits " + nbits + " must be between 0 and " + maxBits);
+    if (bitOffset < 0 || n < 0 || dstOffset < 0 || dstOffset + n > dstLength)
+      throw new IllegalArgumentException("bitOffset " + bitOffset + " dstOffset " + dstOffset + " n " + n);
+    long nbytes = nbytes(bitOffset, nbits, n);
+    if (nbytes > srcLength)
+      throw new IllegalArgumentException(n + " values of " + nbits + " bits need " + nbytes +
+              " bytes, src has " + srcLength);
+  }
+
+  private static float unsignedToFloat(long x) {
+    return x >= 0 ? (float) x : (float) (x >>> 1) * 2.0f;
+  }
+
+  // reads successive values of up to 32 bits from a 64 bit accumulator
+  private static class Cursor {
+    private final byte[] src;
+    private final int wordLimit;  // last position where 4 bytes can be read
+    private int pos;              // next byte to load
+    private long acc;             // the low accBits are unread, any higher bits are stale
+    private int accBits;
+
+    Cursor(byte[] src, long bitOffset) {
+      this.src = src;
+      this.wordLimit = src.length - 4;
+      this.pos = (int) (bitOffset >>> 3);
+      int skip = (int) (bitOffset & 7);
+      if (skip > 0) {
+        acc = src[pos++] & (0xFF >>> skip);
+        accBits = 8 - skip;
+      }
+    }
+
+    // 0 < nbits <= 32, so accBits < 32 whenever we refill, and the 32 new bits fit
+    long next(int nbits) {
+      if (accBits < nbits) {
+        if (pos <= wordLimit) {
+          acc = (acc << 32) | ((src[pos] & 0xFFL) << 24) | ((src[pos + 1] & 0xFF) << 16) |
+                  ((src[pos + 2] & 0xFF) << 8) | (src[pos + 3] & 0xFF);
+          pos += 4;
+          accBits += 32;
+        } else { // the last few bytes
+          while (accBits < nbits) {
+            acc = (acc << 8) | (src[pos++] & 0xFF);
+            accBits += 8;
+          }
+        }
+      }
+      accBits -= nbits;
+      return (acc >>> accBits) & ((1L << nbits) - 1);
+    }
+  }
+
+}
@@ -37,6 +37,18 @@ public class DataBTree {
   private static final boolean debugChunkOrder = false;
   private static java.io.PrintStream debugOut = System.out;
 
+  // maximum size of the in-memory chunk index for one variable; larger btrees are walked on each read
+  private static long chunkIndexMaxBytes = 16 * 1000 * 1000;
+
+  /**
+   * Set the maximum memory used by the chunk index of a single variable.
+   * The index is built the first time a chunked variable is read, and used instead of walking the btree on later reads.
+   * @param maxBytes maximum bytes per variable; 0 means never build an index.
+   */
+  public static void setChunkIndexMaxBytes(long maxBytes) {
+    chunkIndexMaxBytes = maxBytes;
+  }
+
   private final H5header h5;
   private final MemTracker memTracker;
 
@@ -45,6 +57,8 @@ public class DataBTree {
   private final int ndimStorage, wantType;
 
   private Variable owner;
+  private ChunkIndex chunkIndex; // lazy
+  private boolean chunkIndexTooBig;
 
   DataBTree(H5header h5, long rootNodeAddress, int[] varShape, int[] storageSize, MemTracker memTracker) throws IOException {
     this.h5 = h5;
@@ -62,6 +76,8 @@ public class DataBTree {
 
   // used by H5tiledLayoutBB
   DataChunkIterator getDataChunkIteratorFilter(Section want) throws IOException {
+    ChunkIndex index = getChunkIndex();
+    if (index != null) return new DataChunkIterator(index, want);
     return new DataChunkIterator(want);
   }
 
@@ -81,15 +97,124 @@ public class DataBTree {
     }
     }*/
 
+    ChunkIndex index = getChunkIndex();
+    if (index != null) return new DataChunkIteratorNoFilter(index, want, nChunkDim);
     return new DataChunkIteratorNoFilter(want, nChunkDim);
   }
 
+  // read the entire btree into a ChunkIndex, unless its too big
+  private synchronized ChunkIndex getChunkIndex() throws IOException {
+    if (chunkIndex != null || chunkIndexTooBig) return chunkIndex;
+
+    long maxEntries = chunkIndexMaxBytes / ChunkIndex.bytesPerEntry(ndimStorage);
+    List<DataChunk> chunks = new ArrayList<>();
+    Node root = new Node(rootNodeAddress, -1);
+    root.first(null);
+    while (root.hasNext()) {
+      if (chunks.size() >= maxEntries) {
+        chunkIndexTooBig = true;
+        return null;
+      }
+      chunks.add(root.next());
+    }
+    chunkIndex = new ChunkIndex(chunks);
+    return chunkIndex;
+  }
+
+  /*
+   * All the chunks in the btree, in btree order, stored in parallel arrays.
+   * The btree orders chunks by their offset, so we can binary search for the first one we need,
+   * and stop after the last one.
+   */
+  class ChunkIndex {
+    private final int n;
+    private final int[] offsets; // n * ndimStorage
+    private final long[] filePos;
+    private final int[] size;
+    private final int[] filterMask;
+    private final int[] order; // tiling order of each chunk
+    private final boolean isSorted;
+
+    ChunkIndex(List<DataChunk> chunks) {
+      this.n = chunks.size();
+      this.offsets = new int[n * ndimStorage];
+      this.filePos = new long[n];
+      this.size = new int[n];
+      this.filterMask = new int[n];
+      this.order = new int[n];
+
+      boolean sorted = true;
+      for (int i = 0; i < n; i++) {
+        DataChunk dc = chunks.get(i);
+        System.arraycopy(dc.offset, 0, offsets, i * ndimStorage, ndimStorage);
+        filePos[i] = dc.filePos;
+        size[i] = dc.size;
+        filterMask[i] = dc.filterMask;
+        order[i] = tiling.order(dc.offset);
+        if (i > 0 && order[i] < order[i - 1]) sorted = false;
+      }
+      this.isSorted = sorted;
+    }
+
+    static long bytesPerEntry(int ndim) {
+      return 4 * ndim + 8 + 4 + 4 + 4;
+    }
+
+    int size() {
+      return n;
+    }
+
+    // the index of the chunk containing wantOrigin
+    int first(Section want) {
+      if (want == null || !isSorted || n == 0) return 0;
+      int wantOrder = tiling.order(want.getOrigin());
+      int lo = 0, hi = n - 1;
+      while (lo < hi) { // find last chunk with order <= wantOrder
+        int mid = (lo + hi + 1) >>> 1;
+        if (order[mid] <= wantOrder) lo = mid;
+        else hi = mid - 1;
+      }
+      return lo;
+    }
+
+    // one past the index of the chunk containing the last point of want
+    int last(Section want) {
+      if (want == null || !isSorted) return n;
+      int[] lastPt = new int[want.getRank()];
+      for (int i = 0; i < lastPt.length; i++) {
+        ucar.ma2.Range r = want.getRange(i);
+        if (r == null) return n; // incomplete section
+        lastPt[i] = r.last();
+      }
+      int wantOrder = tiling.order(lastPt);
+      int lo = 0, hi = n;
+      while (lo < hi) { // find first chunk with order > wantOrder
+        int mid = (lo + hi) >>> 1;
+        if (order[mid] <= wantOrder) lo = mid + 1;
+        else hi = mid;
+      }
+      return lo;
+    }
+
+    int[] getOffset(int i) {
+      int[] result = new int[ndimStorage];
+      System.arraycopy(offsets, i * ndimStorage, result, 0, ndimStorage);
+      return result;
+    }
+
+    DataChunk getDataChunk(int i) {
+      return new DataChunk(size[i], filterMask[i], getOffset(i), filePos[i]);
+    }
+  }
+
   // An Iterator over the DataChunks in the btree.
   // returns the actual data from the btree leaf (level 0) nodes.
   // used by H5tiledLayout, when there are no filters
   class DataChunkIteratorNoFilter implements LayoutTiled.DataChunkIterator {
     private Node root;
     private int nChunkDim;
+    private ChunkIndex index; // use this instead of root if not null
+    private int current, last;
 
     /**
      * Constructor
@@ -100,16 +225,35 @@ public class DataBTree {
      */
     DataChunkIteratorNoFilter(Section want, int nChunkDim) throws IOException {
       this.nChunkDim = nChunkDim;
-      root = new Node(rootNodeAddress, -1); // should we cache the nodes ???
+      root = new Node(rootNodeAddress, -1);
       int[] wantOrigin = (want != null) ? want.getOrigin() : null;
       root.first(wantOrigin);
     }
 
+    DataChunkIteratorNoFilter(ChunkIndex index, Section want, int nChunkDim) {
+      this.nChunkDim = nChunkDim;
+      this.index = index;
+      this.current = index.first(want);
+      this.last = index.last(want);
+    }
+
     public boolean hasNext() {
+      if (index != null) return current < last;
       return root.hasNext(); //  && !node.greaterThan(wantOrigin);
     }
 
     public LayoutTiled.DataChunk next() throws IOException {
+      if (index != null) {
+        int[] offset = index.getOffset(current);
+        long filePos = index.filePos[current++];
+        if (offset.length > nChunkDim) { // may have to eliminate last offset
+          int[] trim = new int[nChunkDim];
+          System.arraycopy(offset, 0, trim, 0, nChunkDim);
+          offset = trim;
+        }
+        return new LayoutTiled.DataChunk(offset, filePos);
+      }
+
       DataChunk dc = root.next();
       int[] offset = dc.offset;
       if (offset.length > nChunkDim) { // may have to eliminate last offset
@@ -128,6 +272,8 @@ public class DataBTree {
   class DataChunkIterator {
     private Node root;
     private int[] wantOrigin;
+    private ChunkIndex index; // use this instead of root if not null
+    private int current, last;
 
     /**
      * Constructor
@@ -136,16 +282,24 @@ public class DataBTree {
      * @throws IOException on error
      */
     DataChunkIterator(Section want) throws IOException {
-      root = new Node(rootNodeAddress, -1); // should we cache the nodes ???
+      root = new Node(rootNodeAddress, -1);
       wantOrigin = (want != null) ? want.getOrigin() : null;
       root.first(wantOrigin);
     }
 
+    DataChunkIterator(ChunkIndex index, Section want) {
+      this.index = index;
+      this.current = index.first(want);
+      this.last = index.last(want);
+    }
+
     public boolean hasNext() {
+      if (index != null) return current < last;
       return root.hasNext(); //  && !node.greaterThan(wantOrigin);
     }
 
     public DataChunk next() throws IOException {
+      if (index != null) return index.getDataChunk(current++);
       return root.next();
     }
   }
@@ -332,6 +486,14 @@ public class DataBTree {
       if (memTracker != null) memTracker.addByLen("Chunked Data (" + owner + ")", filePos, size);
     }
 
+    // from the ChunkIndex
+    DataChunk(int size, int filterMask, int[] offset, long filePos) {
+      this.size = size;
+      this.filterMask = filterMask;
+      this.offset = offset;
+      this.filePos = filePos;
+    }
+
     public String toString() {
       StringBuilder sbuff = new StringBuilder();
       sbuff.append("  ChunkedDataNode size=").append(size).append(" filterMask=").append(filterMask).append(" filePos=").append(filePos).append(" offsets= ");
@@ -1706,6 +1706,11 @@ public class H5header extends NCheader
       return isChunked;
     }
 
+    // object header address of the data object, identifies the variable in the file
+    long getObjectAddress() {
+      return (facade != null) ? facade.dobj.getAddress() : dataPos;
+    }
+
     public boolean useFillValue() {
       return useFillValue;
     }
@@ -20,6 +20,12 @@ import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Formatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import ucar.nc2.util.cache.MemoryCache;
 
 /**
  * HDF5 I/O
@@ -32,6 +38,9 @@ public class H5iosp extends AbstractIOServiceProvider {
 
   static public final int VLEN_T_SIZE = 16; // Appears to be no way to compute on the fly.
 
+  // System property name for -D flag: default number of threads used to decode filtered chunks
+  static public final String CHUNK_DECODE_THREADS = "unidata.h5iosp.chunk.threads";
+
   static boolean debug = false;
   static boolean debugPos = false;
   static boolean debugHeap = false;
@@ -90,18 +99,102 @@ public class H5iosp extends AbstractIOServiceProvider {
     useHdfEos = val;
   }
 
+  //////////////////////////////////////////////////////////////////////////////////
+  // decoded chunk cache, shared by all open files
+
+  static private MemoryCache<H5tiledLayoutBB.ChunkKey, ByteBuffer> chunkCache;
+
+  /**
+   * Cache decompressed chunks of filtered variables in memory, shared across all open HDF5 files.
+   * Chunks are keyed by file and its last modified time, variable and chunk offset, and evicted LRU when the total
+   * goes over maxBytes. A file rewritten since it was last opened does not see the old chunks.
+   * Replaces any existing chunk cache.
+   *
+   * @param maxBytes maximum size in bytes of all the cached chunks
+   */
+  static public synchronized void initChunkCache(long maxBytes) {
+    chunkCache = new MemoryCache<>("H5iosp chunks", maxBytes, ByteBuffer::capacity);
+  }
+
+  /** Remove the decoded chunk cache, if any. */
+  static public synchronized void disableChunkCache() {
+    if (chunkCache != null) chunkCache.clearCache();
+    chunkCache = null;
+  }
+
+  /** @return the decoded chunk cache, or null if not enabled. */
+  static public synchronized MemoryCache<?, ByteBuffer> getChunkCache() {
+    return chunkCache;
+  }
+
+  static synchronized MemoryCache<H5tiledLayoutBB.ChunkKey, ByteBuffer> getChunkCacheForRead() {
+    return chunkCache;
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////
+  // chunk decode pool, shared by all open files
+
+  static private int chunkDecodeThreads = getDefaultChunkDecodeThreads();
+  static private ExecutorService chunkDecodePool; // lazy, only when chunkDecodeThreads > 1
+
+  /**
+   * Set the number of threads used to read and filter (deflate, shuffle, fletcher32) the chunks of filtered
+   * variables. The threads are in one pool shared by all open HDF5 files; when it is busy, chunks are decoded
+   * on the reading thread. The default of 1 decodes chunks on the calling thread.
+   * Reads already running finish on the old pool.
+   *
+   * @param nthreads number of worker threads, must be > 0
+   */
+  static public synchronized void setChunkDecodeThreads(int nthreads) {
+    if (nthreads <= 0) throw new IllegalArgumentException("nthreads must be > 0");
+    if (nthreads != chunkDecodeThreads && chunkDecodePool != null) {
+      chunkDecodePool.shutdown(); // let running tasks finish
+      chunkDecodePool = null;
+    }
+    chunkDecodeThreads = nthreads;
+  }
+
+  static public synchronized int getChunkDecodeThreads() {
+    return chunkDecodeThreads;
+  }
+
+  // null if chunkDecodeThreads is 1
+  static synchronized ExecutorService getChunkDecodePool() {
+    if (chunkDecodeThreads <= 1) return null;
+    if (chunkDecodePool == null) // bounded queue; H5tiledLayoutBB decodes rejected chunks itself
+      chunkDecodePool = new ThreadPoolExecutor(chunkDecodeThreads, chunkDecodeThreads, 0L, TimeUnit.MILLISECONDS,
+              new ArrayBlockingQueue<>(4 * chunkDecodeThreads),
+              new ThreadFactoryBuilder().setNameFormat("H5iosp-chunk-%d").setDaemon(true).build());
+    return chunkDecodePool;
+  }
+
   //////////////////////////////////////////////////////////////////////////////////
 
   //private RandomAccessFile raf;
   private H5header headerParser;
+  private long lastModified; // when opened, part of the chunk cache key
   private boolean isEos;
   boolean includeOriginalAttributes = false;
 
+  private static int getDefaultChunkDecodeThreads() {
+    String prop = System.getProperty(CHUNK_DECODE_THREADS);
+    if (prop == null) return 1;
+    try {
+      int n = Integer.parseInt(prop);
+      if (n > 0) return n;
+      log.warn(String.format("-D%s must be > 0", CHUNK_DECODE_THREADS));
+    } catch (NumberFormatException nfe) {
+      log.warn(String.format("-D%s is not an integer", CHUNK_DECODE_THREADS));
+    }
+    return 1;
+  }
+
   /////////////////////////////////////////////////////////////////////////////
   // reading
 
   public void open(RandomAccessFile raf, ucar.nc2.NetcdfFile ncfile, ucar.nc2.util.CancelTask cancelTask) throws IOException {
     super.open(raf, ncfile, cancelTask);
+    lastModified = raf.getLastModified();
     headerParser = new H5header(this.raf, ncfile, this);
     headerParser.read(null);
 
@@ -138,7 +231,8 @@ public class H5iosp extends AbstractIOServiceProvider {
       if (debugFilter) System.out.println("read variable filtered " + v2.getFullName() + " vinfo = " + vinfo);
       assert vinfo.isChunked;
       ByteOrder bo = (vinfo.typeInfo.endian == 0) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
-      layout = new H5tiledLayoutBB(v2, wantSection, raf, vinfo.mfp.getFilters(), bo);
+      layout = new H5tiledLayoutBB(v2, wantSection, raf, vinfo.mfp.getFilters(), bo, getChunkDecodePool(), getChunkDecodeThreads(),
+              getChunkCacheForRead(), lastModified);
       if (vinfo.typeInfo.isVString) {
         data = readFilteredStringData((LayoutBB) layout);
       } else{
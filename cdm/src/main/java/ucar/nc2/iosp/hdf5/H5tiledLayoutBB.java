@@ -13,6 +13,7 @@ import ucar.nc2.Variable;
 import ucar.nc2.iosp.LayoutBB;
 import ucar.nc2.iosp.LayoutBBTiled;
 import ucar.nc2.util.IO;
+import ucar.nc2.util.cache.MemoryCache;
 import ucar.unidata.io.RandomAccessFile;
 
 import java.io.ByteArrayInputStream;
@@ -20,6 +21,20 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
 
 /**
  * Iterator to read/write subsets of an array.
@@ -37,6 +52,11 @@ class H5tiledLayoutBB implements LayoutBB {
 
   static public boolean debugFilter = false;
 
+  // Inflaters hold native zlib state, so reuse them rather than making one per chunk
+  private static final int MAX_POOLED_INFLATERS = 32;
+  private static final Queue<Inflater> inflaterPool = new ConcurrentLinkedQueue<>();
+  private static final AtomicInteger inflaterPoolSize = new AtomicInteger();
+
   private LayoutBBTiled delegate;
 
   private RandomAccessFile raf;
@@ -52,6 +72,11 @@ class H5tiledLayoutBB implements LayoutBB {
 
   private int inflatebuffersize = DEFAULTZIPBUFFERSIZE;
 
+  private MemoryCache<ChunkKey, ByteBuffer> chunkCache; // may be null
+  private String location;
+  private long lastModified;
+  private long objectAddress;
+
   /**
    * Constructor.
    * This is for HDF5 chunked data storage. The data is read by chunk, for efficency.
@@ -64,6 +89,30 @@ class H5tiledLayoutBB implements LayoutBB {
    * @throws java.io.IOException   on io error
    */
   H5tiledLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, H5header.Filter[] filters, ByteOrder byteOrder) throws InvalidRangeException, IOException
+  {
+    this(v2, wantSection, raf, filters, byteOrder, null, 1, null, 0);
+  }
+
+  /**
+   * Constructor.
+   * If nthreads > 1, the chunks are read and run through the filters on the given pool, up to 2 * nthreads
+   * chunks ahead of the consumer, and handed back in btree order.
+   *
+   * @param v2          Variable to index over; assumes that vinfo is the data object
+   * @param wantSection the wanted section of data, contains a List of Range objects. must be complete
+   * @param raf the RandomAccessFile
+   * @param filters set of filters that have been applied to the data
+   * @param pool decode chunks on this pool, may be null
+   * @param nthreads number of threads in the pool; if <= 1 or pool is null, chunks are decoded on the calling thread
+   * @param chunkCache look for decoded chunks here, and add them when decoded; may be null
+   * @param lastModified last modified time of the file when it was opened, so a rewritten file does not use the
+   *                     chunks cached for the old one
+   * @throws InvalidRangeException if section invalid for this variable
+   * @throws java.io.IOException   on io error
+   */
+  H5tiledLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, H5header.Filter[] filters, ByteOrder byteOrder,
+                  ExecutorService pool, int nthreads, MemoryCache<ChunkKey, ByteBuffer> chunkCache, long lastModified)
+          throws InvalidRangeException, IOException
   {
     wantSection = Section.fill(wantSection, v2.getShape());
 
@@ -74,6 +123,10 @@ class H5tiledLayoutBB implements LayoutBB {
     this.raf = raf;
     this.filters = filters;
     this.byteOrder = byteOrder;
+    this.chunkCache = chunkCache;
+    this.location = raf.getLocation();
+    this.lastModified = lastModified;
+    this.objectAddress = vinfo.getObjectAddress();
 
     // we have to translate the want section into the same rank as the storageSize, in order to be able to call
     // Section.intersect(). It appears that storageSize (actually msl.chunkSize) may have an extra dimension, reletive
@@ -92,7 +145,8 @@ class H5tiledLayoutBB implements LayoutBB {
 
     // create the data chunk iterator
     DataBTree.DataChunkIterator iter = vinfo.btree.getDataChunkIteratorFilter(this.want);
-    DataChunkIterator dcIter = new DataChunkIterator(iter);
+    LayoutBBTiled.DataChunkIterator dcIter = (pool != null && nthreads > 1) ?
+            new ParallelDataChunkIterator(iter, pool, 2 * nthreads) : new DataChunkIterator(iter);
     delegate = new LayoutBBTiled(dcIter, chunkSize, elemSize, this.want);
 
     if(System.getProperty(INFLATEBUFFERSIZE) != null)  {
@@ -157,6 +211,156 @@ class H5tiledLayoutBB implements LayoutBB {
     }
   }
 
+  /*
+   * Reads ahead in the btree, and decodes up to maxAhead chunks on the pool while the consumer works on the current one.
+   * Only chunks that intersect the wanted section are submitted, and we stop once they cover it.
+   * The raf is shared by the btree traversal and the chunk reads, so all access to it is synchronized on it;
+   * only the filters run concurrently. On error, chunks not yet started are cancelled and the ones being decoded are
+   * waited for, so no task is still using the raf after the exception is thrown. The pool is shared, so it is not
+   * shut down.
+   */
+  private class ParallelDataChunkIterator implements LayoutBBTiled.DataChunkIterator {
+    private final DataBTree.DataChunkIterator btreeIter;
+    private final ExecutorService pool;
+    private final int maxAhead;
+    private final Queue<DecodedChunk> pending = new ArrayDeque<>();
+    private final long wantNelems;
+    private long submittedNelems;
+
+    ParallelDataChunkIterator(DataBTree.DataChunkIterator btreeIter, ExecutorService pool, int maxAhead) {
+      this.btreeIter = btreeIter;
+      this.pool = pool;
+      this.maxAhead = maxAhead;
+      this.wantNelems = want.computeSize();
+    }
+
+    public boolean hasNext() {
+      try {
+        fill();
+      } catch (IOException e) {
+        cancel();
+        throw new IllegalStateException(e);
+      }
+      return !pending.isEmpty();
+    }
+
+    public LayoutBBTiled.DataChunk next() throws IOException {
+      try {
+        fill();
+        DecodedChunk result = pending.poll();
+        fill(); // keep the pool busy while the caller works on this one
+        return result;
+      } catch (IOException | RuntimeException e) {
+        cancel();
+        throw e;
+      }
+    }
+
+    private void fill() throws IOException {
+      while (pending.size() < maxAhead && submittedNelems < wantNelems) {
+        DataBTree.DataChunk dc;
+        synchronized (raf) {
+          if (!btreeIter.hasNext()) return;
+          dc = btreeIter.next();
+        }
+        final DataChunk chunk = new DataChunk(dc);
+        try {
+          Section dataSection = new Section(chunk.getOffset(), chunkSize);
+          if (!dataSection.intersects(want)) continue;
+          submittedNelems += dataSection.intersect(want).computeSize();
+        } catch (InvalidRangeException e) {
+          throw new IllegalStateException(e);
+        }
+        DecodeTask task = new DecodeTask(chunk);
+        pending.add(new DecodedChunk(this, chunk, task, submit(task)));
+      }
+    }
+
+    private Future<ByteBuffer> submit(DecodeTask task) {
+      try {
+        return pool.submit(task);
+      } catch (RejectedExecutionException e) { // pool is busy, shut down or replaced, do it here
+        FutureTask<ByteBuffer> future = new FutureTask<>(task);
+        future.run();
+        return future;
+      }
+    }
+
+    // dont interrupt the workers, they may be reading the shared raf; wait for the ones that started
+    private void cancel() {
+      for (DecodedChunk dc : pending) {
+        dc.future.cancel(false);
+        dc.task.cancelOrWait();
+      }
+      pending.clear();
+    }
+  }
+
+  // decodes one chunk, unless it was cancelled before it started
+  private static class DecodeTask implements Callable<ByteBuffer> {
+    private final DataChunk chunk;
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    DecodeTask(DataChunk chunk) {
+      this.chunk = chunk;
+    }
+
+    public ByteBuffer call() throws IOException {
+      if (!claimed.compareAndSet(false, true)) return null; // cancelled
+      try {
+        return chunk.getByteBuffer();
+      } finally {
+        done.countDown();
+      }
+    }
+
+    // keep it from starting, or wait for it to finish
+    void cancelOrWait() {
+      if (claimed.compareAndSet(false, true)) return;
+      try {
+        done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private class DecodedChunk implements LayoutBBTiled.DataChunk {
+    private final ParallelDataChunkIterator owner;
+    private final DataChunk chunk;
+    private final DecodeTask task;
+    private final Future<ByteBuffer> future;
+
+    DecodedChunk(ParallelDataChunkIterator owner, DataChunk chunk, DecodeTask task, Future<ByteBuffer> future) {
+      this.owner = owner;
+      this.chunk = chunk;
+      this.task = task;
+      this.future = future;
+    }
+
+    public int[] getOffset() {
+      return chunk.getOffset();
+    }
+
+    public ByteBuffer getByteBuffer() throws IOException {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        owner.cancel();
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted decoding HDF5 chunk " + chunk.delegate, e);
+      } catch (ExecutionException e) {
+        owner.cancel(); // the read fails, so stop the chunks decoding ahead
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) throw (IOException) cause;
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        throw new IOException(cause);
+      }
+    }
+  }
+
   private class DataChunk implements ucar.nc2.iosp.LayoutBBTiled.DataChunk {
     // Copied from ArrayList.
     private static final int MAX_ARRAY_LEN = Integer.MAX_VALUE - 8;
@@ -197,11 +401,21 @@ class H5tiledLayoutBB implements LayoutBB {
     }
 
     public ByteBuffer getByteBuffer() throws IOException {
+      if (chunkCache == null)
+        return decode();
+
+      ByteBuffer cached = chunkCache.get(new ChunkKey(location, lastModified, objectAddress, delegate.offset), this::decode);
+      return cached.duplicate().order(byteOrder); // callers get their own position
+    }
+
+    private ByteBuffer decode() throws IOException {
       try {
         // read the data
         byte[] data = new byte[delegate.size];
-        raf.seek(delegate.filePos);
-        raf.readFully(data);
+        synchronized (raf) {
+          raf.seek(delegate.filePos);
+          raf.readFully(data);
+        }
 
       // apply filters backwards
       for (int i = filters.length - 1; i >= 0; i--) {
@@ -243,12 +457,17 @@ class H5tiledLayoutBB implements LayoutBB {
     private byte[] inflate(byte[] compressed) throws IOException {
       // run it through the Inflator
       ByteArrayInputStream in = new ByteArrayInputStream(compressed);
-      java.util.zip.Inflater inflater = new java.util.zip.Inflater();
-      java.util.zip.InflaterInputStream inflatestream
-        = new java.util.zip.InflaterInputStream(in, inflater, inflatebuffersize);
+      Inflater inflater = acquireInflater();
       int len = Math.min(8 * compressed.length, MAX_ARRAY_LEN);
       ByteArrayOutputStream out = new ByteArrayOutputStream(len); // Fixes KXL-349288
-      IO.copyB(inflatestream, out, len);
+      try {
+        // a supplied Inflater is not ended when the stream is closed
+        java.util.zip.InflaterInputStream inflatestream
+          = new java.util.zip.InflaterInputStream(in, inflater, inflatebuffersize);
+        IO.copyB(inflatestream, out, len);
+      } finally {
+        releaseInflater(inflater);
+      }
 
       byte[] uncomp = out.toByteArray();
       if (debug || debugFilter)
@@ -318,4 +537,63 @@ class H5tiledLayoutBB implements LayoutBB {
   }
 
 
+  /**
+   * Key for the decoded chunk cache: file location and last modified time, object header address of the variable,
+   * and chunk offset.
+   */
+  static class ChunkKey {
+    private final String location;
+    private final long lastModified;
+    private final long objectAddress;
+    private final int[] offset;
+    private final int hashCode;
+
+    ChunkKey(String location, long lastModified, long objectAddress, int[] offset) {
+      this.location = location;
+      this.lastModified = lastModified;
+      this.objectAddress = objectAddress;
+      this.offset = offset;
+      int result = location.hashCode();
+      result = 31 * result + Long.hashCode(lastModified);
+      result = 31 * result + Long.hashCode(objectAddress);
+      this.hashCode = 31 * result + Arrays.hashCode(offset);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      ChunkKey that = (ChunkKey) o;
+      return objectAddress == that.objectAddress && lastModified == that.lastModified && location.equals(that.location) &&
+              Arrays.equals(offset, that.offset);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public String toString() {
+      return location + " lastModified=" + lastModified + " obj=" + objectAddress + " offset=" + Arrays.toString(offset);
+    }
+  }
+
+  private static Inflater acquireInflater() {
+    Inflater inflater = inflaterPool.poll();
+    if (inflater == null) return new Inflater();
+    inflaterPoolSize.decrementAndGet();
+    return inflater;
+  }
+
+  private static void releaseInflater(Inflater inflater) {
+    if (inflaterPoolSize.incrementAndGet() <= MAX_POOLED_INFLATERS) {
+      inflater.reset();
+      inflaterPool.offer(inflater);
+    } else {
+      inflaterPoolSize.decrementAndGet();
+      inflater.end();
+    }
+  }
+
 }
@@ -25,7 +25,7 @@ public class N3header extends NCheader
   static private org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(N3header.class);
 
   static final byte[] MAGIC = new byte[]{0x43, 0x44, 0x46, 0x01};
-  static private final long MAX_UNSIGNED_INT = 0x00000000ffffffffL;
+  static final long MAX_UNSIGNED_INT = 0x00000000ffffffffL;
 
   static final byte[] MAGIC_LONG = new byte[]{0x43, 0x44, 0x46, 0x02}; // 64-bit offset format : only affects the variable offset value
   static final int MAGIC_DIM = 10;
@@ -11,6 +11,7 @@ import ucar.ma2.*;
 import ucar.nc2.*;
 import ucar.nc2.iosp.IospHelper;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.io.IOException;
 import java.io.DataOutputStream;
@@ -98,6 +99,34 @@ public class N3outputStreamWriter extends N3streamWriter {
     }
   }
 
+  private Vinfo partVinfo; // the variable being written by writeNonRecordDataPart
+
+  /**
+   * Write part of the data of a non-record variable. The parts must be written in order, with no other variable
+   * in between. After the last part, the padding is written.
+   */
+  public void writeNonRecordDataPart(Variable v, DataOutputStream stream, Array data) throws IOException {
+    Vinfo vinfo = vinfoMap.get(v);
+    if (vinfo != partVinfo) { // first part
+      if (debugWriteData)
+        System.out.println("Write parts of " + v.getFullName() + " at filePos= " + filePos + " vinfo.offset= " + vinfo.offset);
+      if (partVinfo != null || filePos != vinfo.offset) throw new IllegalStateException();
+      partVinfo = vinfo;
+    }
+
+    filePos += writeData(v, stream, data);
+    long end = vinfo.offset + v.getSize() * v.getElementSize();
+    if (filePos > end) throw new IllegalStateException("wrote past the end of " + v.getFullName());
+    if (filePos == end) { // last part
+      if (vinfo.pad > 0) {
+        byte[] dummy = new byte[vinfo.pad];
+        stream.write(dummy);
+        filePos += vinfo.pad;
+      }
+      partVinfo = null;
+    }
+  }
+
   private int recno = 0;
   private boolean first = true;
 
@@ -126,42 +155,53 @@ public class N3outputStreamWriter extends N3streamWriter {
   /////////////////////////////////////////////
 
 
+  private ByteBuffer staging = ByteBuffer.allocate(8 * 1024); // big endian values are collected here, then written together
+
   private long writeData(Variable v, DataOutputStream stream, Array values) throws java.io.IOException {
     DataType dataType = v.getDataType();
     IndexIterator ii = values.getIndexIterator();
 
-    if (dataType == DataType.BYTE) {
-      while (ii.hasNext())
-        stream.write(ii.getByteNext());
-      return values.getSize();
-
-    } else if (dataType == DataType.CHAR) {
-      while (ii.hasNext())
-        stream.write(ii.getByteNext());
-      return values.getSize();
+    if (dataType == DataType.BYTE || dataType == DataType.CHAR) {
+      while (ii.hasNext()) {
+        if (!staging.hasRemaining()) flushStaging(stream);
+        staging.put(ii.getByteNext());
+      }
 
     } else if (dataType == DataType.SHORT) {
-      while (ii.hasNext())
-        stream.writeShort(ii.getShortNext());
-      return 2 * values.getSize();
+      while (ii.hasNext()) {
+        if (staging.remaining() < 2) flushStaging(stream);
+        staging.putShort(ii.getShortNext());
+      }
 
     } else if (dataType == DataType.INT) {
-      while (ii.hasNext())
-        stream.writeInt(ii.getIntNext());
-      return 4 * values.getSize();
+      while (ii.hasNext()) {
+        if (staging.remaining() < 4) flushStaging(stream);
+        staging.putInt(ii.getIntNext());
+      }
 
     } else if (dataType == DataType.FLOAT) {
-      while (ii.hasNext())
-        stream.writeFloat(ii.getFloatNext());
-      return 4 * values.getSize();
+      while (ii.hasNext()) {
+        if (staging.remaining() < 4) flushStaging(stream);
+        staging.putFloat(ii.getFloatNext());
+      }
 
     } else if (dataType == DataType.DOUBLE) {
-      while (ii.hasNext())
-        stream.writeDouble(ii.getDoubleNext());
-      return 8 * values.getSize();
+      while (ii.hasNext()) {
+        if (staging.remaining() < 8) flushStaging(stream);
+        staging.putDouble(ii.getDoubleNext());
+      }
+
+    } else {
+      throw new IllegalStateException("dataType= " + dataType);
     }
 
-    throw new IllegalStateException("dataType= " + dataType);
+    flushStaging(stream);
+    return dataType.getSize() * values.getSize();
+  }
+
+  private void flushStaging(DataOutputStream stream) throws IOException {
+    stream.write(staging.array(), 0, staging.position());
+    staging.clear();
   }
 
   private int writeDataFast(Variable v, DataOutputStream stream, Array values) throws java.io.IOException {
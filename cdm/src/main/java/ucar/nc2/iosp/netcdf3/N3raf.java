@@ -7,7 +7,6 @@ package ucar.nc2.iosp.netcdf3;
 import ucar.ma2.*;
 import ucar.nc2.constants.CDM;
 import ucar.nc2.iosp.Layout;
-import ucar.nc2.iosp.IospHelper;
 
 import java.nio.channels.WritableByteChannel;
 
@@ -27,12 +26,14 @@ public class N3raf extends N3iosp  {
 
   /**
    * Read data subset from file for a variable, create primitive array.
+   * The reads are planned from the whole Layout, so that small chunks close together, like a record variable
+   * across many records, are read together.
    * @param index handles skipping around in the file.
    * @param dataType dataType of the variable
    * @return primitive array with data read in
    */
  protected Object readData( Layout index, DataType dataType) throws java.io.IOException {
-   return IospHelper.readDataFill(raf, index, dataType, null, -1);
+   return new N3readPlanner(raf).readData(index, dataType);
  }
 
   /**
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.netcdf3;
+
+import ucar.ma2.DataType;
+import ucar.nc2.iosp.IospHelper;
+import ucar.nc2.iosp.Layout;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Plans the reads of a data subset from the whole Layout, instead of one seek and read per chunk.
+ * <p>
+ * Record variables are interleaved every recsize bytes, so reading one record variable across many records
+ * gives many small chunks separated by small gaps. When the gap to the next chunk is no bigger than the
+ * RandomAccessFile buffer, the chunks are merged into one large read, and the values scattered into the result.
+ * So a remote file, with a bigger buffer, reads through bigger gaps.
+ * A chunk that is far from its neighbors gets its own read. A chunk bigger than the largest merged read
+ * is read through the RandomAccessFile array reads, so it is not copied twice.
+ * All reads seek and read through the RandomAccessFile, like IospHelper, so they see any data still in its buffer.
+ *
+ * @since 10/18/2026
+ */
+class N3readPlanner {
+  static private final int defaultMaxSpan = 256 * 1024; // largest merged read
+  static private final int minView = 16; // decode chunks with fewer elements than this without a typed view
+  static boolean debug = false;
+
+  private final RandomAccessFile raf;
+  private final int maxGap;
+  private final int maxSpan;
+
+  // the chunks waiting to be read
+  private int nchunks;
+  private long[] srcPos = new long[16];
+  private int[] nelems = new int[16];
+  private int[] destElem = new int[16];
+
+  private byte[] scratch;
+  private int nreads; // for debugging
+
+  N3readPlanner(RandomAccessFile raf) {
+    this(raf, raf.getBufferSize(), defaultMaxSpan);
+  }
+
+  // maxGap, maxSpan settable for testing
+  N3readPlanner(RandomAccessFile raf, int maxGap, int maxSpan) {
+    this.raf = raf;
+    this.maxGap = maxGap;
+    this.maxSpan = maxSpan;
+  }
+
+  /**
+   * Read data subset from file, create primitive array. Same result as IospHelper.readDataFill(raf, layout, dataType, null, -1).
+   *
+   * @param layout   handles skipping around in the file.
+   * @param dataType dataType of the variable, one of the netcdf-3 types
+   * @return primitive array with data read in
+   * @throws java.io.IOException on read error
+   */
+  Object readData(Layout layout, DataType dataType) throws IOException {
+    int elemSize = layout.getElemSize();
+    Object arr = IospHelper.makePrimitiveArray((int) layout.getTotalNelems(), dataType);
+
+    // the pending chunks are merged into one read, from start to end
+    long start = 0, end = 0;
+    while (layout.hasNext()) {
+      Layout.Chunk chunk = layout.next();
+      long pos = chunk.getSrcPos();
+      long posEnd = pos + (long) elemSize * chunk.getNelems();
+      if (nchunks > 0 && (pos < end || pos - end > maxGap || posEnd - start > maxSpan)) {
+        readPending(dataType, arr, start, end);
+        nchunks = 0;
+      }
+
+      if (posEnd - pos > maxSpan) { // big enough on its own
+        raf.seek(pos);
+        readArray(dataType, arr, chunk.getNelems(), (int) chunk.getDestElem());
+        nreads++;
+        continue;
+      }
+
+      if (nchunks == 0) start = pos;
+      end = posEnd;
+      add(pos, chunk.getNelems(), (int) chunk.getDestElem());
+    }
+    if (nchunks > 0)
+      readPending(dataType, arr, start, end);
+
+    if (debug)
+      System.out.printf("N3readPlanner %s: %d reads%n", raf.getLocation(), nreads);
+
+    if (dataType == DataType.CHAR) return IospHelper.convertByteToChar((byte[]) arr);
+    return arr;
+  }
+
+  private void add(long pos, int n, int dest) {
+    if (nchunks == srcPos.length) {
+      int size = 2 * nchunks;
+      srcPos = Arrays.copyOf(srcPos, size);
+      nelems = Arrays.copyOf(nelems, size);
+      destElem = Arrays.copyOf(destElem, size);
+    }
+    srcPos[nchunks] = pos;
+    nelems[nchunks] = n;
+    destElem[nchunks] = dest;
+    nchunks++;
+  }
+
+  // one read from start to end, then scatter the pending chunks into the result
+  private void readPending(DataType dataType, Object arr, long start, long end) throws IOException {
+    int span = (int) (end - start);
+    if (scratch == null || scratch.length < span)
+      scratch = new byte[span];
+    raf.seek(start);
+    raf.readFully(scratch, 0, span);
+    nreads++;
+
+    ByteBuffer bb = ByteBuffer.wrap(scratch, 0, span); // netcdf-3 is always big endian
+    for (int k = 0; k < nchunks; k++)
+      scatter(dataType, bb, (int) (srcPos[k] - start), arr, nelems[k], destElem[k]);
+  }
+
+  // decode n elements from the ByteBuffer, starting at pos. Short chunks are decoded one value at a time, to avoid making a view.
+  private void scatter(DataType dataType, ByteBuffer bb, int pos, Object arr, int n, int dest) {
+    Class primClass = dataType.getPrimitiveClassType();
+    if (primClass == byte.class || dataType == DataType.CHAR) {
+      System.arraycopy(bb.array(), pos, arr, dest, n);
+
+    } else if (primClass == short.class) {
+      short[] pa = (short[]) arr;
+      if (n < minView)
+        for (int i = 0; i < n; i++) pa[dest + i] = bb.getShort(pos + 2 * i);
+      else
+        ((ByteBuffer) bb.position(pos)).asShortBuffer().get(pa, dest, n);
+
+    } else if (primClass == int.class) {
+      int[] pa = (int[]) arr;
+      if (n < minView)
+        for (int i = 0; i < n; i++) pa[dest + i] = bb.getInt(pos + 4 * i);
+      else
+        ((ByteBuffer) bb.position(pos)).asIntBuffer().get(pa, dest, n);
+
+    } else if (dataType == DataType.FLOAT) {
+      float[] pa = (float[]) arr;
+      if (n < minView)
+        for (int i = 0; i < n; i++) pa[dest + i] = bb.getFloat(pos + 4 * i);
+      else
+        ((ByteBuffer) bb.position(pos)).asFloatBuffer().get(pa, dest, n);
+
+    } else if (dataType == DataType.DOUBLE) {
+      double[] pa = (double[]) arr;
+      if (n < minView)
+        for (int i = 0; i < n; i++) pa[dest + i] = bb.getDouble(pos + 8 * i);
+      else
+        ((ByteBuffer) bb.position(pos)).asDoubleBuffer().get(pa, dest, n);
+
+    } else if (primClass == long.class) {
+      long[] pa = (long[]) arr;
+      if (n < minView)
+        for (int i = 0; i < n; i++) pa[dest + i] = bb.getLong(pos + 8 * i);
+      else
+        ((ByteBuffer) bb.position(pos)).asLongBuffer().get(pa, dest, n);
+
+    } else {
+      throw new IllegalStateException("dataType= " + dataType);
+    }
+  }
+
+  // read n elements with the RandomAccessFile at the current position
+  private void readArray(DataType dataType, Object arr, int n, int dest) throws IOException {
+    Class primClass = dataType.getPrimitiveClassType();
+    if (primClass == byte.class || dataType == DataType.CHAR)
+      raf.readFully((byte[]) arr, dest, n);
+    else if (primClass == short.class)
+      raf.readShort((short[]) arr, dest, n);
+    else if (primClass == int.class)
+      raf.readInt((int[]) arr, dest, n);
+    else if (dataType == DataType.FLOAT)
+      raf.readFloat((float[]) arr, dest, n);
+    else if (dataType == DataType.DOUBLE)
+      raf.readDouble((double[]) arr, dest, n);
+    else if (primClass == long.class)
+      raf.readLong((long[]) arr, dest, n);
+    else
+      throw new IllegalStateException("dataType= " + dataType);
+  }
+
+  int getNumberOfReads() {
+    return nreads;
+  }
+}
@@ -0,0 +1,538 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.util.cache;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.time.CalendarDateFormatter;
+import ucar.nc2.util.CancelTask;
+import ucar.nc2.util.Misc;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A FileCacheIF that does not take a global lock on acquire or release, for servers with many concurrent requests.
+ * Drop-in alternative to FileCache, with the same constructor parameters.
+ * <ul>
+ * <li>Open files are found through a ConcurrentHashMap, and locked and unlocked with a compare-and-set on the file's
+ *     state, so acquire and release take no monitors.
+ * <li>Eviction uses the CLOCK (second chance) approximation of LRU: files sit in a single queue, and a file that
+ *     has been used since it was last examined gets passed over once. Each eviction step looks at a bounded
+ *     number of files, so no thread ever scans or sorts the whole cache.
+ * <li>Going over the soft limit schedules an eviction on a shared background thread. Going over the hard limit
+ *     does a small, bounded eviction step in the calling thread. Only one thread evicts at a time; others
+ *     dont wait for it.
+ * <li>If period > 0, the background thread evicts down to minElements every period seconds.
+ * </ul>
+ * Call shutdown() when exiting the program, to stop the background thread.
+ *
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class FileCacheConcurrent implements FileCacheIF {
+  static protected final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FileCacheConcurrent.class);
+  static protected final org.slf4j.Logger cacheLog = org.slf4j.LoggerFactory.getLogger("cacheLogger");
+  static final boolean debugPrint = false;
+
+  // max number of queue entries looked at by one eviction step in a request thread, per file to be removed
+  static private final int EVICT_BUDGET = 4;
+
+  // shared by all instances
+  static private ScheduledExecutorService exec;
+
+  /**
+   * Shut down the background eviction thread shared by all instances.
+   */
+  public static synchronized void shutdown() {
+    if (exec != null) exec.shutdownNow();
+    exec = null;
+  }
+
+  private static synchronized ScheduledExecutorService getExecutor() {
+    if (exec == null)
+      exec = Executors.newSingleThreadScheduledExecutor(
+              new ThreadFactoryBuilder().setNameFormat("FileCacheConcurrent").setDaemon(true).build());
+    return exec;
+  }
+
+  // CacheFile states
+  private static final int IDLE = 0, LOCKED = 1, EVICTED = 2;
+
+  /////////////////////////////////////////////////////////////////////////////////////////
+
+  protected final String name;
+  protected final int softLimit, minElements, hardLimit;
+  protected final long period; // msecs
+
+  private final AtomicBoolean disabled = new AtomicBoolean(false);
+  private final AtomicBoolean evicting = new AtomicBoolean(false);  // one evictor at a time
+  private final AtomicBoolean hasScheduled = new AtomicBoolean(false); // a background eviction is scheduled
+  private final AtomicInteger count = new AtomicInteger();          // number of files in the cache
+
+  private final ConcurrentHashMap<Object, CacheElement> cache;        // keyed by hashKey
+  private final ConcurrentHashMap<FileCacheable, CacheFile> files;    // all files in the cache
+  private final ConcurrentLinkedQueue<CacheFile> clock = new ConcurrentLinkedQueue<>(); // eviction order
+
+  // debugging and stats
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger miss = new AtomicInteger();
+  private final AtomicInteger evictions = new AtomicInteger();
+  private volatile ConcurrentHashMap<Object, Tracker> track;
+
+  /**
+   * Constructor.
+   *
+   * @param name                of file cache
+   * @param minElementsInMemory keep this number in the cache
+   * @param softLimit           trigger a background eviction if it goes over this number.
+   * @param hardLimit           if > 0, evict in the calling thread if it goes over this number.
+   * @param period              if > 0, evict down to minElementsInMemory every this number of seconds.
+   */
+  public FileCacheConcurrent(String name, int minElementsInMemory, int softLimit, int hardLimit, int period) {
+    this.name = name;
+    this.minElements = minElementsInMemory;
+    this.softLimit = softLimit;
+    this.hardLimit = hardLimit;
+    this.period = (long) 1000 * period;
+
+    cache = new ConcurrentHashMap<>(2 * softLimit, 0.75f, 16);
+    files = new ConcurrentHashMap<>(4 * softLimit, 0.75f, 16);
+
+    if (period > 0) {
+      getExecutor().scheduleAtFixedRate(() -> {
+        if (!disabled.get()) evictAll(minElements);
+      }, this.period, this.period, TimeUnit.MILLISECONDS);
+      if (cacheLog.isDebugEnabled())
+        cacheLog.debug("FileCacheConcurrent " + name + " cleanup every " + period + " secs");
+    }
+  }
+
+  @Override
+  public void disable() {
+    this.disabled.set(true);
+    clearCache(true);
+  }
+
+  @Override
+  public void enable() {
+    this.disabled.set(false);
+  }
+
+  @Override
+  public FileCacheable acquire(FileFactory factory, DatasetUrl location) throws IOException {
+    return acquire(factory, location.trueurl, location, -1, null, null);
+  }
+
+  /**
+   * Acquire a FileCacheable from the cache, and lock it so no one else can use it.
+   * If not already in cache, open it with the FileFactory, and put in cache.
+   * Call FileCacheable.close() when done, and the file is then released instead of closed.
+   *
+   * @param factory     use this factory to open the file if not in the cache; may not be null
+   * @param hashKey     unique key for this file. If null, the location will be used
+   * @param location    file location, may also used as the cache name, will be passed to the FileFactory
+   * @param buffer_size RandomAccessFile buffer size, if <= 0, use default size
+   * @param cancelTask  user can cancel, ok to be null.
+   * @param spiObject   passed to the factory if object needs to be recreated
+   * @return FileCacheable corresponding to location.
+   * @throws IOException on error
+   */
+  @Override
+  public FileCacheable acquire(FileFactory factory, Object hashKey, DatasetUrl location,
+                               int buffer_size, CancelTask cancelTask, Object spiObject) throws IOException {
+
+    if (null == hashKey) hashKey = location.trueurl;
+    if (null == hashKey) throw new IllegalArgumentException();
+
+    Tracker t = null;
+    ConcurrentHashMap<Object, Tracker> track = this.track;
+    if (track != null) {
+      t = new Tracker(hashKey);
+      Tracker prev = track.putIfAbsent(hashKey, t);
+      if (prev != null) t = prev;
+    }
+
+    FileCacheable ncfile = acquireCacheOnly(hashKey);
+    if (ncfile != null) {
+      hits.incrementAndGet();
+      if (t != null) t.hit.incrementAndGet();
+      return ncfile;
+    }
+    miss.incrementAndGet();
+    if (t != null) t.miss.incrementAndGet();
+
+    // open the file
+    ncfile = factory.open(location, buffer_size, cancelTask, spiObject);
+    if (cacheLog.isDebugEnabled())
+      cacheLog.debug("FileCacheConcurrent " + name + " acquire " + hashKey + " " + ncfile.getLocation());
+
+    // user may have canceled
+    if ((cancelTask != null) && (cancelTask.isCancel())) {
+      if (ncfile != null) ncfile.close();
+      return null;
+    }
+
+    if (disabled.get()) return ncfile;
+
+    // add to files before publishing in cache, so that whoever evicts it can always remove it
+    CacheFile file = new CacheFile(hashKey, ncfile);
+    files.put(ncfile, file);
+    int n = count.incrementAndGet();
+    clock.offer(file);
+    cache.compute(hashKey, (key, elem) -> {
+      if (elem == null) elem = new CacheElement(key);
+      elem.members.add(file);
+      return elem;
+    });
+    if (file.state.get() == EVICTED) { // clearCache(true) got it before it was published
+      unlink(file);
+      clock.remove(file);
+    }
+    if (debugPrint) System.out.printf("  FileCacheConcurrent %s add to cache %s%n", name, hashKey);
+
+    // do we need an eviction ?
+    if (hardLimit > 0 && n > hardLimit) {
+      int excess = n - hardLimit;
+      evict(hardLimit, EVICT_BUDGET * excess + 16); // bounded work in this thread
+
+    } else if (softLimit > 0 && n > softLimit && hasScheduled.compareAndSet(false, true)) {
+      try {
+        getExecutor().execute(() -> {
+          hasScheduled.set(false);
+          if (!disabled.get()) evictAll(softLimit);
+        });
+      } catch (RejectedExecutionException e) {
+        hasScheduled.set(false); // shut down
+      }
+    }
+
+    return ncfile;
+  }
+
+  // find an unlocked file in the cache, lock it and return it, or null if none
+  private FileCacheable acquireCacheOnly(Object hashKey) {
+    if (disabled.get()) return null;
+
+    CacheElement elem = cache.get(hashKey);
+    if (elem == null) return null;
+
+    CacheFile want = null;
+    for (CacheFile file : elem.members) {
+      if (file.state.compareAndSet(IDLE, LOCKED)) {
+        want = file;
+        break;
+      }
+    }
+    if (want == null) return null; // no unlocked file in cache
+
+    FileCacheable ncfile = want.ncfile;
+    // check if modified, remove if so
+    if (ncfile.getLastModified() != want.lastModified) {
+      if (cacheLog.isDebugEnabled())
+        cacheLog.debug("FileCacheConcurrent " + name + ": acquire from cache " + hashKey + " " + ncfile.getLocation() + " was changed; discard");
+      if (want.state.getAndSet(EVICTED) != EVICTED) discard(want);
+      return null;
+    }
+
+    try {
+      ncfile.reacquire(); // rehydrate
+    } catch (IOException ioe) {
+      if (cacheLog.isDebugEnabled())
+        cacheLog.debug("FileCacheConcurrent " + name + " acquire from cache " + hashKey + " " + ncfile.getLocation() +
+                " failed: " + ioe.getMessage());
+      if (want.state.getAndSet(EVICTED) != EVICTED) discard(want);
+      return null;
+    }
+
+    want.referenced = true;
+    return ncfile;
+  }
+
+  /**
+   * Release the file. This unlocks it, updates its lastAccessed date.
+   * FileCacheable.close() calls this instead of actually closing.
+   *
+   * @param ncfile release this file.
+   * @return true if file was in cache, false if it was not
+   */
+  @Override
+  public boolean release(FileCacheable ncfile) throws IOException {
+    if (ncfile == null) return false;
+
+    if (disabled.get()) {
+      ncfile.setFileCache(null); // prevent infinite loops
+      ncfile.close();
+      return false;
+    }
+
+    CacheFile file = files.get(ncfile);
+    if (file == null) return false;
+
+    if (file.state.get() != LOCKED)
+      cacheLog.warn("FileCacheConcurrent " + name + " release " + ncfile.getLocation() + " not locked; hash= " + ncfile.hashCode());
+    file.lastAccessed = System.currentTimeMillis();
+    file.countAccessed.incrementAndGet();
+    ncfile.release();
+
+    file.state.compareAndSet(LOCKED, IDLE); // unless its been evicted
+    if (debugPrint) System.out.printf("  FileCacheConcurrent %s release %s%n", name, ncfile.getLocation());
+    return true;
+  }
+
+  // background thread: one pass over the clock, every file is examined at most twice
+  private void evictAll(int target) {
+    evict(target, 2 * count.get() + 16);
+  }
+
+  /**
+   * Evict unlocked files until at most target remain, or budget queue entries have been examined.
+   * Returns immediately if another thread is already evicting.
+   */
+  void evict(int target, int budget) {
+    if (!evicting.compareAndSet(false, true)) return;
+    int removed = 0;
+    try {
+      while (count.get() > target && budget-- > 0) {
+        CacheFile file = clock.poll();
+        if (file == null) break;
+        int state = file.state.get();
+        if (state == EVICTED) continue;                        // already gone, drop from the clock
+        if (state == LOCKED || file.referenced) {              // in use, or used since last time: second chance
+          file.referenced = false;
+          clock.offer(file);
+          continue;
+        }
+        if (file.state.compareAndSet(IDLE, EVICTED)) {
+          remove(file);
+          removed++;
+        } else {
+          clock.offer(file);  // just got acquired
+        }
+      }
+    } finally {
+      evicting.set(false);
+    }
+
+    if (removed > 0) {
+      evictions.addAndGet(removed);
+      if (cacheLog.isDebugEnabled())
+        cacheLog.debug("FileCacheConcurrent {} evicted {} files, now has {}", name, removed, count.get());
+    }
+  }
+
+  // remove a file that is still in the clock; the clock only drops evicted files by itself when over the limits
+  private void discard(CacheFile file) {
+    clock.remove(file);
+    remove(file);
+  }
+
+  /*
+   * Remove the file from the cache and really close it. Only the thread that changed the file's state to EVICTED
+   * calls this, so it happens exactly once for each file. Does not take it out of the clock, see discard().
+   */
+  private void remove(CacheFile file) {
+    files.remove(file.ncfile);
+    count.decrementAndGet();
+    unlink(file);
+
+    try {
+      file.ncfile.setFileCache(null); // unhook the caching
+      file.ncfile.close();
+    } catch (IOException e) {
+      log.error("FileCacheConcurrent " + name + " close failed on " + file.ncfile.getLocation(), e);
+    }
+    if (debugPrint) System.out.printf("  FileCacheConcurrent %s remove %s%n", name, file.ncfile.getLocation());
+  }
+
+  // remove the file from its CacheElement, and the CacheElement if that was the last file
+  private void unlink(CacheFile file) {
+    cache.computeIfPresent(file.hashKey, (key, elem) -> {
+      elem.members.remove(file);
+      return elem.members.isEmpty() ? null : elem;
+    });
+  }
+
+  /**
+   * Remove all instances of object from the cache, and close them, even if locked.
+   *
+   * @param hashKey the object
+   */
+  @Override
+  public void eject(Object hashKey) {
+    if (disabled.get()) return;
+
+    CacheElement elem = cache.remove(hashKey);
+    if (elem == null) return;
+    for (CacheFile file : elem.members) {
+      if (file.state.getAndSet(EVICTED) != EVICTED) discard(file);
+    }
+  }
+
+  /**
+   * Remove all cache entries.
+   *
+   * @param force if true, remove them even if they are currently locked.
+   */
+  @Override
+  public void clearCache(boolean force) {
+    int removed = 0;
+    for (CacheFile file : files.values()) {
+      if (force) {
+        int state = file.state.getAndSet(EVICTED);
+        if (state == EVICTED) continue; // someone else is removing it
+        if (state == LOCKED)
+          cacheLog.warn("FileCacheConcurrent " + name + " force close locked file= " + file);
+      } else if (!file.state.compareAndSet(IDLE, EVICTED)) {
+        continue;
+      }
+      remove(file);
+      removed++;
+    }
+    if (removed > 0)
+      clock.removeIf(file -> file.state.get() == EVICTED); // one pass, not one per file
+    if (cacheLog.isDebugEnabled())
+      cacheLog.debug("*FileCacheConcurrent " + name + " clearCache force= " + force + " deleted= " + removed + " left=" + files.size());
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////
+  // debugging
+
+  // number of entries in the clock, including evicted files not yet dropped; for testing
+  int getClockSize() {
+    return clock.size();
+  }
+
+  private List<CacheFile> getSortedFiles() {
+    List<CacheFile> allFiles = new ArrayList<>(files.values());
+    allFiles.sort((f1, f2) -> Long.compare(f1.lastAccessed, f2.lastAccessed)); // oldest on top
+    return allFiles;
+  }
+
+  @Override
+  public void showCache(Formatter format) {
+    format.format("%nFileCacheConcurrent %s (min=%d softLimit=%d hardLimit=%d scour=%d secs):%n", name, minElements, softLimit, hardLimit, period / 1000);
+    format.format(" isLocked  accesses lastAccess                   location %n");
+    for (CacheFile file : getSortedFiles()) {
+      format.format("%8s %9d %s == %s %n", file.state.get() == LOCKED, file.countAccessed.get(),
+              CalendarDateFormatter.toDateTimeStringISO(file.lastAccessed), file.ncfile.getLocation());
+    }
+    showStats(format);
+  }
+
+  @Override
+  public List<String> showCache() {
+    List<CacheFile> allFiles = getSortedFiles();
+    List<String> result = new ArrayList<>(allFiles.size());
+    for (CacheFile file : allFiles)
+      result.add(file.toString());
+    return result;
+  }
+
+  @Override
+  public void showStats(Formatter format) {
+    format.format("  hits= %d miss= %d nfiles= %d elems= %d evictions= %d%n", hits.get(), miss.get(), count.get(),
+            cache.size(), evictions.get());
+  }
+
+  @Override
+  public void showTracking(Formatter format) {
+    ConcurrentHashMap<Object, Tracker> track = this.track;
+    if (track == null) return;
+    List<Tracker> all = new ArrayList<>(track.values());
+    Collections.sort(all);
+    int seq = 0;
+    int countAll = 0;
+    int countHits = 0;
+    int countMiss = 0;
+    format.format("%nTracking All files in cache %s%n", name);
+    format.format("    #    accum       hit    miss  file%n");
+    for (Tracker t : all) {
+      seq++;
+      countAll += t.hit.get() + t.miss.get();
+      countHits += t.hit.get();
+      countMiss += t.miss.get();
+      format.format("%6d  %7d : %6d %6d %s%n", seq, countAll, t.hit.get(), t.miss.get(), t.key);
+    }
+    float r = (countAll == 0) ? 0 : ((float) countHits) / countAll;
+    format.format("  total=%7d : %6d %6d hit ratio=%f%n", countAll, countHits, countMiss, r);
+  }
+
+  @Override
+  public void resetTracking() {
+    track = new ConcurrentHashMap<>(5000);
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////
+
+  // all the open copies of one hashKey
+  private static class CacheElement {
+    final Object hashKey;
+    final Set<CacheFile> members = ConcurrentHashMap.newKeySet(); // all copies in the cache
+
+    CacheElement(Object hashKey) {
+      this.hashKey = hashKey;
+    }
+
+    public String toString() {
+      return hashKey + " count=" + members.size();
+    }
+  }
+
+  private class CacheFile {
+    final Object hashKey;
+    final FileCacheable ncfile;
+    final long lastModified;
+    final AtomicInteger state = new AtomicInteger(LOCKED);  // locked by the thread that opened it
+    final AtomicInteger countAccessed = new AtomicInteger();
+    volatile long lastAccessed;
+    volatile boolean referenced = true; // CLOCK reference bit
+
+    CacheFile(Object hashKey, FileCacheable ncfile) {
+      this.hashKey = hashKey;
+      this.ncfile = ncfile;
+      this.lastModified = ncfile.getLastModified();
+      this.lastAccessed = System.currentTimeMillis();
+      ncfile.setFileCache(FileCacheConcurrent.this);
+    }
+
+    public String toString() {
+      return (state.get() == LOCKED) + " " + countAccessed + " " + CalendarDateFormatter.toDateTimeStringISO(lastAccessed) + "   " + ncfile.getLocation();
+    }
+  }
+
+  private static class Tracker implements Comparable<Tracker> {
+    final Object key;
+    final AtomicInteger hit = new AtomicInteger();
+    final AtomicInteger miss = new AtomicInteger();
+
+    private Tracker(Object key) {
+      this.key = key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Tracker tracker = (Tracker) o;
+      return key.equals(tracker.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode();
+    }
+
+    @Override
+    public int compareTo(Tracker o) {
+      return Misc.compare(hit.get() + miss.get(), o.hit.get() + o.miss.get());
+    }
+  }
+}
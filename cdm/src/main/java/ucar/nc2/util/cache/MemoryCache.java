@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.util.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.ToIntFunction;
+
+/**
+ * A size-bounded, LRU evicted memory cache of decoded data, eg decompressed chunks or unpacked grids.
+ * Unlike the FileCacheIF implementations, the values are not opened or locked, they are just
+ * weighed (in bytes) and dropped when the total weight goes over the limit.
+ * Uses a guava cache underneath; all methods are thread safe.
+ *
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class MemoryCache<K, V> {
+  private final String name;
+  private final long maxBytes;
+  private final Cache<K, V> cache;
+
+  /**
+   * Constructor.
+   *
+   * @param name     of the cache, for showCache()
+   * @param maxBytes maximum total weight of all values
+   * @param weigher  size in bytes of a value
+   */
+  public MemoryCache(String name, long maxBytes, ToIntFunction<V> weigher) {
+    this.name = name;
+    this.maxBytes = maxBytes;
+    this.cache = CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((K key, V value) -> weigher.applyAsInt(value))
+            .recordStats()
+            .build();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Get the value from the cache, or null if not there.
+   * @param key the key
+   * @return cached value or null
+   */
+  public V getIfPresent(K key) {
+    return cache.getIfPresent(key);
+  }
+
+  /**
+   * Get the value from the cache, or decode it and add it to the cache.
+   * Concurrent requests for the same key wait for a single decode.
+   *
+   * @param key    the key
+   * @param loader decode the value if its not in the cache
+   * @return the value, never null
+   * @throws IOException if the loader fails
+   */
+  public V get(K key, Callable<? extends V> loader) throws IOException {
+    try {
+      return cache.get(key, loader);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      throw new IOException(cause);
+    } catch (com.google.common.util.concurrent.UncheckedExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw e;
+    } catch (com.google.common.util.concurrent.ExecutionError e) {
+      throw (Error) e.getCause();
+    }
+  }
+
+  public void put(K key, V value) {
+    cache.put(key, value);
+  }
+
+  public void invalidate(K key) {
+    cache.invalidate(key);
+  }
+
+  public void clearCache() {
+    cache.invalidateAll();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  public long getHits() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMisses() {
+    return cache.stats().missCount();
+  }
+
+  public long getEvictions() {
+    return cache.stats().evictionCount();
+  }
+
+  // debugging
+  public void showCache(Formatter f) {
+    f.format("%nMemoryCache %s (maxBytes=%d):%n", name, maxBytes);
+    for (Map.Entry<K, V> entry : cache.asMap().entrySet())
+      f.format(" %s%n", entry.getKey());
+    showStats(f);
+  }
+
+  public List<String> showCache() {
+    List<String> result = new ArrayList<>((int) cache.size());
+    for (K key : cache.asMap().keySet())
+      result.add(key.toString());
+    return result;
+  }
+
+  public void showStats(Formatter f) {
+    CacheStats stats = cache.stats();
+    f.format("  hits= %d miss= %d evictions= %d elems= %d%n", stats.hitCount(), stats.missCount(), stats.evictionCount(),
+            cache.size());
+  }
+}
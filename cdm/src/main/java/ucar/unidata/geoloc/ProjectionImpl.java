@@ -7,7 +7,11 @@ package ucar.unidata.geoloc;
 import ucar.unidata.geoloc.projection.LatLonProjection;
 import ucar.unidata.util.*;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Superclass for our implementations of geoloc.Projection.
@@ -58,6 +62,24 @@ public abstract class ProjectionImpl implements Projection, java.io.Serializable
    */
   public static final int INDEX_Y = 1;
 
+  // projToLatLonGrid does smaller grids in the calling thread
+  static private final int minPointsPerTask = 100 * 1000;
+  static private ExecutorService gridPool; // lazy, shared by all projections
+
+  // bounded, when the queue is full the caller does the task itself
+  static private synchronized ExecutorService getGridPool() {
+    if (gridPool == null) {
+      int nthreads = Runtime.getRuntime().availableProcessors();
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(nthreads, nthreads, 60L, TimeUnit.SECONDS,
+              new ArrayBlockingQueue<>(4 * nthreads),
+              new ThreadFactoryBuilder().setNameFormat("ProjectionImpl-grid-%d").setDaemon(true).build(),
+              new ThreadPoolExecutor.CallerRunsPolicy());
+      pool.allowCoreThreadTimeOut(true);
+      gridPool = pool;
+    }
+    return gridPool;
+  }
+
   /**
    * tolerence for checks
    */
@@ -394,10 +416,14 @@ public abstract class ProjectionImpl implements Projection, java.io.Serializable
               + "from array not same length as to array");
     }
 
+    ProjectionPointImpl ppi = new ProjectionPointImpl();
+    LatLonPointImpl llpi = new LatLonPointImpl();
+
     for (int i = 0; i < from[0].length; i++) {
-      LatLonPoint endL = projToLatLon(from[0][i], from[1][i]);
-      to[0][i] = endL.getLatitude();
-      to[1][i] = endL.getLongitude();
+      ppi.setLocation(from[0][i], from[1][i]);
+      projToLatLon(ppi, llpi);
+      to[0][i] = llpi.getLatitude();
+      to[1][i] = llpi.getLongitude();
     }
 
     return to;
@@ -633,6 +659,101 @@ public abstract class ProjectionImpl implements Projection, java.io.Serializable
     return to;
   }
 
+  /**
+   * Convert the points of a regular grid of projection coordinates to lat/lon coordinates.
+   * The grid is the product of an x axis and a y axis; the result is in row major order, so
+   * (lat[j * nx + i], lon[j * nx + i]) is the (lat, lon) coordinate of (x[i], y[j]).
+   * Latitudes are clipped to +/-90 and longitudes normalized to +/-180, as in LatLonPointImpl.
+   * <p>
+   * Each row goes through projToLatLon(double[][], double[][]), so there is no allocation per point.
+   * Large grids are split by rows, each block with its own copy of the projection, and run on a shared
+   * pool of daemon threads, one per processor.
+   *
+   * @param x   x coordinates, length nx
+   * @param y   y coordinates, length ny
+   * @param lat resulting latitudes, length nx * ny
+   * @param lon resulting longitudes, length nx * ny
+   */
+  public void projToLatLonGrid(double[] x, double[] y, double[] lat, double[] lon) {
+    projToLatLonGrid(x, y, lat, lon, null);
+  }
+
+  /**
+   * Same as projToLatLonGrid(x, y, lat, lon), but the blocks of rows of a large grid run on the given executor.
+   * The calling thread does the first block, and any block the executor rejects. Pass Runnable::run to do
+   * the whole grid in the calling thread.
+   *
+   * @param x        x coordinates, length nx
+   * @param y        y coordinates, length ny
+   * @param lat      resulting latitudes, length nx * ny
+   * @param lon      resulting longitudes, length nx * ny
+   * @param executor runs the other blocks of rows, or null for the shared pool
+   */
+  public void projToLatLonGrid(double[] x, double[] y, double[] lat, double[] lon, Executor executor) {
+    int nx = x.length;
+    int ny = y.length;
+    if (lat.length != nx * ny || lon.length != nx * ny) {
+      throw new IllegalArgumentException("ProjectionImpl.projToLatLonGrid:"
+              + "lat and lon arrays must have length nx * ny");
+    }
+
+    int ntasks = (int) Math.min(Math.min(ny, Runtime.getRuntime().availableProcessors()),
+            (long) nx * ny / minPointsPerTask);
+    if (ntasks <= 1) {
+      projToLatLonRows(x, y, 0, ny, lat, lon);
+      return;
+    }
+    if (executor == null)
+      executor = getGridPool();
+
+    // projections are not required to be thread safe, so the other tasks use a copy
+    List<FutureTask<Void>> tasks = new ArrayList<>();
+    for (int task = 1; task < ntasks; task++) {
+      int start = (int) ((long) ny * task / ntasks);
+      int end = (int) ((long) ny * (task + 1) / ntasks);
+      ProjectionImpl proj = constructCopy();
+      FutureTask<Void> future = new FutureTask<>(() -> proj.projToLatLonRows(x, y, start, end, lat, lon), null);
+      tasks.add(future);
+      try {
+        executor.execute(future);
+      } catch (RejectedExecutionException e) {
+        future.run();
+      }
+    }
+
+    projToLatLonRows(x, y, 0, (int) ((long) ny / ntasks), lat, lon);
+
+    // the results must be complete when we return, so dont stop waiting if interrupted
+    for (FutureTask<Void> future : tasks) {
+      try {
+        Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        throw new IllegalStateException(cause);
+      }
+    }
+  }
+
+  // rows start to end-1 of projToLatLonGrid
+  private void projToLatLonRows(double[] x, double[] y, int start, int end, double[] lat, double[] lon) {
+    int nx = x.length;
+    double[] yrow = new double[nx];
+    double[][] from = new double[][] {x, yrow};
+    double[][] to = new double[2][nx];
+
+    for (int j = start; j < end; j++) {
+      Arrays.fill(yrow, y[j]);
+      projToLatLon(from, to);
+      int offset = j * nx;
+      for (int i = 0; i < nx; i++) {
+        lat[offset + i] = LatLonPointImpl.latNormal(to[INDEX_LAT][i]);
+        lon[offset + i] = LatLonPointImpl.lonNormal(to[INDEX_LON][i]);
+      }
+    }
+  }
+
   // bounding box utilities
 
   /**
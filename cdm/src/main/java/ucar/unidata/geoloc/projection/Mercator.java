@@ -324,5 +324,39 @@ public class Mercator extends ProjectionImpl {
     return result;
   }
 
+  /**
+   * Convert projection coordinates to lat/lon coordinates, without allocating an object per point.
+   *
+   * @param from array of projection coordinates: from[2][n], where
+   *             (from[0][i], from[1][i]) is the (x, y) coordinate
+   *             of the ith point
+   * @param to   resulting array of lat/lon coordinates: to[2][n] where
+   *             (to[0][i], to[1][i]) is the (lat, lon) coordinate of
+   *             the ith point
+   * @return the "to" array
+   */
+  @Override
+  public double[][] projToLatLon(double[][] from, double[][] to) {
+    int cnt = from[0].length;
+    double[] fromXA = from[INDEX_X];
+    double[] fromYA = from[INDEX_Y];
+    double[] toLatA = to[INDEX_LAT];
+    double[] toLonA = to[INDEX_LON];
+
+    for (int i = 0; i < cnt; i++) {
+      double fromX = fromXA[i] - falseEasting;
+      double fromY = fromYA[i] - falseNorthing;
+
+      double toLon = Math.toDegrees(fromX / A) + lon0;
+
+      double e = Math.exp(-fromY / A);
+      double toLat = Math.toDegrees(Math.PI / 2 - 2 * Math.atan(e)); // Snyder p 44
+
+      toLatA[i] = LatLonPointImpl.latNormal(toLat);
+      toLonA[i] = LatLonPointImpl.lonNormal(toLon);
+    }
+    return to;
+  }
+
 }
 
@@ -204,6 +204,52 @@ public class RotatedPole extends ProjectionImpl {
     return destPoint;
   }
 
+  /**
+   * Convert projection coordinates to lat/lon coordinates.
+   * Same as projToLatLon(ProjectionPoint, LatLonPointImpl), without allocating the vectors for each point.
+   *
+   * @param from array of projection coordinates: from[2][n], where
+   *             (from[0][i], from[1][i]) is the (x, y) coordinate
+   *             of the ith point
+   * @param to   resulting array of lat/lon coordinates: to[2][n] where
+   *             (to[0][i], to[1][i]) is the (lat, lon) coordinate of
+   *             the ith point
+   * @return the "to" array
+   */
+  @Override
+  public double[][] projToLatLon(double[][] from, double[][] to) {
+    int cnt = from[0].length;
+    double[] fromXA = from[INDEX_X];
+    double[] fromYA = from[INDEX_Y];
+    double[] toLatA = to[INDEX_LAT];
+    double[] toLonA = to[INDEX_LON];
+
+    for (int i = 0; i < cnt; i++) {
+      final double lonR = LatLonPointImpl.range180(fromXA[i]);
+      final double latR = fromYA[i];
+
+      //	Lon-lat pair to xyz coordinates on sphere with radius 1
+      double coslat = Math.cos(latR * RAD_PER_DEG);
+      double p00 = coslat * Math.cos(lonR * RAD_PER_DEG);
+      double p01 = coslat * Math.sin(lonR * RAD_PER_DEG);
+      double p02 = Math.sin(latR * RAD_PER_DEG);
+
+      //	Inverse rotate around Y-axis (using transpose of Y matrix)
+      double p10 = rotY[0][0] * p00 + rotY[1][0] * p01 + rotY[2][0] * p02;
+      double p11 = rotY[0][1] * p00 + rotY[1][1] * p01 + rotY[2][1] * p02;
+      double p12 = rotY[0][2] * p00 + rotY[1][2] * p01 + rotY[2][2] * p02;
+
+      //	Inverse rotate around Z-axis (using transpose of Z matrix)
+      double p20 = rotZ[0][0] * p10 + rotZ[1][0] * p11 + rotZ[2][0] * p12;
+      double p21 = rotZ[0][1] * p10 + rotZ[1][1] * p11 + rotZ[2][1] * p12;
+      double p22 = rotZ[0][2] * p10 + rotZ[1][2] * p11 + rotZ[2][2] * p12;
+
+      toLatA[i] = LatLonPointImpl.latNormal(Math.asin(p22) * DEG_PER_RAD);
+      toLonA[i] = LatLonPointImpl.lonNormal(Math.atan2(p21, p20) * DEG_PER_RAD);
+    }
+    return to;
+  }
+
   public boolean crossSeam(ProjectionPoint pt1, ProjectionPoint pt2) {
      return Math.abs(pt1.getX() - pt2.getX()) > 270.0;
   }
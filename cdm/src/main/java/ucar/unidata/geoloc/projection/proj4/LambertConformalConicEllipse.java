@@ -582,6 +582,55 @@ public class LambertConformalConicEllipse extends ProjectionImpl {
     return result;
   }
 
+  /**
+   * Convert projection coordinates to lat/lon coordinates, without allocating an object per point.
+   *
+   * @param from array of projection coordinates: from[2][n], where
+   *             (from[0][i], from[1][i]) is the (x, y) coordinate
+   *             of the ith point
+   * @param to   resulting array of lat/lon coordinates: to[2][n] where
+   *             (to[0][i], to[1][i]) is the (lat, lon) coordinate of
+   *             the ith point
+   * @return the "to" array
+   */
+  @Override
+  public double[][] projToLatLon(double[][] from, double[][] to) {
+    int cnt = from[0].length;
+    double[] fromXA = from[INDEX_X];
+    double[] fromYA = from[INDEX_Y];
+    double[] toLatA = to[INDEX_LAT];
+    double[] toLonA = to[INDEX_LON];
+
+    for (int i = 0; i < cnt; i++) {
+      double toLat, toLon;
+      double fromX = (fromXA[i] - falseEasting) / totalScale;  // assumes cartesion coords in km
+      double fromY = rho0 - (fromYA[i] - falseNorthing) / totalScale;
+
+      double rho = MapMath.distance(fromX, fromY);
+      if (rho != 0) {
+        if (n < 0.0) {
+          rho = -rho;
+          fromX = -fromX;
+          fromY = -fromY;
+        }
+        if (isSpherical)
+          toLat = 2.0 * Math.atan(Math.pow(c / rho, 1.0 / n)) - MapMath.HALFPI;
+        else
+          toLat = MapMath.phi2(Math.pow(rho / c, 1.0 / n), e);
+
+        toLon = Math.atan2(fromX, fromY) / n;
+
+      } else {
+        toLon = 0.0;
+        toLat = n > 0.0 ? MapMath.HALFPI : -MapMath.HALFPI;
+      }
+
+      toLatA[i] = LatLonPointImpl.latNormal(Math.toDegrees(toLat));
+      toLonA[i] = LatLonPointImpl.lonNormal(Math.toDegrees(toLon) + lon0deg);
+    }
+    return to;
+  }
+
  ////////////////////////////////////////////////////////
   // test
 
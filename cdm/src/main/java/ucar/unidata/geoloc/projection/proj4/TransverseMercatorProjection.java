@@ -290,6 +290,46 @@ public class TransverseMercatorProjection extends ProjectionImpl {
     return result;
   }
 
+  /**
+   * Convert projection coordinates to lat/lon coordinates.
+   * Same as projToLatLon(ProjectionPoint, LatLonPointImpl), using one ProjectionPointImpl for all the points.
+   *
+   * @param from array of projection coordinates: from[2][n], where
+   *             (from[0][i], from[1][i]) is the (x, y) coordinate
+   *             of the ith point
+   * @param to   resulting array of lat/lon coordinates: to[2][n] where
+   *             (to[0][i], to[1][i]) is the (lat, lon) coordinate of
+   *             the ith point
+   * @return the "to" array
+   */
+  @Override
+  public double[][] projToLatLon(double[][] from, double[][] to) {
+    int cnt = from[0].length;
+    double[] fromXA = from[INDEX_X];
+    double[] fromYA = from[INDEX_Y];
+    double[] toLatA = to[INDEX_LAT];
+    double[] toLonA = to[INDEX_LON];
+    ProjectionPointImpl dst = new ProjectionPointImpl();
+
+    for (int i = 0; i < cnt; i++) {
+      double fromX = (fromXA[i] - falseEasting) / totalScale; // assumes cartesian coords in km
+      double fromY = (fromYA[i] - falseNorthing) / totalScale;
+
+      projectInverse(fromX, fromY, dst);
+      double lon = dst.getX();
+      if (lon < -Math.PI)
+        lon = -Math.PI;
+      else if (lon > Math.PI)
+        lon = Math.PI;
+      if (projectionLongitude != 0)
+        lon = MapMath.normalizeLongitude(lon) + projectionLongitude;
+
+      toLatA[i] = LatLonPointImpl.latNormal(Math.toDegrees(dst.getY()));
+      toLonA[i] = LatLonPointImpl.lonNormal(Math.toDegrees(lon));
+    }
+    return to;
+  }
+
   @Override
   public boolean crossSeam(ProjectionPoint pt1, ProjectionPoint pt2) {
     // TODO: check, taken from ucar.unidata.geoloc.projection.TransverseMercator
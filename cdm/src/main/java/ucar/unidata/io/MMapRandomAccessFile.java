@@ -5,93 +5,137 @@
 package ucar.unidata.io;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.MappedByteBuffer;
 
 /**
- * Use NIO MappedByteBuffer to implement a RandomAccessFile.
- * Limited to 2G size. Not currently used - NOT UP TO DATE DO NOT USE
+ * A read-only RandomAccessFile that uses memory mapped NIO buffers.
+ * The file is mapped in segments of at most 1 GB, so there is no limit on the file size.
+ * <p>
+ * The usual seek/read methods are buffered and use the file pointer, so like RandomAccessFile must be
+ * confined to one thread at a time. The positional readFully(pos, ...) methods do not use the file pointer,
+ * and may be called from many threads at once on a single open file.
+ * <p>
+ * Obtain one through RandomAccessFile.acquire(location, buffer_size, true) to use the global file cache.
+ *
  * @author john
  */
 public class MMapRandomAccessFile extends RandomAccessFile {
+  static private final long defaultSegmentSize = 1L << 30;
 
-  private MappedByteBuffer source;
+  private final long segmentSize;
+  private final long fileLength;
+  private volatile MappedByteBuffer[] segments; // set to null when closed
 
   /**
-    * Constructor for in-memory "files"
-    * @param location used as a name
-    * @param mode the open mode
-    * @throws java.io.IOException on error
-    */
+   * Constructor.
+   *
+   * @param location location of the file
+   * @param mode must be "r"
+   * @throws java.io.IOException on error
+   */
   public MMapRandomAccessFile(String location, String mode) throws IOException {
-    super(location, mode, 1);
-    FileChannel channel = file.getChannel();
-    source = channel.map( readonly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, (long) 0, channel.size());
-    //channel.close();
-
-    bufferStart = 0;
-	  dataSize = (int) channel.size();
-	  dataEnd = channel.size();
-    filePosition = 0;
-    buffer = null;
-    endOfFile = false;
+    this(location, mode, defaultBufferSize, defaultSegmentSize);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param location   location of the file
+   * @param bufferSize size of the buffer used by seek/read, if <= 0 use the default
+   * @throws java.io.IOException on error
+   */
+  public MMapRandomAccessFile(String location, int bufferSize) throws IOException {
+    this(location, "r", bufferSize, defaultSegmentSize);
   }
 
+  // segmentSize settable for testing
+  MMapRandomAccessFile(String location, String mode, int bufferSize, long segmentSize) throws IOException {
+    super(location, checkMode(mode), bufferSize);
+    this.segmentSize = segmentSize;
 
-  public void flush() throws IOException {
-    if (bufferModified) {
-      source.force();
-      bufferModified = false;
+    FileChannel channel = file.getChannel();
+    this.fileLength = channel.size();
+    int nsegs = (int) ((fileLength + segmentSize - 1) / segmentSize);
+    segments = new MappedByteBuffer[nsegs];
+    for (int i = 0; i < nsegs; i++) {
+      long start = i * segmentSize;
+      segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, fileLength - start));
     }
   }
 
-  public long length( ) {
-    return dataEnd;
+  static private String checkMode(String mode) {
+    if (!"r".equals(mode))
+      throw new IllegalArgumentException("MMapRandomAccessFile is read only, mode must be 'r'");
+    return mode;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    super.close();
+    if (file == null) segments = null; // really closed, not just released to the cache; the gc unmaps the buffers
   }
 
-  public void seek( long pos ) {
-    filePosition = pos;
-    if( filePosition < dataEnd )
-      source.position((int) filePosition);
-    else
-      endOfFile = true;
+  @Override
+  protected boolean usesPositionalChannel() {
+    return false; // positional reads copy from the mapped segments
   }
 
-   public void unread( ) {
-     seek( filePosition-1);
-   }
+  @Override
+  public long length() {
+    return fileLength;
+  }
+
+  /**
+   * Copy from the mapped segments, without changing the state of any buffer.
+   * All the buffered reads go through here.
+   */
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    if (pos >= fileLength) return -1;
+    len = (int) Math.min(len, fileLength - pos);
+    copy(pos, ByteBuffer.wrap(b, offset, len));
+    return len;
+  }
 
-  public int read() throws IOException {
-    // If the file position is within the data, return the byte...
-    if( filePosition < dataEnd ) {
-      filePosition++;
-      return source.get() & 0xff;
+  @Override
+  public void readFully(long pos, byte[] b, int off, int len) throws IOException {
+    readFully(pos, ByteBuffer.wrap(b, off, len));
+  }
+
+  @Override
+  public void readFully(long pos, ByteBuffer dst) throws IOException {
+    if (pos < 0 || pos + dst.remaining() > fileLength)
+      throw new EOFException("Reading " + location + " at " + pos + " nbytes = " + dst.remaining() + " file length = " + fileLength);
+    copy(pos, dst);
+  }
 
-    } else {
-       return -1;
+  // copy dst.remaining() bytes starting at pos into dst, crossing segments as needed
+  private void copy(long pos, ByteBuffer dst) throws IOException {
+    MappedByteBuffer[] segs = segments;
+    if (segs == null) throw new IOException("File is closed: " + location);
+
+    while (dst.hasRemaining()) {
+      int segno = (int) (pos / segmentSize);
+      int segPos = (int) (pos - segno * segmentSize);
+      ByteBuffer src = segs[segno].duplicate(); // independent position and limit, so thread safe
+      int n = Math.min(dst.remaining(), src.limit() - segPos);
+      src.position(segPos);
+      src.limit(segPos + n);
+      dst.put(src);
+      pos += n;
     }
   }
 
-   public int readBytes( byte dst[], int offset, int length ) throws IOException {
-     if( endOfFile ) return -1;
-
-     length = (int) Math.min( length, dataEnd - filePosition);
-     if (length > 0) {
-       source.get(dst, offset, length);
-       filePosition += length;
-     }
-     return length;
-   }
-
-  public void write( int b ) throws IOException {
-     source.put( (byte)b);
-     filePosition++;
-     bufferModified = true;
+  @Override
+  public void write(int b) throws IOException {
+    throw new IOException("MMapRandomAccessFile is read only");
   }
 
-  public void writeBytes( byte dst[], int offset, int length ) throws IOException {
-    source.put(dst, offset, length);
-    filePosition += length;
+  @Override
+  public void writeBytes(byte[] b, int off, int len) throws IOException {
+    throw new IOException("MMapRandomAccessFile is read only");
   }
 
-}
\ No newline at end of file
+}
@@ -16,8 +16,13 @@ import ucar.unidata.util.StringUtil2;
 
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -160,10 +165,13 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
   // internal File Caching. this allows a global pool of OS files.
   // note read only
 
+  static private final String MMAP = "mmap:"; // hashKey prefix and factory message for MMapRandomAccessFile
+
   static private final ucar.nc2.util.cache.FileFactory factory = new FileFactory() {
     public FileCacheable open(DatasetUrl durl, int buffer_size, CancelTask cancelTask, Object iospMessage) throws IOException {
       String location = StringUtil2.replace(durl.trueurl, "\\", "/"); // canonicalize the name
-      RandomAccessFile result = new RandomAccessFile(location, "r", buffer_size);
+      RandomAccessFile result = MMAP.equals(iospMessage) ? new MMapRandomAccessFile(location, buffer_size) :
+              new RandomAccessFile(location, "r", buffer_size);
       result.cacheState = 1;  // in use
       return result;
     }
@@ -199,8 +207,30 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
       return (RandomAccessFile) cache.acquire(factory, location, new DatasetUrl(null, location), buffer_size, null, null);
   }
 
+  /**
+   * Acquire a read-only file, optionally memory mapped. A memory mapped file is an MMapRandomAccessFile,
+   * whose positional readFully(pos, ...) methods may be used by many threads at once.
+   *
+   * @param location    location of the file
+   * @param buffer_size size of the buffer, if <= 0 use the default
+   * @param memoryMapped if true, return an MMapRandomAccessFile
+   * @return the opened file, call close() when done
+   * @throws IOException on open error
+   */
+  static public RandomAccessFile acquire(String location, int buffer_size, boolean memoryMapped) throws IOException {
+    if (!memoryMapped)
+      return acquire(location, buffer_size);
+    if (cache == null)
+      return new MMapRandomAccessFile(location, buffer_size);
+    else
+      return (RandomAccessFile) cache.acquire(factory, MMAP + location, new DatasetUrl(null, location), buffer_size, null, MMAP);
+  }
+
   static public void eject(String location) {
-    if (cache != null) cache.eject(location);
+    if (cache != null) {
+      cache.eject(location);
+      cache.eject(MMAP + location);
+    }
   }
 
   static public void shutdown() {
@@ -281,6 +311,17 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    */
   private boolean extendMode = false;
 
+  /**
+   * Positional reads use their own channel, not the channel of file: an interrupted channel read closes the
+   * channel, which would also close file, and this file may be shared through the FileCache.
+   * The channel is opened together with file, so both read the same file even if the path is replaced later.
+   * It is never reopened by path: once an interrupt has closed it, positional reads go through file, under its lock.
+   */
+  private final Object positionalLock = new Object();
+  private FileChannel positionalChannel; // read only files; null once closed, guarded by positionalLock
+  private boolean openedFile;            // else a subclass that does not use file
+  private volatile boolean closed;
+
   /**
    * Constructor, for subclasses
    *
@@ -336,6 +377,15 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
     }
 
     this.readonly = mode.equals("r");
+    this.openedFile = true;
+    if (readonly && usesPositionalChannel()) {
+      try {
+        positionalChannel = FileChannel.open(new File(location).toPath(), StandardOpenOption.READ);
+      } catch (IOException ioe) {
+        file.close();
+        throw ioe;
+      }
+    }
     init(bufferSize);
 
     if (debugLeaks) {
@@ -412,6 +462,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
       if (showOpen) System.out.println("  close " + location);
     }
 
+    closePositionalChannel();
     if (file == null)
       return;
 
@@ -720,6 +771,132 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
   }
 
 
+  /**
+   * Read exactly <code>len</code> bytes starting at file position <code>pos</code>.
+   * Does not use or change the file pointer or the buffer, so may be called from multiple threads at once,
+   * as long as no thread is writing to the file.
+   *
+   * @param pos start here in the file
+   * @param b   put data into this array
+   * @param off starting at this offset in the array
+   * @param len number of bytes to read
+   * @throws EOFException if the file ends before len bytes are read
+   * @throws IOException  on io error
+   */
+  public void readFully(long pos, byte[] b, int off, int len) throws IOException {
+    if (!openedFile) { // subclasses that do not use a file, eg remote or in memory
+      int n = 0;
+      while (n < len) {
+        int count = read_(pos + n, b, off + n, len - n);
+        if (count <= 0)
+          throw new EOFException("Reading " + location + " at " + (pos + n) + " file length = " + length());
+        n += count;
+      }
+      return;
+    }
+    readFully(pos, ByteBuffer.wrap(b, off, len));
+  }
+
+  /**
+   * Fill the remaining bytes of dst, starting at file position <code>pos</code>.
+   * Does not use or change the file pointer or the buffer, so may be called from multiple threads at once,
+   * as long as no thread is writing to the file.
+   * Interrupting a reading thread makes its read fail with a ClosedByInterruptException, but leaves the file open
+   * for other readers.
+   *
+   * @param pos start here in the file
+   * @param dst read dst.remaining() bytes into this buffer, at its position
+   * @throws EOFException if the file ends before dst is filled
+   * @throws IOException  on io error
+   */
+  public void readFully(long pos, ByteBuffer dst) throws IOException {
+    if (!openedFile) {
+      byte[] b = new byte[dst.remaining()];
+      readFully(pos, b, 0, b.length);
+      dst.put(b);
+      return;
+    }
+
+    FileChannel channel = getPositionalChannel(); // positional reads on a FileChannel are thread safe
+    int len = dst.remaining();
+    int startPosition = dst.position();
+    while (dst.hasRemaining()) {
+      long at = pos + (dst.position() - startPosition);
+      if (channel == null) { // not read only, or another reader was interrupted
+        readFullyLocked(at, dst);
+        break;
+      }
+      int n;
+      try {
+        n = channel.read(dst, at);
+      } catch (ClosedByInterruptException e) {
+        throw e; // this thread was interrupted, which closed only the positional channel
+      } catch (ClosedChannelException e) { // another reader was interrupted
+        channel = getPositionalChannel();
+        continue;
+      }
+      if (n < 0)
+        throw new EOFException("Reading " + location + " at " + at + " file length = " + channel.size());
+    }
+    if (debugAccess) {
+      if (showRead)
+        System.out.println(" **readFully " + location + " = " + len + " bytes at " + pos);
+      debug_nseeks.incrementAndGet();
+      debug_nbytes.addAndGet(len);
+    }
+  }
+
+  /**
+   * Whether readFully(pos, ...) reads through a channel of its own. Subclasses that override the positional reads
+   * return false, so the channel is not opened. Called from the constructor.
+   */
+  protected boolean usesPositionalChannel() {
+    return true;
+  }
+
+  // the positional channel, or null if there is none
+  private FileChannel getPositionalChannel() throws IOException {
+    synchronized (positionalLock) {
+      if (closed)
+        throw new IOException("File is closed: " + location);
+      if (positionalChannel != null && !positionalChannel.isOpen())
+        positionalChannel = null;
+      return positionalChannel;
+    }
+  }
+
+  // read through file, which java.io does not close on interrupt; the lock keeps read_() from moving its pointer
+  private void readFullyLocked(long pos, ByteBuffer dst) throws IOException {
+    java.io.RandomAccessFile f = file;
+    if (f == null)
+      throw new IOException("File is closed: " + location);
+    byte[] b = dst.hasArray() ? dst.array() : new byte[Math.min(dst.remaining(), 64 * 1024)];
+    synchronized (f) {
+      while (dst.hasRemaining()) {
+        int off = dst.hasArray() ? dst.arrayOffset() + dst.position() : 0;
+        int len = dst.hasArray() ? dst.remaining() : Math.min(dst.remaining(), b.length);
+        f.seek(pos);
+        int n = f.read(b, off, len);
+        if (n < 0)
+          throw new EOFException("Reading " + location + " at " + pos + " file length = " + f.length());
+        if (dst.hasArray())
+          dst.position(dst.position() + n);
+        else
+          dst.put(b, 0, n);
+        pos += n;
+      }
+    }
+  }
+
+  private void closePositionalChannel() throws IOException {
+    synchronized (positionalLock) {
+      closed = true;
+      if (positionalChannel != null)
+        positionalChannel.close();
+      positionalChannel = null;
+    }
+  }
+
   /**
    * Read directly from file, without going through the buffer.
    * All reading goes through here or readToByteChannel;
@@ -732,8 +909,11 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on io error
    */
   protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
-    file.seek(pos);
-    int n = file.read(b, offset, len);
+    int n;
+    synchronized (file) { // positional reads may use file too
+      file.seek(pos);
+      n = file.read(b, offset, len);
+    }
     if (debugAccess) {
       if (showRead)
         System.out.println(" **read_ " + location + " = " + len + " bytes at " + pos + "; block = " + (pos / buffer.length));
@@ -1106,8 +1286,17 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readShort(short[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readShort();
+    while (n > 0) {
+      ByteBuffer bb = nextElements(2, n);
+      if (bb == null) { // straddles the end of the buffer
+        pa[start++] = readShort();
+        n--;
+        continue;
+      }
+      int m = bb.remaining() / 2;
+      bb.asShortBuffer().get(pa, start, m);
+      start += m;
+      n -= m;
     }
   }
 
@@ -1259,8 +1448,17 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readInt(int[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readInt();
+    while (n > 0) {
+      ByteBuffer bb = nextElements(4, n);
+      if (bb == null) { // straddles the end of the buffer
+        pa[start++] = readInt();
+        n--;
+        continue;
+      }
+      int m = bb.remaining() / 4;
+      bb.asIntBuffer().get(pa, start, m);
+      start += m;
+      n -= m;
     }
   }
 
@@ -1325,8 +1523,17 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readLong(long[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readLong();
+    while (n > 0) {
+      ByteBuffer bb = nextElements(8, n);
+      if (bb == null) { // straddles the end of the buffer
+        pa[start++] = readLong();
+        n--;
+        continue;
+      }
+      int m = bb.remaining() / 8;
+      bb.asLongBuffer().get(pa, start, m);
+      start += m;
+      n -= m;
     }
   }
 
@@ -1362,8 +1569,17 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readFloat(float[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = Float.intBitsToFloat(readInt());
+    while (n > 0) {
+      ByteBuffer bb = nextElements(4, n);
+      if (bb == null) { // straddles the end of the buffer
+        pa[start++] = Float.intBitsToFloat(readInt());
+        n--;
+        continue;
+      }
+      int m = bb.remaining() / 4;
+      bb.asFloatBuffer().get(pa, start, m);
+      start += m;
+      n -= m;
     }
   }
 
@@ -1399,11 +1615,60 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readDouble(double[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = Double.longBitsToDouble(readLong());
+    while (n > 0) {
+      ByteBuffer bb = nextElements(8, n);
+      if (bb == null) { // straddles the end of the buffer
+        pa[start++] = Double.longBitsToDouble(readLong());
+        n--;
+        continue;
+      }
+      int m = bb.remaining() / 8;
+      bb.asDoubleBuffer().get(pa, start, m);
+      start += m;
+      n -= m;
     }
   }
 
+  // largest single read that bypasses the buffer in the array reads
+  static private final int maxDirectRead = 1024 * 1024;
+
+  /*
+   * The array reads decode through a ByteBuffer view in the current byte order, instead of assembling each value
+   * a byte at a time. Return a view of the next whole elements, up to n of them, and advance the file pointer past them.
+   * The elements come out of the buffer if they are in it; otherwise large reads bypass the buffer.
+   * Returns null if the next element straddles the end of the buffer.
+   */
+  private ByteBuffer nextElements(int elemSize, int n) throws IOException {
+    ByteBuffer bb;
+    if (filePosition < dataEnd) {
+      int m = (int) Math.min(n, (dataEnd - filePosition) / elemSize);
+      if (m == 0) return null;
+      bb = ByteBuffer.wrap(buffer, (int) (filePosition - bufferStart), m * elemSize);
+
+    } else if ((long) n * elemSize > buffer.length) {
+      int nbytes = Math.min(n, maxDirectRead / elemSize) * elemSize;
+      byte[] b = new byte[nbytes];
+      int done = 0;
+      while (done < nbytes) {
+        int count = read_(filePosition + done, b, done, nbytes - done);
+        if (count <= 0)
+          throw new EOFException("Reading " + location + " at " + (filePosition + done) + " file length = " + length());
+        done += count;
+      }
+      bb = ByteBuffer.wrap(b);
+
+    } else {
+      seek(filePosition);
+      if (endOfFile)
+        throw new EOFException("Reading " + location + " at " + filePosition + " file length = " + length());
+      return nextElements(elemSize, n);
+    }
+
+    bb.order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+    filePosition += bb.remaining();
+    return bb;
+  }
+
   /**
    * Reads the next line of text from this file.  This method successively
    * reads bytes from the file, starting at the current file pointer,
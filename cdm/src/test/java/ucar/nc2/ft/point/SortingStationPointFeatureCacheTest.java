@@ -12,7 +12,9 @@ import java.util.LinkedList;
 import java.util.List;
 import com.google.common.collect.Ordering;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ucar.ma2.DataType;
@@ -27,6 +29,9 @@ import ucar.nc2.time.CalendarDateUnit;
 public class SortingStationPointFeatureCacheTest {
     private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Test
     public void test1() throws Exception {
         StructureDataScalar stationData = new StructureDataScalar("StationFeature");  // leave it empty.
@@ -76,6 +81,48 @@ public class SortingStationPointFeatureCacheTest {
         return new SimpleStationPointFeature(dsg, stationFeat, obsTime, nomTime, timeUnit, featureData);
     }
     
+    @Test
+    public void testSpillToRunFiles() throws IOException {
+        CalendarDateUnit timeUnit = CalendarDateUnit.of(null, "days since 1970-01-01");
+        DsgFeatureCollection dummyDsg = new SimplePointFeatureCC("dummy", timeUnit, "m", FeatureType.STATION);
+
+        List<StationFeature> stationFeats = new ArrayList<>();
+        for (String name : new String[] { "EEE", "AAA", "DDD", "BBB", "CCC" }) {
+            stationFeats.add(new StationFeatureImpl(name, "desc", null, 30 + stationFeats.size(), 60, 5000, 0, null));
+        }
+
+        // Many features with the same station, so the sort must be stable to get the expected order.
+        List<StationPointFeature> spfList = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            StructureDataScalar featureData = new StructureDataScalar("StationPointFeature");
+            featureData.addMember("obsTime", "Observation time", timeUnit.getUdUnit(), DataType.DOUBLE, i);
+            featureData.addMember("tasmax", "Max temperature", "Celsius", DataType.DOUBLE, 100 - i);
+            featureData.addMemberString("remark", null, null, "obs" + i, 8);
+            spfList.add(new SimpleStationPointFeature(
+                    dummyDsg, stationFeats.get((i * 7) % 5), i, i, timeUnit, featureData));
+        }
+
+        SortingStationPointFeatureCache inMemCache = new SortingStationPointFeatureCache();
+        for (StationPointFeature stationPointFeat : spfList) {
+            inMemCache.add(stationPointFeat);
+        }
+
+        for (long maxMemoryBytes : new long[] { 1, 2000 }) {  // A run for each feature, and a few features per run.
+            File tempDir = tempFolder.newFolder();
+            try (SortingStationPointFeatureCache spillCache = new SortingStationPointFeatureCache(
+                    SortingStationPointFeatureCache.stationNameComparator, maxMemoryBytes, tempDir)) {
+                for (StationPointFeature stationPointFeat : spfList) {
+                    spillCache.add(stationPointFeat);
+                }
+                Assert.assertTrue(tempDir.list().length > 1);
+
+                Assert.assertTrue(PointTestUtil.equals(
+                        inMemCache.getPointFeatureIterator(), spillCache.getPointFeatureIterator()));
+            }
+            Assert.assertEquals(0, tempDir.list().length);
+        }
+    }
+
     @Test
     public void test2() throws IOException, NoFactoryFoundException, URISyntaxException {
         File testFile = new File(getClass().getResource("orthogonal.ncml").toURI());
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.ft.point;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.unidata.geoloc.LatLonPointImpl;
+import ucar.unidata.geoloc.LatLonRect;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test that the StationHelper index gives the same answers as looking at every station.
+ *
+ * @since 10/18/2026
+ */
+public class StationHelperTest {
+
+  @Test
+  public void testBoundingBox() throws IOException {
+    StationHelper helper = makeStations(5000, 17);
+    List<LatLonRect> boxes = new ArrayList<>();
+    boxes.add(new LatLonRect(new LatLonPointImpl(30, -110), new LatLonPointImpl(50, -80)));
+    boxes.add(new LatLonRect(new LatLonPointImpl(-40, 170), new LatLonPointImpl(10, -170))); // crosses the dateline
+    boxes.add(new LatLonRect(new LatLonPointImpl(-40, 150), 30, 60)); // crosses the dateline
+    boxes.add(new LatLonRect(new LatLonPointImpl(-90, -180), new LatLonPointImpl(90, 180))); // everything
+    boxes.add(new LatLonRect(new LatLonPointImpl(60, 0), 30, 360)); // all longitudes
+    boxes.add(new LatLonRect(new LatLonPointImpl(10, 20), 0, 0)); // a point
+    boxes.add(new LatLonRect(new LatLonPointImpl(-90, 179), 180, 1)); // up to the dateline
+
+    Random r = new Random(42);
+    for (int i = 0; i < 200; i++) {
+      double lat = r.nextDouble() * 180 - 90;
+      boxes.add(new LatLonRect(new LatLonPointImpl(lat, r.nextDouble() * 360 - 180),
+              r.nextDouble() * (90 - lat), r.nextDouble() * 200));
+    }
+
+    for (LatLonRect bb : boxes) {
+      List<StationFeature> expected = new ArrayList<>();
+      for (StationFeature s : helper.getStationFeatures()) {
+        if (bb.contains(new LatLonPointImpl(s.getLatitude(), s.getLongitude())))
+          expected.add(s);
+      }
+      Assert.assertEquals(bb.toString2(), expected, helper.getStationFeatures(bb));
+      Assert.assertEquals(bb.toString2(), expected, helper.getStations(bb));
+    }
+  }
+
+  @Test
+  public void testNearest() {
+    for (int nstations : new int[]{1, 3, 100, 5000}) {
+      StationHelper helper = makeStations(nstations, nstations);
+      Random r = new Random(nstations);
+      for (int i = 0; i < 200; i++) {
+        LatLonPointImpl pt = new LatLonPointImpl(r.nextDouble() * 180 - 90, r.nextDouble() * 360 - 180);
+        if (i == 0) pt.set(90, 0);
+        if (i == 1) pt.set(0, 180);
+        for (int n : new int[]{1, 5}) {
+          List<StationFeature> expected = nearest(helper.getStationFeatures(), pt, n);
+          Assert.assertEquals(pt + " n=" + n, expected, helper.getNearestStationFeatures(pt, n));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testChangeStations() throws IOException {
+    StationHelper helper = new StationHelper();
+    LatLonRect bb = new LatLonRect(new LatLonPointImpl(0, 0), 10, 10);
+    helper.addStation(new StationFeatureImpl("a", null, null, 5, 5, 0, 0, null));
+    Assert.assertEquals(1, helper.getStationFeatures(bb).size());
+
+    helper.addStation(new StationFeatureImpl("b", null, null, 6, 6, 0, 0, null));
+    Assert.assertEquals(2, helper.getStationFeatures(bb).size());
+    Assert.assertEquals("b", helper.getNearestStationFeatures(new LatLonPointImpl(7, 7), 1).get(0).getName());
+
+    helper.setStations(new ArrayList<>());
+    Assert.assertEquals(0, helper.getStationFeatures(bb).size());
+    Assert.assertEquals(0, helper.getNearestStationFeatures(new LatLonPointImpl(7, 7), 1).size());
+  }
+
+  // clustered, with some on the dateline and the poles, some with missing lat/lon, and some at the same place
+  private StationHelper makeStations(int n, long seed) {
+    Random r = new Random(seed);
+    StationHelper helper = new StationHelper();
+    for (int i = 0; i < n; i++) {
+      double lat, lon;
+      switch (i % 10) {
+        case 0: lat = 40 + r.nextGaussian(); lon = -100 + r.nextGaussian(); break;
+        case 1: lat = r.nextDouble() * 180 - 90; lon = (r.nextBoolean() ? 180 : -180); break;
+        case 2: lat = (r.nextBoolean() ? 90 : -90); lon = r.nextDouble() * 360 - 180; break;
+        case 3: lat = (i % 20 == 3) ? Double.NaN : 10; lon = (i % 30 == 3) ? Double.NaN : 20; break;
+        case 4: lat = 10; lon = 20; break;
+        case 5: lat = r.nextDouble() * 180 - 90; lon = r.nextDouble() * 720 - 360; break; // not normalized
+        default: lat = r.nextDouble() * 180 - 90; lon = r.nextDouble() * 360 - 180;
+      }
+      helper.addStation(new StationFeatureImpl("s" + i, null, null, lat, lon, 0, 0, null));
+    }
+    return helper;
+  }
+
+  // the same as the NCSS closest station, extended to n
+  private List<StationFeature> nearest(List<StationFeature> stations, LatLonPointImpl pt, int n) {
+    double lat = pt.getLatitude();
+    double lon = pt.getLongitude();
+    double cos = Math.cos(Math.toRadians(lat));
+    List<StationFeature> result = new ArrayList<>();
+    List<StationFeature> remaining = new ArrayList<>(stations);
+    while (result.size() < n) {
+      StationFeature minStation = null;
+      double minDist = Double.MAX_VALUE;
+      for (StationFeature s : remaining) {
+        double lat1 = s.getLatitude();
+        double lon1 = LatLonPointImpl.lonNormal(s.getLongitude(), lon);
+        double dy = Math.toRadians(lat - lat1);
+        double dx = cos * Math.toRadians(lon - lon1);
+        double dist = dy * dy + dx * dx;
+        if (dist < minDist) {
+          minDist = dist;
+          minStation = s;
+        }
+      }
+      if (minStation == null) break;
+      result.add(minStation);
+      remaining.remove(minStation);
+    }
+    return result;
+  }
+
+}
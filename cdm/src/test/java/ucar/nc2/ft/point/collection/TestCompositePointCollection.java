@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.ft.point.collection;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.nc2.constants.FeatureType;
+import ucar.nc2.ft.FeatureDatasetFactoryManager;
+import ucar.nc2.ft.FeatureDatasetPoint;
+import ucar.nc2.ft.PointFeature;
+import ucar.nc2.ft.PointFeatureCollection;
+import ucar.nc2.ft.PointFeatureIterator;
+import ucar.nc2.time.CalendarDate;
+import ucar.nc2.time.CalendarDateRange;
+import ucar.unidata.geoloc.LatLonPointImpl;
+import ucar.unidata.geoloc.LatLonRect;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Formatter;
+import java.util.List;
+
+/**
+ * Test that reading a CompositePointCollection ahead on background threads gives the same features as reading
+ * the datasets one after another.
+ *
+ * @since 10/18/2026
+ */
+public class TestCompositePointCollection {
+  private static final int ndatasets = 10;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testReadAhead() throws Exception {
+    try (FeatureDatasetPoint fdp = openCollection()) {
+      CompositePointCollection pfc = (CompositePointCollection) fdp.getPointFeatureCollectionList().get(0);
+
+      List<String> expected = read(pfc);
+      Assert.assertEquals(6 * ndatasets, expected.size());
+
+      for (int nfiles : new int[]{1, 3, 20}) {
+        pfc.setReadAhead(nfiles, true);
+        Assert.assertEquals("ordered " + nfiles, expected, read(pfc));
+
+        pfc.setReadAhead(nfiles, false);
+        List<String> unordered = read(pfc);
+        Collections.sort(unordered);
+        List<String> sorted = new ArrayList<>(expected);
+        Collections.sort(sorted);
+        Assert.assertEquals("unordered " + nfiles, sorted, unordered);
+      }
+    }
+  }
+
+  @Test
+  public void testReadAheadSubset() throws Exception {
+    LatLonRect bb = new LatLonRect(new LatLonPointImpl(30, -10), new LatLonPointImpl(70, 60));
+    CalendarDateRange dateRange = CalendarDateRange.of(
+            CalendarDate.parseISOformat(null, "2018-01-03T00:00:00Z"), CalendarDate.parseISOformat(null, "2018-01-07T00:00:00Z"));
+
+    try (FeatureDatasetPoint fdp = openCollection()) {
+      CompositePointCollection pfc = (CompositePointCollection) fdp.getPointFeatureCollectionList().get(0);
+
+      List<String> expected = read(pfc.subset(bb, dateRange));
+      Assert.assertTrue(expected.size() > 0);
+      Assert.assertTrue(expected.size() < 6 * ndatasets);
+
+      pfc.setReadAhead(4, true);
+      Assert.assertEquals(expected, read(pfc.subset(bb, dateRange)));
+    }
+  }
+
+  // more datasets than pool threads, so some are read by the iterator itself
+  @Test
+  public void testManyIterators() throws Exception {
+    int niters = Runtime.getRuntime().availableProcessors() + 1;
+    try (FeatureDatasetPoint fdp = openCollection()) {
+      CompositePointCollection pfc = (CompositePointCollection) fdp.getPointFeatureCollectionList().get(0);
+      List<String> expected = read(pfc);
+
+      pfc.setReadAhead(ndatasets, true);
+      List<PointFeatureIterator> iters = new ArrayList<>();
+      List<List<String>> results = new ArrayList<>();
+      try {
+        for (int i = 0; i < niters; i++) {
+          iters.add(pfc.getPointFeatureIterator());
+          results.add(new ArrayList<>());
+        }
+        boolean more = true;
+        while (more) { // round robin
+          more = false;
+          for (int i = 0; i < niters; i++) {
+            if (iters.get(i).hasNext()) {
+              results.get(i).add(toString(iters.get(i).next()));
+              more = true;
+            }
+          }
+        }
+      } finally {
+        for (PointFeatureIterator iter : iters)
+          iter.close();
+      }
+
+      for (List<String> result : results)
+        Assert.assertEquals(expected, result);
+    }
+  }
+
+  @Test
+  public void testCloseEarly() throws Exception {
+    try (FeatureDatasetPoint fdp = openCollection()) {
+      CompositePointCollection pfc = (CompositePointCollection) fdp.getPointFeatureCollectionList().get(0);
+      pfc.setReadAhead(3, true);
+
+      try (PointFeatureIterator iter = pfc.getPointFeatureIterator()) {
+        Assert.assertTrue(iter.hasNext());
+        iter.next();
+      }
+    }
+  }
+
+  // a collection of copies of pointsToFilter.ncml, one for each day, each with its own times
+  private FeatureDatasetPoint openCollection() throws IOException, URISyntaxException {
+    File dir = tempFolder.newFolder();
+    File template = new File(getClass().getResource("/ucar/nc2/ft/point/pointsToFilter.ncml").toURI());
+    String ncml = new String(Files.readAllBytes(template.toPath()), StandardCharsets.UTF_8);
+
+    for (int day = 1; day <= ndatasets; day++) {
+      String values = "<values>";
+      for (int i = 0; i < 6; i++)
+        values += String.format(" %d.%d", 17531 + day, i); // days since 1970, so 2018-01-<day>
+      String dayNcml = ncml.replace("<values>0 30 60 90 120 150", values);
+      Files.write(new File(dir, String.format("points_201801%02d.ncml", day)).toPath(),
+              dayNcml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    String location = CompositeDatasetFactory.SCHEME + dir.getPath().replace('\\', '/') + "/points_#yyyyMMdd#\\.ncml";
+    Formatter errlog = new Formatter();
+    FeatureDatasetPoint fdp = (FeatureDatasetPoint) FeatureDatasetFactoryManager.open(FeatureType.POINT, location, null, errlog);
+    Assert.assertNotNull(errlog.toString(), fdp);
+    return fdp;
+  }
+
+  private List<String> read(PointFeatureCollection pfc) throws IOException {
+    List<String> result = new ArrayList<>();
+    try (PointFeatureIterator iter = pfc.getPointFeatureIterator()) {
+      while (iter.hasNext()) {
+        result.add(toString(iter.next()));
+      }
+    }
+    return result;
+  }
+
+  private String toString(PointFeature pf) throws IOException {
+    return String.format("%s %f %f %s", pf.getObservationTimeAsCalendarDate(), pf.getLocation().getLatitude(),
+            pf.getLocation().getLongitude(), pf.getFeatureData().getScalarString("id"));
+  }
+
+}
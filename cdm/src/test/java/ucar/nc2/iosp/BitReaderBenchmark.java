@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compare unpacking bit packed values one at a time with BitReader.bits2UInt(nb), with the bulk BitUnpacker,
+ * for common GRIB widths, both as ints and as GRIB scaled floats.
+ * Not a unit test, run main() by hand:
+ * <pre>
+ *   BitReaderBenchmark [MValues] [iterations]
+ * </pre>
+ *
+ * @since 10/18/2026
+ */
+public class BitReaderBenchmark {
+
+  interface Unpacker {
+    void unpack(byte[] packed, int nb, int n) throws IOException;
+  }
+
+  private static final float ref = -273.15f, binaryScale = 0.001f, decimalScale = 10f;
+
+  public static void main(String[] args) throws IOException {
+    int mvalues = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+    int n = mvalues * 1000 * 1000;
+
+    Unpacker singleInt = (packed, nb, count) -> {
+      BitReader reader = new BitReader(packed);
+      int[] result = new int[count];
+      for (int i = 0; i < count; i++) result[i] = (int) reader.bits2UInt(nb);
+    };
+    Unpacker bulkInt = (packed, nb, count) -> BitUnpacker.unpack(packed, 0, nb, new int[count], 0, count);
+    Unpacker singleFloat = (packed, nb, count) -> {
+      BitReader reader = new BitReader(packed);
+      float[] result = new float[count];
+      for (int i = 0; i < count; i++) result[i] = (ref + reader.bits2UInt(nb) * binaryScale) / decimalScale;
+    };
+    Unpacker bulkFloat = (packed, nb, count) ->
+            BitUnpacker.unpackScaled(packed, 0, nb, new float[count], 0, count, ref, binaryScale, decimalScale);
+
+    System.out.printf("BitReaderBenchmark %d million values, best of %d (million values/sec)%n", mvalues, iterations);
+    System.out.printf("%-6s %-6s %12s %12s %8s%n", "nbits", "type", "one-by-one", "bulk", "speedup");
+    Random random = new Random();
+    for (int nb : new int[] {1, 7, 8, 12, 13, 16, 21, 24, 31}) {
+      byte[] packed = new byte[(int) BitUnpacker.nbytes(0, nb, n)];
+      random.nextBytes(packed);
+      double old = best(singleInt, packed, nb, n, iterations);
+      double now = best(bulkInt, packed, nb, n, iterations);
+      System.out.printf("%-6d %-6s %12.1f %12.1f %8.1f%n", nb, "int", old, now, now / old);
+      old = best(singleFloat, packed, nb, n, iterations);
+      now = best(bulkFloat, packed, nb, n, iterations);
+      System.out.printf("%-6d %-6s %12.1f %12.1f %8.1f%n", nb, "float", old, now, now / old);
+    }
+  }
+
+  private static double best(Unpacker unpacker, byte[] packed, int nb, int n, int iterations) throws IOException {
+    double best = 0;
+    for (int i = 0; i < iterations; i++) {
+      long start = System.nanoTime();
+      unpacker.unpack(packed, nb, n);
+      double secs = (System.nanoTime() - start) * 1.0e-9;
+      best = Math.max(best, n / 1.0e6 / secs);
+    }
+    return best;
+  }
+}
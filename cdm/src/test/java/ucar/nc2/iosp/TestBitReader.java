@@ -5,10 +5,13 @@
 
 package ucar.nc2.iosp;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.util.Random;
 
 import org.junit.Ignore;
 import org.junit.Test;
@@ -58,4 +61,90 @@ public class TestBitReader {
 		assertEquals(-344, (int) bu.bits2SInt(10));
 	}
 
+	// compare the bulk reads with reading one value at a time, for every width, starting on and off a byte boundary
+	@Test
+	public void testBulkMatchesSingle() throws IOException {
+		Random r = new Random(1234);
+		byte[] packed = new byte[1000];
+		r.nextBytes(packed);
+		int n = 97;
+		for (int nb = 0; nb <= 31; nb++) {
+			for (int lead = 0; lead < 8; lead++) {
+				BitReader single = new BitReader(packed);
+				BitReader bulk = new BitReader(packed);
+				if (lead > 0) {
+					assertEquals(single.bits2UInt(lead), bulk.bits2UInt(lead));
+				}
+
+				int[] expected = new int[n];
+				for (int i = 0; i < n; i++)
+					expected[i] = (int) single.bits2UInt(nb);
+				int[] result = new int[n];
+				bulk.bits2UInt(nb, result, 0, n);
+				assertArrayEquals("nb=" + nb + " lead=" + lead, expected, result);
+
+				// the reader is left in the same place
+				assertEquals(single.bits2UInt(5), bulk.bits2UInt(5));
+				assertEquals(single.getPos(), bulk.getPos());
+			}
+		}
+	}
+
+	// compare with a reference implementation that goes bit by bit, for all widths up to 64
+	@Test
+	public void testUnpackAllWidths() {
+		Random r = new Random(5678);
+		byte[] packed = new byte[1200];
+		r.nextBytes(packed);
+		int n = 131;
+		for (int nb = 0; nb <= 64; nb++) {
+			for (int bitOffset : new int[] {0, 3, 8, 13}) {
+				long[] expected = new long[n];
+				for (int i = 0; i < n; i++)
+					expected[i] = reference(packed, bitOffset + (long) i * nb, nb);
+
+				long[] longs = new long[n + 2];
+				BitUnpacker.unpack(packed, bitOffset, nb, longs, 1, n);
+				for (int i = 0; i < n; i++)
+					assertEquals("nb=" + nb + " offset=" + bitOffset, expected[i], longs[i + 1]);
+
+				ByteBuffer bb = ByteBuffer.allocateDirect(packed.length + 10);
+				bb.position(10);
+				bb.put(packed);
+				bb.position(10);
+				long[] fromBuffer = new long[n];
+				BitUnpacker.unpack(bb, bitOffset, nb, fromBuffer, 0, n);
+				assertArrayEquals(expected, fromBuffer);
+				assertEquals(10, bb.position());
+
+				if (nb > 32) continue;
+				int[] ints = new int[n];
+				BitUnpacker.unpack(ByteBuffer.wrap(packed), bitOffset, nb, ints, 0, n);
+				for (int i = 0; i < n; i++)
+					assertEquals((int) expected[i], ints[i]);
+
+				float ref = -12.5f, binaryScale = 0.25f, decimalScale = 100f;
+				float[] floats = new float[n];
+				BitUnpacker.unpackScaled(packed, bitOffset, nb, floats, 0, n, ref, binaryScale, decimalScale);
+				for (int i = 0; i < n; i++)
+					assertEquals((ref + expected[i] * binaryScale) / decimalScale, floats[i], 0.0f);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnpackTooShort() {
+		BitUnpacker.unpack(new byte[10], 3, 12, new int[7], 0, 7);
+	}
+
+	private long reference(byte[] packed, long bitOffset, int nb) {
+		long result = 0;
+		for (int k = 0; k < nb; k++) {
+			long bit = bitOffset + k;
+			int b = (packed[(int) (bit / 8)] >> (7 - (int) (bit % 8))) & 1;
+			result = (result << 1) | b;
+		}
+		return result;
+	}
+
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.netcdf3;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.iosp.IospHelper;
+import ucar.nc2.iosp.Layout;
+import ucar.nc2.iosp.LayoutRegular;
+import ucar.nc2.iosp.LayoutRegularSegmented;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compare N3readPlanner to the chunk by chunk reads of IospHelper.
+ *
+ * @since 10/18/2026
+ */
+public class TestN3readPlanner {
+  private static final int begin = 100;
+
+  private static File makeFile(int size) throws IOException {
+    File file = File.createTempFile("TestN3readPlanner", ".dat");
+    file.deleteOnExit();
+    byte[] data = new byte[size];
+    new Random(17).nextBytes(data);
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(data);
+    }
+    return file;
+  }
+
+  private static void compare(File file, DataType dataType, int recsize, int[] shape, String section,
+                              int maxGap, int maxSpan, int expectReads) throws IOException, InvalidRangeException {
+    int elemSize = dataType.getSize();
+    try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+      raf.order(RandomAccessFile.BIG_ENDIAN);
+      Section want = new Section(section);
+      Layout expectLayout = (recsize == 0) ? new LayoutRegular(begin, elemSize, shape, want) :
+              new LayoutRegularSegmented(begin, elemSize, recsize, shape, want);
+      Object expect = IospHelper.readDataFill(raf, expectLayout, dataType, null, -1);
+
+      Layout layout = (recsize == 0) ? new LayoutRegular(begin, elemSize, shape, want) :
+              new LayoutRegularSegmented(begin, elemSize, recsize, shape, want);
+      N3readPlanner planner = new N3readPlanner(raf, maxGap, maxSpan);
+      Object got = planner.readData(layout, dataType);
+
+      switch (dataType) {
+        case BYTE: Assert.assertArrayEquals((byte[]) expect, (byte[]) got); break;
+        case CHAR: Assert.assertArrayEquals((char[]) expect, (char[]) got); break;
+        case SHORT: Assert.assertArrayEquals((short[]) expect, (short[]) got); break;
+        case INT: Assert.assertArrayEquals((int[]) expect, (int[]) got); break;
+        case FLOAT: Assert.assertArrayEquals((float[]) expect, (float[]) got, 0.0f); break;
+        case DOUBLE: Assert.assertArrayEquals((double[]) expect, (double[]) got, 0.0); break;
+        default: Assert.fail();
+      }
+      if (expectReads > 0)
+        Assert.assertEquals(expectReads, planner.getNumberOfReads());
+    }
+  }
+
+  @Test
+  public void testRecordVariable() throws IOException, InvalidRangeException {
+    File file = makeFile(200 * 1000);
+    int[] shape = {1000, 3, 4};
+    DataType[] types = {DataType.BYTE, DataType.CHAR, DataType.SHORT, DataType.INT, DataType.FLOAT, DataType.DOUBLE};
+    for (DataType dataType : types) {
+      compare(file, dataType, 150, shape, "0:999,:,:", 8192, 1000 * 1000, 1); // one read
+      compare(file, dataType, 150, shape, "0:999,:,:", 8192, 10000, 0); // limited by maxSpan
+      compare(file, dataType, 150, shape, "10:900:7,1:2,0:3:2", 8192, 1000 * 1000, 1);
+      compare(file, dataType, 150, shape, "0:999,:,:", 10, 1000 * 1000, 1000); // gaps too big, one read per record
+    }
+  }
+
+  @Test
+  public void testNonRecordVariable() throws IOException, InvalidRangeException {
+    File file = makeFile(100 * 1000);
+    int[] shape = {100, 120};
+    compare(file, DataType.FLOAT, 0, shape, ":,:", 8192, 1000 * 1000, 1);
+    compare(file, DataType.FLOAT, 0, shape, ":,:", 8192, 1000, 1); // one big chunk, read by the raf
+    compare(file, DataType.INT, 0, shape, "0:99:3,5:60", 8192, 1000 * 1000, 1);
+    compare(file, DataType.SHORT, 0, shape, "0:99:3,5:60", 100, 1000 * 1000, 34);
+  }
+
+  @Test(expected = java.io.EOFException.class)
+  public void testPastEof() throws IOException, InvalidRangeException {
+    File file = makeFile(10 * 1000);
+    try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+      Layout layout = new LayoutRegularSegmented(begin, 4, 100, new int[] {200, 2}, new Section("0:199,:"));
+      new N3readPlanner(raf).readData(layout, DataType.INT);
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.iosp.netcdf3;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.DataType;
+import ucar.nc2.Dimension;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileSubclass;
+import ucar.nc2.Variable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Test the header written by N3streamWriter.
+ *
+ * @since 10/18/2026
+ */
+public class TestN3streamWriter {
+
+  // a variable over 4 Gbytes in a large file: its vsize does not fit, and the offsets after it must not overflow
+  @Test
+  public void testLargeVariable() throws IOException {
+    NetcdfFile ncfile = new NetcdfFileSubclass();
+    ncfile.addDimension(null, new Dimension("y", 40000));
+    ncfile.addDimension(null, new Dimension("x", 40000));
+    ncfile.addVariable(null, new Variable(ncfile, null, null, "big", DataType.FLOAT, "y x"));
+    ncfile.addVariable(null, new Variable(ncfile, null, null, "small", DataType.SHORT, "x"));
+    ncfile.finish();
+
+    N3outputStreamWriter writer = new N3outputStreamWriter(ncfile);
+    writer.setLargeFile(true);
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    writer.writeHeader(new DataOutputStream(bos), 0);
+
+    long bigSize = 4L * 40000 * 40000;
+    long smallSize = 2L * 40000;
+    Assert.assertEquals(bos.size() + bigSize + smallSize, writer.getNonRecordLength());
+
+    N3streamWriter.Vinfo small = writer.vinfoMap.get(ncfile.findVariable("small"));
+    Assert.assertEquals(bos.size() + bigSize, small.offset);
+    Assert.assertEquals(smallSize, small.vsize);
+
+    // the big vsize is written as -1, followed by its 64-bit offset
+    ByteBuffer header = ByteBuffer.wrap(bos.toByteArray());
+    boolean found = false;
+    for (int pos = 0; pos + 12 <= header.limit() && !found; pos += 4)
+      found = header.getInt(pos) == -1 && header.getLong(pos + 4) == bos.size();
+    Assert.assertTrue(found);
+  }
+}
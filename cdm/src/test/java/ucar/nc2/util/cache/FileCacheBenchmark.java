@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.util.cache;
+
+import ucar.nc2.dataset.DatasetUrl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compare the throughput of FileCache, FileCacheARC and FileCacheConcurrent under concurrent acquire/release.
+ * The files dont open anything, so this measures only the cache overhead and lock contention.
+ * Not a unit test, run main() by hand:
+ * <pre>
+ *   FileCacheBenchmark [nthreads] [nfiles] [seconds] [capacity]
+ * </pre>
+ * capacity is the softLimit as a percentage of nfiles; below 100 there will be misses and evictions.
+ *
+ * @since 10/18/2026
+ */
+public class FileCacheBenchmark {
+
+  interface CacheMaker {
+    FileCacheIF make(int min, int soft, int hard);
+  }
+
+  public static void main(String[] args) throws Exception {
+    int nthreads = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    int nfiles = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+    int secs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+    int capacity = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+
+    int soft = Math.max(1, nfiles * capacity / 100);
+    int min = soft / 2, hard = soft + soft / 4;
+    String[] names = {"FileCache", "FileCacheARC", "FileCacheConcurrent"};
+    CacheMaker[] makers = {
+            (n, s, h) -> new FileCache("bench", n, s, h, 1),
+            (n, s, h) -> new FileCacheARC("bench", n, s, h, 1),
+            (n, s, h) -> new FileCacheConcurrent("bench", n, s, h, 1),
+    };
+
+    System.out.printf("FileCacheBenchmark threads=%d files=%d secs=%d min=%d softLimit=%d hardLimit=%d%n",
+            nthreads, nfiles, secs, min, soft, hard);
+    for (int i = 0; i < makers.length; i++) {
+      FileCacheIF cache = makers[i].make(min, soft, hard);
+      run(names[i], cache, nthreads, nfiles, 1); // warmup
+      cache.clearCache(true);
+      run(names[i], cache, nthreads, nfiles, secs);
+      cache.clearCache(true);
+    }
+    FileCache.shutdown();
+    FileCacheConcurrent.shutdown();
+  }
+
+  private static void run(String name, FileCacheIF cache, int nthreads, int nfiles, int secs) throws Exception {
+    TestFileCacheConcurrentEviction.MockFactory factory = new TestFileCacheConcurrentEviction.MockFactory();
+    DatasetUrl[] urls = new DatasetUrl[nfiles];
+    for (int i = 0; i < nfiles; i++)
+      urls[i] = new DatasetUrl(null, "file" + i);
+
+    AtomicLong ops = new AtomicLong();
+    AtomicLong errors = new AtomicLong();
+    long[] maxLatency = new long[nthreads];
+    ExecutorService pool = Executors.newFixedThreadPool(nthreads);
+    long stopAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(secs);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < nthreads; t++) {
+      final int tno = t;
+      futures.add(pool.submit(() -> {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        long count = 0;
+        while (System.nanoTime() < stopAt) {
+          // skewed: half the requests go to 10% of the files
+          int fileno = r.nextBoolean() ? r.nextInt(Math.max(1, nfiles / 10)) : r.nextInt(nfiles);
+          long start = System.nanoTime();
+          try {
+            FileCacheable f = cache.acquire(factory, urls[fileno]);
+            f.close();
+          } catch (RuntimeException e) { // count races in the cache, dont stop the run
+            errors.incrementAndGet();
+          }
+          maxLatency[tno] = Math.max(maxLatency[tno], System.nanoTime() - start);
+          count++;
+        }
+        ops.addAndGet(count);
+        return null;
+      }));
+    }
+    for (Future<?> f : futures) f.get();
+    pool.shutdown();
+
+    long max = 0;
+    for (long lat : maxLatency) max = Math.max(max, lat);
+    Formatter stats = new Formatter();
+    cache.showStats(stats);
+    System.out.printf("%-20s %,12d ops/sec  max latency %,8d usecs  opened %,d errors %d%n  %s", name, ops.get() / secs,
+            max / 1000, factory.opened.get(), errors.get(), stats);
+  }
+}
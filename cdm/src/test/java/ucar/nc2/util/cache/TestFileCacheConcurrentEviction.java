@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.util.cache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.util.CancelTask;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test FileCacheConcurrent, using FileCacheables that dont open anything.
+ *
+ * @since 10/18/2026
+ */
+public class TestFileCacheConcurrentEviction {
+
+  static class MockFile implements FileCacheable {
+    final String location;
+    FileCacheIF cache;
+    long lastModified = 1;
+    boolean closed;
+
+    MockFile(String location) {
+      this.location = location;
+    }
+
+    public String getLocation() {
+      return location;
+    }
+
+    public void close() throws IOException {
+      if (cache != null && cache.release(this)) return;
+      closed = true;
+    }
+
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    public void setFileCache(FileCacheIF fileCache) {
+      this.cache = fileCache;
+    }
+
+    public void release() {
+    }
+
+    public void reacquire() {
+    }
+  }
+
+  // the first hash is slow, to widen any gap between the cache's bookkeeping steps when a file is added
+  static class SlowHashFile extends MockFile {
+    private final AtomicBoolean hashed = new AtomicBoolean();
+
+    SlowHashFile(String location) {
+      super(location);
+    }
+
+    @Override
+    public int hashCode() {
+      if (hashed.compareAndSet(false, true)) {
+        try {
+          Thread.sleep(2);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return super.hashCode();
+    }
+  }
+
+  static class MockFactory implements FileFactory {
+    final AtomicInteger opened = new AtomicInteger();
+    final Queue<MockFile> all = new ConcurrentLinkedQueue<>();
+    boolean slowHash;
+
+    public FileCacheable open(DatasetUrl location, int buffer_size, CancelTask cancelTask, Object iospMessage) {
+      opened.incrementAndGet();
+      MockFile file = slowHash ? new SlowHashFile(location.trueurl) : new MockFile(location.trueurl);
+      all.add(file);
+      return file;
+    }
+  }
+
+  private final MockFactory factory = new MockFactory();
+
+  private FileCacheable acquire(FileCacheIF cache, String location) throws IOException {
+    return cache.acquire(factory, new DatasetUrl(null, location));
+  }
+
+  @After
+  public void shutdown() {
+    FileCacheConcurrent.shutdown();
+  }
+
+  @Test
+  public void testReuse() throws IOException {
+    FileCacheConcurrent cache = new FileCacheConcurrent("test", 5, 10, 20, -1);
+    FileCacheable f1 = acquire(cache, "a");
+    FileCacheable f2 = acquire(cache, "a"); // f1 is locked, so get another copy
+    Assert.assertNotSame(f1, f2);
+    f1.close();
+    f2.close();
+    Assert.assertFalse(((MockFile) f1).closed);
+
+    FileCacheable f3 = acquire(cache, "a");
+    Assert.assertTrue(f3 == f1 || f3 == f2);
+    f3.close();
+    Assert.assertEquals(2, factory.opened.get());
+  }
+
+  @Test
+  public void testModified() throws IOException {
+    FileCacheConcurrent cache = new FileCacheConcurrent("test", 5, 10, 20, -1);
+    MockFile f1 = (MockFile) acquire(cache, "a");
+    f1.close();
+    f1.lastModified = 2;
+
+    FileCacheable f2 = acquire(cache, "a");
+    Assert.assertNotSame(f1, f2);
+    Assert.assertTrue(f1.closed);
+    f2.close();
+  }
+
+  @Test
+  public void testHardLimit() throws IOException {
+    FileCacheConcurrent cache = new FileCacheConcurrent("test", 5, 100, 10, -1);
+    for (int i = 0; i < 50; i++)
+      acquire(cache, "file" + i).close();
+    Assert.assertTrue(cache.showCache().size() <= 10);
+  }
+
+  @Test
+  public void testLockedNotEvicted() throws IOException {
+    FileCacheConcurrent cache = new FileCacheConcurrent("test", 0, 100, 5, -1);
+    MockFile locked = (MockFile) acquire(cache, "locked");
+    for (int i = 0; i < 50; i++)
+      acquire(cache, "file" + i).close();
+    Assert.assertFalse(locked.closed);
+    locked.close();
+    Assert.assertFalse(locked.closed);
+
+    cache.clearCache(false);
+    Assert.assertTrue(locked.closed);
+    Assert.assertEquals(0, cache.showCache().size());
+  }
+
+  @Test
+  public void testEject() throws IOException {
+    FileCacheConcurrent cache = new FileCacheConcurrent("test", 5, 10, 20, -1);
+    MockFile f1 = (MockFile) acquire(cache, "a");
+    f1.close();
+    cache.eject("a");
+    Assert.assertTrue(f1.closed);
+    Assert.assertNotSame(f1, acquire(cache, "a"));
+  }
+
+  // below the limits nothing polls the clock, so files removed any other way must not stay in it
+  @Test
+  public void testRemovedDroppedFromClock() throws IOException {
+    FileCacheConcurrent cache = new FileCacheConcurrent("test", 50, 100, 200, -1);
+    for (int i = 0; i < 100; i++) {
+      acquire(cache, "ejected" + i).close();
+      cache.eject("ejected" + i);
+
+      MockFile changed = (MockFile) acquire(cache, "changed");
+      changed.close();
+      changed.lastModified++;
+    }
+    acquire(cache, "changed").close();
+    Assert.assertEquals(1, cache.showCache().size());
+    Assert.assertEquals(1, cache.getClockSize());
+
+    for (int i = 0; i < 10; i++)
+      acquire(cache, "file" + i).close();
+    cache.clearCache(true);
+    Assert.assertEquals(0, cache.getClockSize());
+  }
+
+  // eject while other threads are acquiring and releasing the same file; nothing may be left open or counted
+  @Test
+  public void testEjectRacesAcquire() throws Exception {
+    FileCacheConcurrent cache = new FileCacheConcurrent("test", 0, 1000, 2000, -1);
+    factory.slowHash = true;
+    int nthreads = 8;
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicBoolean stop = new AtomicBoolean();
+    ExecutorService pool = Executors.newFixedThreadPool(nthreads + 1);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int i = 0; i < nthreads; i++) {
+        results.add(pool.submit(() -> {
+          start.await();
+          while (!stop.get())
+            acquire(cache, "a").close();
+          return null;
+        }));
+      }
+      results.add(pool.submit(() -> {
+        start.await();
+        while (!stop.get())
+          cache.eject("a");
+        return null;
+      }));
+
+      start.countDown();
+      Thread.sleep(1000);
+      stop.set(true);
+      for (Future<?> result : results)
+        result.get();
+    } finally {
+      pool.shutdownNow();
+    }
+
+    // every file is released, so all of them can be removed without force
+    cache.clearCache(false);
+    Assert.assertEquals(0, cache.showCache().size());
+    Formatter f = new Formatter();
+    cache.showStats(f);
+    Assert.assertTrue(f.toString(), f.toString().contains("nfiles= 0 "));
+    Assert.assertTrue(factory.opened.get() > 1);
+    for (MockFile file : factory.all)
+      Assert.assertTrue(file.location + " not closed", file.closed);
+  }
+}
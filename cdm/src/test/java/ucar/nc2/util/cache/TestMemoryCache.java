@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.nc2.util.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestMemoryCache {
+
+  @Test
+  public void testHitsAndMisses() throws IOException {
+    MemoryCache<String, byte[]> cache = new MemoryCache<>("test", 1000, b -> b.length);
+    AtomicInteger loads = new AtomicInteger();
+
+    byte[] first = cache.get("a", () -> { loads.incrementAndGet(); return new byte[100]; });
+    byte[] second = cache.get("a", () -> { loads.incrementAndGet(); return new byte[100]; });
+
+    Assert.assertSame(first, second);
+    Assert.assertEquals(1, loads.get());
+    Assert.assertEquals(1, cache.getHits());
+    Assert.assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void testEvictsBySize() throws IOException {
+    MemoryCache<Integer, byte[]> cache = new MemoryCache<>("test", 1000, b -> b.length);
+    for (int i = 0; i < 20; i++)
+      cache.put(i, new byte[100]);
+
+    Assert.assertTrue(cache.size() <= 10);
+    Assert.assertTrue(cache.getEvictions() >= 10);
+    Assert.assertNotNull(cache.getIfPresent(19)); // most recent is kept
+  }
+
+  @Test(expected = IOException.class)
+  public void testLoaderException() throws IOException {
+    MemoryCache<String, byte[]> cache = new MemoryCache<>("test", 1000, b -> b.length);
+    cache.get("a", () -> { throw new IOException("fail"); });
+  }
+}
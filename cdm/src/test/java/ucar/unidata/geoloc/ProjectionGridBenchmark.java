@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.geoloc;
+
+import ucar.unidata.geoloc.projection.*;
+import ucar.unidata.geoloc.projection.proj4.LambertConformalConicEllipse;
+import ucar.unidata.geoloc.projection.proj4.StereographicAzimuthalProjection;
+import ucar.unidata.geoloc.projection.proj4.TransverseMercatorProjection;
+
+/**
+ * Compare converting a grid of projection coordinates to lat/lon one point at a time, with
+ * ProjectionImpl.projToLatLonGrid. Not a unit test, run main() by hand:
+ * <pre>
+ *   ProjectionGridBenchmark [nx] [ny] [iterations]
+ * </pre>
+ *
+ * @since 10/18/2026
+ */
+public class ProjectionGridBenchmark {
+
+  public static void main(String[] args) {
+    int nx = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+    int ny = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    int niters = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+    ProjectionImpl[] projs = {
+            new LambertConformal(40.0, -100.0, 30.0, 60.0),
+            new Mercator(-100.0, 20.0),
+            new Stereographic(90.0, -105.0, 0.933),
+            new TransverseMercator(),
+            new RotatedPole(37, 177),
+            new LambertConformalConicEllipse(),
+            new StereographicAzimuthalProjection(),
+            new TransverseMercatorProjection(),
+    };
+
+    System.out.printf("ProjectionGridBenchmark nx=%d ny=%d iterations=%d processors=%d%n", nx, ny, niters,
+            Runtime.getRuntime().availableProcessors());
+    System.out.printf("%-35s %12s %12s %12s%n", "projection", "new points", "reuse points", "grid");
+    for (ProjectionImpl proj : projs) {
+      double halfWidth = (proj instanceof RotatedPole) ? 40.0 : 2000.0;
+      double[] x = new double[nx];
+      for (int i = 0; i < nx; i++)
+        x[i] = -halfWidth + 2 * halfWidth * i / (nx - 1);
+      double[] y = new double[ny];
+      for (int j = 0; j < ny; j++)
+        y[j] = -halfWidth + 2 * halfWidth * j / (ny - 1);
+      double[] lat = new double[nx * ny];
+      double[] lon = new double[nx * ny];
+
+      long[] best = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+      for (int iter = 0; iter < niters + 2; iter++) { // first two are warmup
+        long start = System.nanoTime();
+        newPoints(proj, x, y, lat, lon);
+        long t1 = System.nanoTime();
+        reusePoints(proj, x, y, lat, lon);
+        long t2 = System.nanoTime();
+        proj.projToLatLonGrid(x, y, lat, lon);
+        long t3 = System.nanoTime();
+        if (iter < 2) continue;
+        best[0] = Math.min(best[0], t1 - start);
+        best[1] = Math.min(best[1], t2 - t1);
+        best[2] = Math.min(best[2], t3 - t2);
+      }
+      System.out.printf("%-35s %9d ms %9d ms %9d ms%n", proj.getClass().getSimpleName(), best[0] / 1000000,
+              best[1] / 1000000, best[2] / 1000000);
+    }
+  }
+
+  // projToLatLon(double, double) makes two objects for each point
+  private static void newPoints(ProjectionImpl proj, double[] x, double[] y, double[] lat, double[] lon) {
+    for (int j = 0; j < y.length; j++) {
+      for (int i = 0; i < x.length; i++) {
+        LatLonPoint llpt = proj.projToLatLon(x[i], y[j]);
+        lat[j * x.length + i] = llpt.getLatitude();
+        lon[j * x.length + i] = llpt.getLongitude();
+      }
+    }
+  }
+
+  // the way the netcdf writers made 2D lat/lon
+  private static void reusePoints(ProjectionImpl proj, double[] x, double[] y, double[] lat, double[] lon) {
+    ProjectionPointImpl projPoint = new ProjectionPointImpl();
+    LatLonPointImpl latlonPoint = new LatLonPointImpl();
+    for (int j = 0; j < y.length; j++) {
+      for (int i = 0; i < x.length; i++) {
+        projPoint.setLocation(x[i], y[j]);
+        proj.projToLatLon(projPoint, latlonPoint);
+        lat[j * x.length + i] = latlonPoint.getLatitude();
+        lon[j * x.length + i] = latlonPoint.getLongitude();
+      }
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.geoloc;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.unidata.geoloc.projection.*;
+import ucar.unidata.geoloc.projection.proj4.AlbersEqualAreaEllipse;
+import ucar.unidata.geoloc.projection.proj4.LambertConformalConicEllipse;
+import ucar.unidata.geoloc.projection.proj4.StereographicAzimuthalProjection;
+import ucar.unidata.geoloc.projection.proj4.TransverseMercatorProjection;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test that ProjectionImpl.projToLatLonGrid gives the same answer as converting one point at a time.
+ *
+ * @since 10/18/2026
+ */
+public class TestProjectionGrid {
+
+  // projections in km, centered on x,y = 0,0
+  private ProjectionImpl[] makeProjections() {
+    return new ProjectionImpl[] {
+            new LambertConformal(40.0, -100.0, 30.0, 60.0),
+            new Mercator(-100.0, 20.0),
+            new Stereographic(90.0, -105.0, 0.933),
+            new TransverseMercator(),
+            new AlbersEqualArea(),
+            new LambertConformalConicEllipse(),
+            new AlbersEqualAreaEllipse(),
+            new StereographicAzimuthalProjection(),
+            new TransverseMercatorProjection(),
+            new UtmProjection(10, true),
+    };
+  }
+
+  @Test
+  public void testSmallGrid() {
+    for (ProjectionImpl proj : makeProjections())
+      compare(proj, 1000.0, 37, 23);
+    compare(new RotatedPole(37, 177), 20.0, 37, 23); // x,y in degrees
+    compare(new LatLonProjection(), 200.0, 37, 23);
+  }
+
+  @Test
+  public void testLargeGridInParallel() {
+    compare(new LambertConformal(40.0, -100.0, 30.0, 60.0), 2000.0, 613, 427);
+    compare(new TransverseMercatorProjection(), 2000.0, 613, 427);
+    compare(new RotatedPole(37, 177), 40.0, 613, 427);
+  }
+
+  @Test
+  public void testCallerExecutor() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      AtomicInteger count = new AtomicInteger();
+      compare(new LambertConformal(40.0, -100.0, 30.0, 60.0), 2000.0, 613, 427, r -> {
+        count.incrementAndGet();
+        executor.execute(r);
+      });
+      if (Runtime.getRuntime().availableProcessors() > 1) // the grid is split in two
+        Assert.assertEquals(1, count.get());
+    } finally {
+      executor.shutdown();
+    }
+
+    // everything in the calling thread
+    compare(new RotatedPole(37, 177), 40.0, 613, 427, Runnable::run);
+  }
+
+  private void compare(ProjectionImpl proj, double halfWidth, int nx, int ny) {
+    compare(proj, halfWidth, nx, ny, null);
+  }
+
+  private void compare(ProjectionImpl proj, double halfWidth, int nx, int ny, Executor executor) {
+    double[] x = new double[nx];
+    for (int i = 0; i < nx; i++)
+      x[i] = -halfWidth + 2 * halfWidth * i / (nx - 1);
+    double[] y = new double[ny];
+    for (int j = 0; j < ny; j++)
+      y[j] = -halfWidth + 2 * halfWidth * j / (ny - 1);
+
+    double[] lat = new double[nx * ny];
+    double[] lon = new double[nx * ny];
+    if (executor == null)
+      proj.projToLatLonGrid(x, y, lat, lon);
+    else
+      proj.projToLatLonGrid(x, y, lat, lon, executor);
+
+    ProjectionPointImpl ppt = new ProjectionPointImpl();
+    LatLonPointImpl llpt = new LatLonPointImpl();
+    for (int j = 0; j < ny; j++) {
+      for (int i = 0; i < nx; i++) {
+        ppt.setLocation(x[i], y[j]);
+        proj.projToLatLon(ppt, llpt);
+        int index = j * nx + i;
+        String where = proj.getClass().getSimpleName() + " " + ppt;
+        assertNearlyEquals(where, llpt.getLatitude(), lat[index]);
+        assertNearlyEquals(where, llpt.getLongitude(), LatLonPointImpl.lonNormal(lon[index], llpt.getLongitude()));
+      }
+    }
+  }
+
+  private void assertNearlyEquals(String where, double expected, double actual) {
+    if (Double.isNaN(expected)) {
+      Assert.assertTrue(where, Double.isNaN(actual));
+    } else {
+      Assert.assertEquals(where, expected, actual, 1.0e-6);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongLength() {
+    new Mercator().projToLatLonGrid(new double[3], new double[2], new double[5], new double[6]);
+  }
+}
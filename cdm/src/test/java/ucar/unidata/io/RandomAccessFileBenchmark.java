@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compare the array reads of RandomAccessFile (readInt(int[], ..), readFloat(float[], ..) etc) with reading one
+ * value at a time, the way the array reads used to work, in both byte orders.
+ * Not a unit test, run main() by hand:
+ * <pre>
+ *   RandomAccessFileBenchmark [MBytes] [iterations]
+ * </pre>
+ *
+ * @since 10/18/2026
+ */
+public class RandomAccessFileBenchmark {
+
+  interface Reader {
+    void read(RandomAccessFile raf, int n) throws IOException;
+  }
+
+  public static void main(String[] args) throws IOException {
+    int mbytes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+    File tempFile = File.createTempFile("RandomAccessFileBenchmark", ".bin");
+    tempFile.deleteOnExit();
+    byte[] block = new byte[1024 * 1024];
+    new Random().nextBytes(block);
+    try (FileOutputStream out = new FileOutputStream(tempFile)) {
+      for (int i = 0; i < mbytes; i++)
+        out.write(block);
+    }
+    int nbytes = mbytes * 1024 * 1024;
+
+    String[] names = {"short", "int", "float", "double"};
+    int[] sizes = {2, 4, 4, 8};
+    Reader[] single = {
+            (raf, n) -> { for (int i = 0; i < n; i++) raf.readShort(); },
+            (raf, n) -> { for (int i = 0; i < n; i++) raf.readInt(); },
+            (raf, n) -> { for (int i = 0; i < n; i++) raf.readFloat(); },
+            (raf, n) -> { for (int i = 0; i < n; i++) raf.readDouble(); },
+    };
+    Reader[] bulk = {
+            (raf, n) -> raf.readShort(new short[n], 0, n),
+            (raf, n) -> raf.readInt(new int[n], 0, n),
+            (raf, n) -> raf.readFloat(new float[n], 0, n),
+            (raf, n) -> raf.readDouble(new double[n], 0, n),
+    };
+
+    System.out.printf("RandomAccessFileBenchmark %d MBytes, best of %d (MBytes/sec)%n", mbytes, iterations);
+    System.out.printf("%-8s %-14s %12s %12s %8s%n", "type", "order", "one-by-one", "array", "speedup");
+    for (int endian : new int[] {RandomAccessFile.BIG_ENDIAN, RandomAccessFile.LITTLE_ENDIAN}) {
+      for (int t = 0; t < names.length; t++) {
+        int n = nbytes / sizes[t];
+        double old = best(tempFile, endian, single[t], n, iterations, nbytes);
+        double now = best(tempFile, endian, bulk[t], n, iterations, nbytes);
+        System.out.printf("%-8s %-14s %12.1f %12.1f %8.1f%n", names[t],
+                endian == RandomAccessFile.BIG_ENDIAN ? "big endian" : "little endian", old, now, now / old);
+      }
+    }
+  }
+
+  private static double best(File file, int endian, Reader reader, int n, int iterations, int nbytes) throws IOException {
+    double best = 0;
+    for (int i = 0; i < iterations; i++) {
+      try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+        raf.order(endian);
+        long start = System.nanoTime();
+        reader.read(raf, n);
+        double secs = (System.nanoTime() - start) * 1.0e-9;
+        best = Math.max(best, nbytes / 1024.0 / 1024.0 / secs);
+      }
+    }
+    return best;
+  }
+}
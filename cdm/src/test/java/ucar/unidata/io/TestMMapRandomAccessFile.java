@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Test MMapRandomAccessFile and the positional reads of RandomAccessFile.
+ *
+ * @since 10/18/2026
+ */
+public class TestMMapRandomAccessFile {
+  private static final int SIZE = 100 * 1000;
+  private File tempFile;
+
+  @Before
+  public void makeFile() throws IOException {
+    tempFile = File.createTempFile("TestMMapRandomAccessFile", ".bin");
+    byte[] data = new byte[SIZE];
+    for (int i = 0; i < SIZE; i++)
+      data[i] = (byte) (i % 251);
+    try (FileOutputStream out = new FileOutputStream(tempFile)) {
+      out.write(data);
+    }
+  }
+
+  @After
+  public void deleteFile() {
+    if (!tempFile.delete())
+      tempFile.deleteOnExit();
+  }
+
+  private static void check(byte[] b, long pos) {
+    for (int i = 0; i < b.length; i++)
+      Assert.assertEquals("at " + (pos + i), (byte) ((pos + i) % 251), b[i]);
+  }
+
+  @Test
+  public void testBufferedReads() throws IOException {
+    // small segments, so that reads cross them
+    try (RandomAccessFile raf = new MMapRandomAccessFile(tempFile.getPath(), "r", 1000, 4096)) {
+      Assert.assertEquals(SIZE, raf.length());
+      raf.seek(4000);
+      byte[] b = new byte[10000];
+      raf.readFully(b);
+      check(b, 4000);
+
+      raf.order(RandomAccessFile.BIG_ENDIAN);
+      raf.seek(4094);
+      int expect = ((4094 % 251) << 24) | ((4095 % 251) << 16) | ((4096 % 251) << 8) | (4097 % 251);
+      Assert.assertEquals(expect, raf.readInt());
+
+      raf.seek(SIZE - 1);
+      Assert.assertEquals((SIZE - 1) % 251, raf.read());
+      Assert.assertEquals(-1, raf.read());
+    }
+  }
+
+  @Test
+  public void testPositionalReads() throws IOException {
+    try (RandomAccessFile mmap = new MMapRandomAccessFile(tempFile.getPath(), "r", 1000, 4096);
+         RandomAccessFile raf = new RandomAccessFile(tempFile.getPath(), "r")) {
+      for (RandomAccessFile f : new RandomAccessFile[] {mmap, raf}) {
+        f.seek(17);
+        byte[] b = new byte[9000];
+        f.readFully(40000, b, 0, b.length);
+        check(b, 40000);
+        Assert.assertEquals(17, f.getFilePointer()); // unchanged
+
+        ByteBuffer bb = ByteBuffer.allocate(100);
+        f.readFully(SIZE - 100, bb);
+        check(bb.array(), SIZE - 100);
+
+        try {
+          f.readFully(SIZE - 10, new byte[20], 0, 20);
+          Assert.fail("expected EOFException");
+        } catch (java.io.EOFException e) {
+          // expected
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testConcurrentPositionalReads() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try (RandomAccessFile mmap = new MMapRandomAccessFile(tempFile.getPath(), "r", 1000, 4096)) {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(pool.submit(() -> {
+          ThreadLocalRandom r = ThreadLocalRandom.current();
+          for (int i = 0; i < 1000; i++) {
+            int len = r.nextInt(1, 10000);
+            long pos = r.nextInt(SIZE - len);
+            byte[] b = new byte[len];
+            mmap.readFully(pos, b, 0, len);
+            check(b, pos);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> f : futures) f.get();
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadOnly() throws IOException {
+    new MMapRandomAccessFile(tempFile.getPath(), "rw");
+  }
+
+  // an interrupted positional read must not close the file for other threads, or for the owner's buffered reads
+  @Test
+  public void testInterruptedPositionalRead() throws Exception {
+    try (RandomAccessFile raf = new RandomAccessFile(tempFile.getPath(), "r")) {
+      ExecutorService exec = Executors.newFixedThreadPool(2);
+      try {
+        Future<?> interrupted = exec.submit(() -> {
+          Thread.currentThread().interrupt();
+          raf.readFully(1000, new byte[5000], 0, 5000);
+          return null;
+        });
+        try {
+          interrupted.get();
+          Assert.fail("interrupted read should fail");
+        } catch (ExecutionException e) {
+          Assert.assertTrue(e.getCause().toString(), e.getCause() instanceof IOException);
+        }
+
+        byte[] b = exec.submit(() -> {
+          byte[] result = new byte[7000];
+          raf.readFully(20000, result, 0, result.length);
+          return result;
+        }).get();
+        check(b, 20000);
+      } finally {
+        exec.shutdown();
+      }
+
+      raf.seek(50000);
+      byte[] b = new byte[3000];
+      raf.readFully(b);
+      check(b, 50000);
+    }
+  }
+
+  // positional reads come from the file that was opened, before and after an interrupt, even if the path is replaced
+  @Test
+  public void testPositionalReadAfterReplace() throws Exception {
+    try (RandomAccessFile raf = new RandomAccessFile(tempFile.getPath(), "r")) {
+      File other = File.createTempFile("TestMMapRandomAccessFile", ".bin");
+      try (FileOutputStream out = new FileOutputStream(other)) {
+        out.write(new byte[SIZE]);
+      }
+      Files.move(other.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+      byte[] b = new byte[5000];
+      raf.readFully(30000, b, 0, b.length);
+      check(b, 30000);
+
+      Thread.currentThread().interrupt();
+      try {
+        raf.readFully(1000, new byte[5000], 0, 5000);
+        Assert.fail("interrupted read should fail");
+      } catch (IOException e) {
+        // expected
+      } finally {
+        Thread.interrupted();
+      }
+
+      raf.readFully(60000, b, 0, b.length);
+      check(b, 60000);
+      ByteBuffer direct = ByteBuffer.allocateDirect(b.length);
+      raf.readFully(70000, direct);
+      direct.flip();
+      direct.get(b);
+      check(b, 70000);
+    }
+  }
+
+  @Test
+  public void testPositionalReadAfterClose() throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(tempFile.getPath(), "r");
+    raf.readFully(0, new byte[10], 0, 10);
+    raf.close();
+    try {
+      raf.readFully(0, new byte[10], 0, 10);
+      Assert.fail("read after close should fail");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+package ucar.unidata.io;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Test the array reads of RandomAccessFile against reading one value at a time, in both byte orders.
+ *
+ * @since 10/18/2026
+ */
+public class TestRandomAccessFileReadArray {
+  private static final int SIZE = 50 * 1000 + 3; // not a multiple of any element size
+  private File tempFile;
+
+  @Before
+  public void makeFile() throws IOException {
+    tempFile = File.createTempFile("TestRandomAccessFileReadArray", ".bin");
+    byte[] data = new byte[SIZE];
+    new Random(17).nextBytes(data);
+    try (FileOutputStream out = new FileOutputStream(tempFile)) {
+      out.write(data);
+    }
+  }
+
+  @After
+  public void deleteFile() {
+    if (!tempFile.delete())
+      tempFile.deleteOnExit();
+  }
+
+  @Test
+  public void testArrayReads() throws IOException {
+    // odd buffer size and start position, so elements straddle the buffer boundaries
+    try (RandomAccessFile bulk = new RandomAccessFile(tempFile.getPath(), "r", 1001);
+         RandomAccessFile single = new RandomAccessFile(tempFile.getPath(), "r", 1001)) {
+
+      for (int endian : new int[] {RandomAccessFile.BIG_ENDIAN, RandomAccessFile.LITTLE_ENDIAN}) {
+        bulk.order(endian);
+        single.order(endian);
+        int n = (SIZE - 3) / 8;
+
+        bulk.seek(3);
+        single.seek(3);
+        short[] sa = new short[4 * n];
+        bulk.readShort(sa, 0, sa.length);
+        for (short val : sa) Assert.assertEquals(single.readShort(), val);
+        Assert.assertEquals(single.getFilePointer(), bulk.getFilePointer());
+
+        bulk.seek(3);
+        single.seek(3);
+        int[] ia = new int[2 * n];
+        bulk.readInt(ia, 0, ia.length);
+        for (int val : ia) Assert.assertEquals(single.readInt(), val);
+
+        bulk.seek(3);
+        single.seek(3);
+        long[] la = new long[n];
+        bulk.readLong(la, 0, la.length);
+        for (long val : la) Assert.assertEquals(single.readLong(), val);
+
+        bulk.seek(3);
+        single.seek(3);
+        float[] fa = new float[2 * n + 1];
+        bulk.readFloat(fa, 1, fa.length - 1);
+        for (int i = 1; i < fa.length; i++)
+          Assert.assertEquals(Float.floatToRawIntBits(single.readFloat()), Float.floatToRawIntBits(fa[i]));
+
+        bulk.seek(3);
+        single.seek(3);
+        double[] da = new double[n];
+        bulk.readDouble(da, 0, da.length);
+        for (double val : da)
+          Assert.assertEquals(Double.doubleToRawLongBits(single.readDouble()), Double.doubleToRawLongBits(val));
+        Assert.assertEquals(single.getFilePointer(), bulk.getFilePointer());
+      }
+    }
+  }
+
+  @Test(expected = EOFException.class)
+  public void testEof() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(tempFile.getPath(), "r", 1001)) {
+      raf.seek(SIZE - 8);
+      raf.readInt(new int[4], 0, 4);
+    }
+  }
+}
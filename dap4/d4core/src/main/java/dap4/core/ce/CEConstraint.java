@@ -12,6 +12,7 @@ import dap4.core.dmr.parser.ParseException;
 import dap4.core.util.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A Constraint is a structure
@@ -256,7 +257,7 @@ public class CEConstraint implements Constraint
     //////////////////////////////////////////////////
     // class variables and methods
 
-    static protected Map<DapDataset, CEConstraint> universals = new HashMap<>();
+    static protected Map<DapDataset, CEConstraint> universals = new ConcurrentHashMap<>();
 
 
     static public CEConstraint
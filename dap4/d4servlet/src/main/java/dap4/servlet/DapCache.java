@@ -3,26 +3,37 @@
 
 package dap4.servlet;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import dap4.core.ce.CEConstraint;
 import dap4.core.data.DSP;
 import dap4.core.data.DSPRegistry;
+import dap4.core.dmr.DapDataset;
 import dap4.core.util.DapContext;
 import dap4.core.util.DapException;
 import dap4.dap4lib.DapCodes;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 
 /**
- * Provide an LRU cache of DSPs.
+ * Provide a cache of DSPs, keyed by path.
  * It is expected (for now) that this is only used on the server side.
- * The cache key is assumed to be the DSP object.
- * The cache is synchronized to avoid race conditions.
+ * The cache is a concurrent guava cache, so requests for different
+ * paths do not wait on each other, and concurrent requests for the
+ * same path open it only once.
+ * Each entry is weighted by the size of its DMR, and the cache evicts
+ * the least recently used entries when the total weight exceeds
+ * the maximum. Entries may also expire when they are not used for a while.
  * Note that we do not have to release because Java
  * uses garbage collection and entries will be purged
- * if the LRU cache is full.
+ * if the cache is full.
  * Singleton class
  */
 
@@ -32,7 +43,9 @@ abstract public class DapCache
     //////////////////////////////////////////////////
     // Constants
 
-    static final int MAXFILES = 100; // size of the cache
+    static public final long MAXWEIGHT = 100 * 1000; // default total weight of the cache, in DMR nodes
+
+    static public final long EXPIRESECONDS = 0; // default time to keep an unused entry; 0 means forever
 
     static public final String MATCHMETHOD = "dspMatch";
 
@@ -45,9 +58,9 @@ abstract public class DapCache
     static public DSPRegistry dspregistry = new DSPRegistry();
 
     /**
-     * Define an lru cache of known DSP objects: oldest first.
+     * The cache of known DSP objects.
      */
-    static protected List<DSP> lru = new ArrayList<DSP>();
+    static protected volatile Cache<String, DSP> cache = makeCache(MAXWEIGHT, EXPIRESECONDS);
 
     // This should be set by any subclass
     static protected DSPFactory factory = null;
@@ -62,50 +75,105 @@ abstract public class DapCache
         return factory;
     }
 
-    static public synchronized DSP open(String path, DapContext cxt)
+    /**
+     * Change the size of the cache. The current entries are discarded.
+     *
+     * @param maxWeight     maximum total weight of the entries; an entry weighs
+     *                      one plus the number of nodes in its DMR
+     * @param expireSeconds discard entries not used for this many seconds;
+     *                      0 means never
+     */
+    static public synchronized void setCacheParameters(long maxWeight, long expireSeconds)
+    {
+        Cache<String, DSP> old = cache;
+        cache = makeCache(maxWeight, expireSeconds);
+        old.invalidateAll();
+    }
+
+    static protected Cache<String, DSP> makeCache(long maxWeight, long expireSeconds)
+    {
+        CacheBuilder<String, DSP> builder = CacheBuilder.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Weigher<String, DSP>) (path, dsp) -> weigh(dsp))
+                .removalListener((RemovalListener<String, DSP>) notice -> release(notice.getValue()))
+                .recordStats();
+        if(expireSeconds > 0)
+            builder.expireAfterAccess(expireSeconds, TimeUnit.SECONDS);
+        return builder.build();
+    }
+
+    static public DSP open(final String path, final DapContext cxt)
             throws IOException
     {
         assert cxt != null;
-        int lrusize = lru.size();
-        for(int i = lrusize - 1; i >= 0; i--) {
-            DSP dsp = lru.get(i);
-            String dsppath = dsp.getLocation();
-            if(dsppath.equals(path)) {
-                // move to the front of the queue to maintain LRU property
-                lru.remove(i);
-                lru.add(dsp);
-                CEConstraint.release(lru.get(0).getDMR());
+        try {
+            // If not found, create and initialize it; concurrent
+            // requests for the same path wait for this one.
+            return cache.get(path, () -> {
+                // Find dsp that can process this path
+                DSP dsp = dspregistry.findMatchingDSP(path, cxt);
+                if(dsp == null)
+                    throw new DapException("Resource has no matching DSP: " + path)
+                            .setCode(DapCodes.SC_FORBIDDEN);
+                dsp.setContext(cxt);
+                dsp.open(path);
                 return dsp;
-            }
+            });
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof IOException)
+                throw (IOException) cause;
+            throw new DapException(cause);
+        } catch (UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw e;
         }
-        // No match found, create and initialize it.
-        // If cache is full, remove oldest entry
-        if(lrusize == MAXFILES) {
-            // make room
-            lru.remove(0);
-            CEConstraint.release(lru.get(0).getDMR());
-        }
-        // Find dsp that can process this path
-        DSP dsp = dspregistry.findMatchingDSP(path,cxt);
-        if(dsp == null)
-            throw new DapException("Resource has no matching DSP: " + path)
-                    .setCode(DapCodes.SC_FORBIDDEN);
-        dsp.setContext(cxt);
-        dsp.open(path);
-        lru.add(dsp);
-        return dsp;
+    }
+
+    /**
+     * @return hit, miss, load and eviction counts since the cache was made
+     */
+    static public CacheStats getStats()
+    {
+        return cache.stats();
     }
 
     static synchronized public void flush() // for testing
             throws Exception
     {
-        while(lru.size() > 0) {
-            DSP dsp = lru.get(0);
-            CEConstraint.release(dsp.getDMR());
+        for(DSP dsp : cache.asMap().values())
             dsp.close();
-            lru.remove(0);
+        cache.invalidateAll();
+    }
+
+    //////////////////////////////////////////////////
+    // Utilities
+
+    // The DMR is the bulk of what a DSP keeps in memory
+    static protected int weigh(DSP dsp)
+    {
+        try {
+            DapDataset dmr = dsp.getDMR();
+            if(dmr != null && dmr.getNodeList() != null)
+                return 1 + dmr.getNodeList().size();
+        } catch (DapException de) {
+            // fall through
         }
+        return 1;
     }
 
+    // Evicted entries are not closed, because another request may still be using them
+    static protected void release(DSP dsp)
+    {
+        try {
+            DapDataset dmr = dsp.getDMR();
+            if(dmr != null)
+                CEConstraint.release(dmr);
+        } catch (DapException de) {
+            // ignore
+        }
+    }
 
 } // DapCache
@@ -13,11 +13,23 @@ import dap4.core.util.DapException;
 import dap4.core.util.Index;
 import dap4.core.util.Odometer;
 import dap4.core.util.Slice;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Given a DSP, serialize
@@ -26,6 +38,33 @@ import java.util.List;
 
 public class DapSerializer
 {
+    static public boolean PIPELINE = true; // make it mutable; false => encode on the writing thread
+
+    //////////////////////////////////////////////////
+    // Constants
+
+    static final int MAXPOOL = 2; // number of encoding buffers to keep
+
+    // max number of encoding threads shared by all responses
+    static final int MAXENCODERS = Runtime.getRuntime().availableProcessors();
+
+    //////////////////////////////////////////////////
+    // Static variables
+
+    // Shared by all responses; each response has at most one encode pending.
+    // When all the threads are busy, the request thread does its own encoding.
+    static protected ExecutorService encodepool = null;
+
+    static synchronized protected ExecutorService
+    getEncodePool()
+    {
+        if(encodepool == null)
+            encodepool = new ThreadPoolExecutor(0, MAXENCODERS, 60L, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(),
+                    new ThreadFactoryBuilder().setNameFormat("DapSerializer-encode-%d").setDaemon(true).build());
+        return encodepool;
+    }
+
     //////////////////////////////////////////////////
     // Instance variables
 
@@ -35,6 +74,7 @@ public class DapSerializer
     protected CEConstraint ce = null;
     protected ByteOrder order = null;
     protected ChecksumMode checksummode = null;
+    protected final Deque<ByteBuffer> bufferpool = new ArrayDeque<>();
 
     //////////////////////////////////////////////////
     // Constructor(s)
@@ -62,20 +102,139 @@ public class DapSerializer
         this.ce = constraint;
     }
 
+    /**
+     * Write the top-level variables in the constraint.
+     * When one atomic variable is followed by another, the next one
+     * is read and encoded on a worker thread while this one is
+     * written out, on a pool shared by all responses; if the pool
+     * is busy, it is encoded on this thread when its turn comes.
+     * Only one thread uses the DSP at a time.
+     *
+     * @param dmr the dataset
+     * @throws IOException
+     */
     public void
     write(DapDataset dmr)
             throws IOException
     {
         writer = new SerialWriter(this.stream, this.order, this.checksummode);
         writer.flush(); // If stream is ChunkWriter, then dump DMR
-        // Iterate over the top-level variables in the constraint
+        // Collect the top-level variables in the constraint
+        List<DapVariable> vars = new ArrayList<>();
         for(DapVariable var : dmr.getTopVariables()) {
-            if(!this.ce.references(var))
-                continue;
-            DataCursor vardata = this.dsp.getVariableData(var);
-            if(vardata == null)
-                throw new dap4.core.util.DapException("DapSerializer: cannot find  Variable data " + var.getFQN());
-            writeVariable(vardata, writer);
+            if(this.ce.references(var))
+                vars.add(var);
+        }
+        ExecutorService exec = (PIPELINE && vars.size() > 1) ? getEncodePool() : null;
+        Future<ByteBuffer> next = null;
+        try {
+            for(int i = 0; i < vars.size(); i++) {
+                DapVariable var = vars.get(i);
+                if(!isAtomic(var)) {
+                    writeVariable(getVariableData(var), writer);
+                    continue;
+                }
+                ByteBuffer buf;
+                if(next != null) {
+                    buf = waitFor(next);
+                    next = null;
+                } else
+                    buf = encodeAtomicVariable(var);
+                // start on the next variable before writing this one
+                if(exec != null && i + 1 < vars.size() && isAtomic(vars.get(i + 1))) {
+                    final DapVariable nextvar = vars.get(i + 1);
+                    try {
+                        next = exec.submit(() -> encodeAtomicVariable(nextvar));
+                    } catch (RejectedExecutionException e) {
+                        next = null; // all encoders busy
+                    }
+                }
+                writer.startVariable();
+                writer.writeEncodedArray(var.getBaseType(), buf);
+                writer.endVariable();
+                releaseBuffer(buf);
+            }
+        } finally {
+            if(next != null) { // failed; let the worker finish with the DSP
+                try {
+                    next.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // already failing
+                }
+            }
+        }
+    }
+
+    protected DataCursor
+    getVariableData(DapVariable var)
+            throws IOException
+    {
+        DataCursor vardata = this.dsp.getVariableData(var);
+        if(vardata == null)
+            throw new dap4.core.util.DapException("DapSerializer: cannot find  Variable data " + var.getFQN());
+        return vardata;
+    }
+
+    protected boolean
+    isAtomic(DapVariable var)
+    {
+        return var.getBaseType().isAtomic();
+    }
+
+    /**
+     * Read and encode the constrained values of an atomic variable.
+     *
+     * @param var the variable
+     * @return the encoded values, from 0 to the buffer's position
+     * @throws IOException
+     */
+    protected ByteBuffer
+    encodeAtomicVariable(DapVariable var)
+            throws IOException
+    {
+        DataCursor data = getVariableData(var);
+        assert data.getScheme() == DataCursor.Scheme.ATOMIC;
+        List<Slice> slices = ce.getConstrainedSlices(var);
+        if(slices == null)
+            throw new DapException("Unknown variable: " + var.getFQN());
+        Object values = data.read(slices);
+        return SerialWriter.encodeArray(var.getBaseType(), values, this.order, getBuffer());
+    }
+
+    protected ByteBuffer
+    waitFor(Future<ByteBuffer> future)
+            throws IOException
+    {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DapException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof IOException)
+                throw (IOException) cause;
+            throw new DapException(cause);
+        }
+    }
+
+    // Encoding buffers are reused; at most two are in use at a time
+    protected ByteBuffer
+    getBuffer()
+    {
+        synchronized (bufferpool) {
+            return bufferpool.pollFirst();
+        }
+    }
+
+    protected void
+    releaseBuffer(ByteBuffer buf)
+    {
+        synchronized (bufferpool) {
+            if(bufferpool.size() < MAXPOOL)
+                bufferpool.addFirst(buf);
         }
     }
 
@@ -50,6 +50,9 @@ public class SerialWriter
 
     static final int COUNTSIZE = 8;
 
+    // Large arrays are written and checksummed this many bytes at a time
+    static final int BLOCKSIZE = 64 * 1024;
+
     //////////////////////////////////////////////////
     // Instance variables
 
@@ -113,12 +116,29 @@ public class SerialWriter
     static public ByteBuffer
     encodeArray(DapType vtype, Object values, ByteOrder order)
             throws IOException
+    {
+        return encodeArray(vtype, values, order, null);
+    }
+
+    /**
+     * Encode an array of primitive values, reusing a buffer if it is big enough.
+     *
+     * @param vtype  The type of the object
+     * @param values The value array
+     * @param reuse  Use this buffer if it is big enough, may be null
+     * @return bytebuffer encoding of the array; the encoding
+     * is from 0 to the buffer's position.
+     */
+
+    static public ByteBuffer
+    encodeArray(DapType vtype, Object values, ByteOrder order, ByteBuffer reuse)
+            throws IOException
     {
         TypeSort atomtype = vtype.getAtomicType();
         assert values != null && values.getClass().isArray();
         int count = Array.getLength(values);
         int total = (int) TypeSort.getSize(atomtype) * count;
-        ByteBuffer buf = ByteBuffer.allocate(total).order(order);
+        ByteBuffer buf = makeBuffer(total, order, reuse);
         switch (atomtype) {
         case Char:
             char[] datac = (char[]) values;
@@ -171,7 +191,7 @@ public class SerialWriter
                 byte[] bytes = content.getBytes(DapUtil.UTF8);
                 total += (bytes.length + COUNTSIZE);
             }
-            buf = ByteBuffer.allocate(total).order(order);
+            buf = makeBuffer(total, order, reuse);
             // Pass 2: write the strings
             for(int i = 0; i < datas.length; i++) {
                 String content = datas[i];
@@ -194,7 +214,7 @@ public class SerialWriter
                 size = opaquedata.remaining(); // should be limit - pos
                 total += (size + COUNTSIZE);
             }
-            buf = ByteBuffer.allocate(total).order(order);
+            buf = makeBuffer(total, order, reuse);
             // Pass 2: write the opaque elements
             for(int i = 0; i < datao.length; i++) {
                 ByteBuffer opaquedata = (ByteBuffer) datao[i];
@@ -214,6 +234,14 @@ public class SerialWriter
         return buf;
     }
 
+    static protected ByteBuffer
+    makeBuffer(int total, ByteOrder order, ByteBuffer reuse)
+    {
+        ByteBuffer buf = (reuse != null && reuse.capacity() >= total) ? reuse : ByteBuffer.allocate(total);
+        buf.clear();
+        return buf.order(order);
+    }
+
     //////////////////////////////////////////////////
     // Dataset oriented writes
 
@@ -298,6 +326,21 @@ public class SerialWriter
     {
         assert values != null && values.getClass().isArray();
         ByteBuffer buf = SerialWriter.encodeArray(daptype, values, this.order);
+        writeEncodedArray(daptype, buf);
+    }
+
+    /**
+     * Write out an array of atomic values already encoded
+     * by encodeArray()
+     *
+     * @param daptype type of the values
+     * @param buf the encoded values, from 0 to the buffer's position
+     * @throws IOException
+     */
+    public void
+    writeEncodedArray(DapType daptype, ByteBuffer buf)
+            throws IOException
+    {
         byte[] bytes = buf.array();
         int len = buf.position();
         writeBytes(bytes, len);
@@ -312,7 +355,10 @@ public class SerialWriter
     }
 
     /**
-     * Write out a set of bytes
+     * Write out a set of bytes.
+     * Large arrays are written a block at a time, and the
+     * checksum is updated as each block goes out, while it
+     * is still in the cache.
      *
      * @param bytes
      * @param len
@@ -322,16 +368,19 @@ public class SerialWriter
     writeBytes(byte[] bytes, int len)
             throws IOException
     {
-        outputBytes(bytes, 0, len);
-        if(this.checksummode.enabled(ChecksumMode.DAP)) {
-            this.checksum.update(bytes, 0, len);
-            if(DUMPCSUM) {
-                System.err.print("SSS ");
-                for(int i = 0; i < len; i++) {
-                    System.err.printf("%02x", bytes[i]);
-                }
-                System.err.println();
+        boolean csum = this.checksummode.enabled(ChecksumMode.DAP);
+        for(int start = 0; start < len; start += BLOCKSIZE) {
+            int count = Math.min(BLOCKSIZE, len - start);
+            outputBytes(bytes, start, count);
+            if(csum)
+                this.checksum.update(bytes, start, count);
+        }
+        if(csum && DUMPCSUM) {
+            System.err.print("SSS ");
+            for(int i = 0; i < len; i++) {
+                System.err.printf("%02x", bytes[i]);
             }
+            System.err.println();
         }
     }
 
@@ -350,7 +399,7 @@ public class SerialWriter
         if(DUMPDATA) {
             System.err.printf("output %d/%d:", start, count);
             for(int i = 0; i < count; i++) {
-                System.err.printf(" %02x", bytes[i]);
+                System.err.printf(" %02x", bytes[start + i]);
             }
             System.err.println("");
             System.err.flush();
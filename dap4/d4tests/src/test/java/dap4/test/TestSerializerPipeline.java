@@ -0,0 +1,132 @@
+package dap4.test;
+
+import dap4.core.ce.CEConstraint;
+import dap4.core.data.ChecksumMode;
+import dap4.core.util.DapContext;
+import dap4.core.util.DapUtil;
+import dap4.servlet.DapSerializer;
+import dap4.servlet.SynDSP;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Test that DapSerializer writes the same bytes,
+ * checksums included, whether or not the encoding
+ * of the next variable is pipelined with the output
+ * of the current one.
+ */
+public class TestSerializerPipeline extends DapTestCommon
+{
+    private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    //////////////////////////////////////////////////
+    // Constants
+
+    static final String TESTFILESINPUT = "testfiles";
+
+    static final String[] TESTFILES = new String[]{
+            "test_atomic_array.syn",
+            "test_atomic_types.syn",
+            "test_struct_array.syn",
+            "test_sequence_1.syn",
+            "test_anon_dim.syn",
+    };
+
+    static final int NTHREADS = 4;
+
+    //////////////////////////////////////////////////
+    // Instance variables
+
+    protected String inputdir = null;
+
+    //////////////////////////////////////////////////
+
+    @Before
+    public void setup() throws Exception
+    {
+        this.inputdir = DapUtil.absolutize(getResourceRoot()) + "/" + TESTFILESINPUT;
+    }
+
+    //////////////////////////////////////////////////
+    // Junit test methods
+
+    @Test
+    public void testPipelineSameBytes()
+            throws Exception
+    {
+        boolean save = DapSerializer.PIPELINE;
+        try {
+            for(String file : TESTFILES) {
+                for(ChecksumMode mode : new ChecksumMode[]{ChecksumMode.DAP, ChecksumMode.NONE}) {
+                    for(ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+                        DapSerializer.PIPELINE = false;
+                        byte[] serial = serialize(file, mode, order);
+                        DapSerializer.PIPELINE = true;
+                        byte[] pipelined = serialize(file, mode, order);
+                        Assert.assertTrue(file + " " + mode + " " + order, serial.length > 0);
+                        Assert.assertArrayEquals(file + " " + mode + " " + order, serial, pipelined);
+                    }
+                }
+            }
+        } finally {
+            DapSerializer.PIPELINE = save;
+        }
+    }
+
+    // Many responses at once share the encoding pool.
+    // PIPELINE is static, so it is set once for the whole test, never by the threads.
+    @Test
+    public void testPipelineConcurrent()
+            throws Exception
+    {
+        boolean save = DapSerializer.PIPELINE;
+        ExecutorService exec = Executors.newFixedThreadPool(NTHREADS);
+        try {
+            DapSerializer.PIPELINE = false;
+            List<byte[]> expected = new ArrayList<>();
+            for(String file : TESTFILES)
+                expected.add(serialize(file, ChecksumMode.DAP, ByteOrder.BIG_ENDIAN));
+
+            DapSerializer.PIPELINE = true;
+            List<Future<byte[]>> results = new ArrayList<>();
+            for(int i = 0; i < 10 * NTHREADS; i++) {
+                final String file = TESTFILES[i % TESTFILES.length];
+                results.add(exec.submit(() -> serialize(file, ChecksumMode.DAP, ByteOrder.BIG_ENDIAN)));
+            }
+            for(int i = 0; i < results.size(); i++) {
+                String file = TESTFILES[i % TESTFILES.length];
+                Assert.assertArrayEquals(file, expected.get(i % TESTFILES.length), results.get(i).get());
+            }
+        } finally {
+            exec.shutdown();
+            DapSerializer.PIPELINE = save;
+        }
+    }
+
+    //////////////////////////////////////////////////
+
+    // Serialize with the current setting of DapSerializer.PIPELINE
+    protected byte[]
+    serialize(String file, ChecksumMode mode, ByteOrder order)
+            throws Exception
+    {
+        SynDSP dsp = new SynDSP();
+        dsp.setContext(new DapContext());
+        dsp.open(this.inputdir + "/" + file);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        new DapSerializer(dsp, CEConstraint.getUniversal(dsp.getDMR()), bos, order, mode).write(dsp.getDMR());
+        return bos.toByteArray();
+    }
+}
@@ -6,6 +6,7 @@
 package ucar.nc2.grib.collection;
 
 import com.beust.jcommander.*;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import thredds.featurecollection.FeatureCollectionConfig;
@@ -17,6 +18,7 @@ import thredds.inventory.filter.StreamFilter;
 import thredds.inventory.partition.*;
 import ucar.nc2.constants.CDM;
 import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.grib.GribIndex;
 import ucar.nc2.grib.GribIndexCache;
 import ucar.nc2.grib.grib1.Grib1RecordScanner;
 import ucar.nc2.grib.grib2.Grib2RecordScanner;
@@ -37,7 +39,10 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Formatter;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Utilities for creating GRIB CDM index (ncx) files, both collections and partitions
@@ -91,6 +96,127 @@ public class GribCdmIndex implements IndexReader {
 
   static public void shutdown() {
     if (gribCollectionCache != null) gribCollectionCache.clearCache(true);
+    shutdownIndexPool();
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+
+  // read or create the gbx9 indexes of a collection on this many threads; 1 means serially in the calling thread
+  static private int indexThreads = 1;
+  static private ExecutorService indexPool;
+
+  /**
+   * Read or create the gbx9 indexes of the files in a collection concurrently, on a pool of this many threads
+   * shared by all collections being built. The indexes are still used one at a time, in file order, so the
+   * collection index is the same as when they are made serially.
+   * @param n number of threads; 1 (the default) reads or creates them serially in the calling thread.
+   */
+  static public synchronized void setIndexThreads(int n) {
+    if (n < 1) throw new IllegalArgumentException("indexThreads must be >= 1");
+    if (n != indexThreads && indexPool != null) {
+      indexPool.shutdown(); // let running tasks finish
+      indexPool = null;
+    }
+    indexThreads = n;
+    if (n > 1 && indexPool == null)
+      indexPool = Executors.newFixedThreadPool(n,
+              new ThreadFactoryBuilder().setNameFormat("GribIndex-%d").setDaemon(true).build());
+  }
+
+  static public synchronized int getIndexThreads() {
+    return indexThreads;
+  }
+
+  // null if indexThreads is 1
+  static synchronized ExecutorService getIndexPool() {
+    return indexPool;
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+
+  static private volatile boolean indexMemoryMapped = true;
+
+  /**
+   * Parse the GribCollection message of a large local ncx file straight from a memory mapped buffer, instead of
+   * reading it into a byte array first. On by default. Turn off where mapped files cannot be replaced, eg on Windows,
+   * where the TDM may rewrite an ncx file before the mapping is garbage collected.
+   * @param memoryMapped true to memory map
+   */
+  static public void setIndexMemoryMapped(boolean memoryMapped) {
+    indexMemoryMapped = memoryMapped;
+  }
+
+  static public boolean isIndexMemoryMapped() {
+    return indexMemoryMapped;
+  }
+
+  // skip leaves that have not changed since the partition index was written
+  static private volatile boolean skipUnchangedLeaves = false;
+  static private final AtomicInteger countLeavesSkipped = new AtomicInteger();
+
+  /**
+   * A CollectionUpdateType.test update of a directory or file partition normally checks every file of every leaf.
+   * With this on, it skips the leaves that have not changed since the partition index was written: a leaf file or
+   * directory is unchanged if its index is not newer than the partition index, and the file, or the directory and
+   * every data file in it, is older than the leaf index. Index files (ncx4, gbx9) in the directory are ignored.
+   * This only saves checking the leaves. The partition index is still rebuilt from all of its children when
+   * any of them changes, reading each child's index. It is not patched in place.
+   * The check relies on last modified times, so a file rewritten with an older timestamp is missed until an
+   * update with this off.
+   * @param skip true to skip unchanged leaves; default false
+   */
+  static public void setSkipUnchangedLeaves(boolean skip) {
+    skipUnchangedLeaves = skip;
+  }
+
+  static public boolean isSkipUnchangedLeaves() {
+    return skipUnchangedLeaves;
+  }
+
+  /** @return number of unchanged leaves skipped since startup */
+  static public int getCountLeavesSkipped() {
+    return countLeavesSkipped.get();
+  }
+
+  // last modified time of an existing index, or 0
+  static private long getIndexLastModified(String indexFilename) {
+    File indexFile = GribIndexCache.getExistingFileOrCache(indexFilename);
+    return (indexFile == null) ? 0 : indexFile.lastModified();
+  }
+
+  // true if skipping unchanged leaves, and the leaf has not changed since the parent index was written
+  static private boolean isUnchanged(MCollection part, File source, long parentIndexModified, CollectionUpdateType updateType) {
+    if (!skipUnchangedLeaves || updateType != CollectionUpdateType.test || parentIndexModified == 0) return false;
+    long partIndexModified = getIndexLastModified(part.getIndexFilename(NCX_SUFFIX));
+    if (partIndexModified == 0 || partIndexModified > parentIndexModified) return false;
+
+    if (source.isDirectory()) {
+      // the leaf index is written last, in place, so its own rewrite leaves the directory no newer than it
+      if (source.lastModified() > partIndexModified) return false;
+      File[] files = source.listFiles();
+      if (files == null) return false;
+      for (File f : files) {  // files rewritten in place dont change the directory
+        if (isIndexFile(f.getName())) continue;
+        if (f.lastModified() >= partIndexModified) return false;
+      }
+
+    } else if (source.lastModified() >= partIndexModified) {
+      return false;
+    }
+
+    countLeavesSkipped.incrementAndGet();
+    return true;
+  }
+
+  // the leaf and record indexes are rewritten by the update itself, only data files count as changes
+  static private boolean isIndexFile(String name) {
+    return name.endsWith(NCX_SUFFIX) || name.endsWith(GribIndex.GBX9_IDX);
+  }
+
+  static private synchronized void shutdownIndexPool() {
+    indexThreads = 1;
+    if (indexPool != null) indexPool.shutdownNow();
+    indexPool = null;
   }
 
   /////////////////////////////////////////////////////////////////////////////////////////////////
@@ -434,6 +560,8 @@ public class GribCdmIndex implements IndexReader {
     if (!isUpdateNeeded(dpart.getIndexFilename(NCX_SUFFIX), updateType, (isGrib1 ? GribCollectionType.Partition1 : GribCollectionType.Partition2), logger)) return false;
 
     long start = System.currentTimeMillis();
+    long indexModified = getIndexLastModified(dpart.getIndexFilename(NCX_SUFFIX));
+    int countUnchanged = 0;
 
     // check the children partitions first
     if (updateType != CollectionUpdateType.testIndexOnly) {   // skip children on testIndexOnly
@@ -444,6 +572,10 @@ public class GribCdmIndex implements IndexReader {
             updateDirectoryCollectionRecurse(isGrib1, (DirectoryPartition) part, config, updateType, logger);
           } else {
             Path partPath = Paths.get(part.getRoot());
+            if (isUnchanged(part, partPath.toFile(), indexModified, updateType)) {
+              countUnchanged++;
+              continue;
+            }
             updateLeafCollection(isGrib1, config, updateType, false, logger, partPath); // LOOK why not using part ??
           }
         } catch (IllegalStateException t) {
@@ -463,7 +595,7 @@ public class GribCdmIndex implements IndexReader {
       boolean changed = updatePartition(isGrib1, dpart, updateType, logger, errlog);
 
       long took = System.currentTimeMillis() - start;
-      errlog.format(" INFO updateDirectoryCollectionRecurse %s took %d msecs%n", dpart.getRoot(), took);
+      errlog.format(" INFO updateDirectoryCollectionRecurse %s took %d msecs, %d unchanged leaves skipped%n", dpart.getRoot(), took, countUnchanged);
       if (debug) System.out.printf("GribCdmIndex.updateDirectoryCollectionRecurse complete (%s) on %s errlog=%s%n", changed, dpart.getRoot(), errlog);
       return changed;
 
@@ -536,6 +668,8 @@ public class GribCdmIndex implements IndexReader {
         return false;
 
       final AtomicBoolean anyChange = new AtomicBoolean(false); // just need a mutable boolean we can declare final
+      final long indexModified = getIndexLastModified(partition.getIndexFilename(NCX_SUFFIX));
+      final AtomicInteger countUnchanged = new AtomicInteger();
 
       // redo the children here
       if (updateType != CollectionUpdateType.testIndexOnly) {   // skip children on testIndexOnly
@@ -543,6 +677,10 @@ public class GribCdmIndex implements IndexReader {
           public void consume(MFile mfile) {
             MCollection part = new CollectionSingleFile(mfile, logger);
             part.putAuxInfo(FeatureCollectionConfig.AUX_CONFIG, config);
+            if (isUnchanged(part, new File(mfile.getPath()), indexModified, updateType)) {
+              countUnchanged.incrementAndGet();
+              return;
+            }
 
             try {
               boolean changed = updateGribCollection(isGrib1, part, updateType, FeatureCollectionConfig.PartitionType.file, logger, errlog);
@@ -567,7 +705,7 @@ public class GribCdmIndex implements IndexReader {
         boolean recreated = updatePartition(isGrib1, partition, updateType, logger, errlog);
 
         long took = System.currentTimeMillis() - start;
-        if (recreated) logger.info("RewriteFilePartition {} took {} msecs", partition.getCollectionName(), took);
+        if (recreated) logger.info("RewriteFilePartition {} took {} msecs, {} unchanged files skipped", partition.getCollectionName(), took, countUnchanged.get());
         return recreated;
 
       } catch (IllegalStateException t) {
@@ -24,9 +24,17 @@ import ucar.nc2.time.CalendarDateRange;
 import ucar.nc2.util.CloseableIterator;
 import ucar.unidata.util.StringUtil2;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Superclass to build indexes for collections of Grib files.
@@ -104,6 +112,110 @@ abstract class GribCollectionBuilder {
     return false;
   }
 
+  //////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Read or create the gbx9 index of each file in the collection, in the order of dcm.getFileIterator().
+   * If GribCdmIndex.setIndexThreads() is > 1, the indexes of the next few files are made on the shared pool
+   * while the caller uses the current one.
+   * @return reader of the indexes, must be closed; or null if the collection has no files
+   */
+  protected FileIndexReader openFileIndexes() throws IOException {
+    CloseableIterator<MFile> iter = dcm.getFileIterator(); // not sorted
+    if (iter == null) return null;
+    return new FileIndexReader(iter, GribCdmIndex.getIndexPool(), GribCdmIndex.getIndexThreads());
+  }
+
+  // this is where gbx9 files get recreated; may be called on a pool thread
+  private FileIndex readFileIndex(MFile mfile) {
+    try {
+      GribIndex index;
+      if (Grib.debugGbxIndexOnly)
+        index = GribIndex.open(isGrib1, mfile);
+      else
+        index = GribIndex.readOrCreateIndexFromSingleFile(isGrib1, mfile, CollectionUpdateType.test, logger);
+      return new FileIndex(mfile, index, null);
+
+    } catch (IOException ioe) {
+      return new FileIndex(mfile, null, ioe);
+    }
+  }
+
+  // the gbx9 index of one file
+  static protected class FileIndex {
+    final MFile mfile;
+    final GribIndex index;    // may be null
+    final IOException failure; // non-null if reading or creating the index failed
+
+    FileIndex(MFile mfile, GribIndex index, IOException failure) {
+      this.mfile = mfile;
+      this.index = index;
+      this.failure = failure;
+    }
+  }
+
+  // Returns the FileIndex of each file in file order. Keeps at most 2 * nthreads of them in flight, so the
+  // records of only a few files are in memory ahead of the caller.
+  protected class FileIndexReader implements Closeable {
+    private final CloseableIterator<MFile> files;
+    private final ExecutorService pool; // null means read serially
+    private final int window;
+    private final Deque<Future<FileIndex>> pending = new ArrayDeque<>();
+
+    private FileIndexReader(CloseableIterator<MFile> files, ExecutorService pool, int nthreads) {
+      this.files = files;
+      this.pool = pool;
+      this.window = 2 * nthreads;
+    }
+
+    /**
+     * @return the next file and its index, or null when there are no more files
+     */
+    public FileIndex next() throws IOException {
+      if (pool == null)
+        return files.hasNext() ? readFileIndex(files.next()) : null;
+
+      while (pending.size() < window && files.hasNext())
+        pending.add(submit(files.next()));
+      Future<FileIndex> future = pending.poll();
+      return (future == null) ? null : get(future);
+    }
+
+    private Future<FileIndex> submit(MFile mfile) {
+      try {
+        return pool.submit(() -> readFileIndex(mfile));
+      } catch (RejectedExecutionException e) { // pool was shut down or replaced, do it here
+        FutureTask<FileIndex> task = new FutureTask<>(() -> readFileIndex(mfile));
+        task.run();
+        return task;
+      }
+    }
+
+    private FileIndex get(Future<FileIndex> future) throws IOException {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("interrupted reading gbx9 indexes for " + name);
+      } catch (CancellationException e) {
+        throw new IOException("reading gbx9 indexes for " + name + " was cancelled", e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        throw new IOException(cause);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      for (Future<FileIndex> future : pending)
+        future.cancel(false); // dont interrupt one that is writing a gbx9
+      pending.clear();
+      files.close();
+    }
+  }
+
   //////////////////////////////////////////////////////////////////////////////////////////////////////////
 
    // throw exception if failure
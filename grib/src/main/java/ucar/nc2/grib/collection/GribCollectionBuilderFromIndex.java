@@ -6,6 +6,7 @@
 package ucar.nc2.grib.collection;
 
 import thredds.featurecollection.FeatureCollectionConfig;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.ExtensionRegistry;
 import thredds.inventory.MFile;
 import ucar.coord.*;
@@ -17,7 +18,11 @@ import ucar.nc2.time.CalendarDateUnit;
 import ucar.nc2.time.CalendarPeriod;
 import ucar.unidata.io.RandomAccessFile;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 /**
@@ -29,6 +34,7 @@ import java.util.*;
 abstract class GribCollectionBuilderFromIndex {
   static protected final boolean debug = false;
   static protected final boolean stackTrace = true;
+  static private final int minMappedSize = 1000 * 1000; // smaller messages are read into a byte array
 
   protected GribCollectionMutable gc;
   protected final org.slf4j.Logger logger;
@@ -85,8 +91,6 @@ abstract class GribCollectionBuilderFromIndex {
       }
       if (debug) System.out.printf("GribCollectionBuilderFromIndex proto len = %d%n", size);
 
-      byte[] m = new byte[size];
-      raf.readFully(m);
 
       /*
       message GribCollection {
@@ -115,7 +119,7 @@ abstract class GribCollectionBuilderFromIndex {
       }
        */
 
-      GribCollectionProto.GribCollection proto = GribCollectionProto.GribCollection.parseFrom(m);
+      GribCollectionProto.GribCollection proto = readGribCollectionMessage(raf, size);
 
       // need to read this first to get this.tables initialized
       gc.center = proto.getCenter();
@@ -165,6 +169,34 @@ abstract class GribCollectionBuilderFromIndex {
     }
   }
 
+  // read the GribCollection message at the current position
+  private GribCollectionProto.GribCollection readGribCollectionMessage(RandomAccessFile raf, int size) throws IOException {
+    long pos = raf.getFilePointer();
+    GribCollectionProto.GribCollection result = parseGribCollectionMessage(raf, pos, size);
+    raf.seek(pos + size);
+    return result;
+  }
+
+  static private byte[] readBytes(RandomAccessFile raf, long pos, int size) throws IOException {
+    byte[] m = new byte[size];
+    raf.seek(pos);
+    raf.readFully(m);
+    return m;
+  }
+
+  static private GribCollectionProto.GribCollection parseGribCollectionMessage(RandomAccessFile raf, long pos, int size) throws IOException {
+    File file = new File(raf.getLocation());
+    if (GribCdmIndex.isIndexMemoryMapped() && size >= minMappedSize && file.isFile()) {
+      // parse from the mapped pages, without copying the message into the heap first
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        MappedByteBuffer mbb = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+        return GribCollectionProto.GribCollection.parseFrom(CodedInputStream.newInstance(mbb));
+      }
+    }
+
+    return GribCollectionProto.GribCollection.parseFrom(readBytes(raf, pos, size));
+  }
+
   protected boolean readExtensions(GribCollectionProto.GribCollection proto) {
     return true;
   }
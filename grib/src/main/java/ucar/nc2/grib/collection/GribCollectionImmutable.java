@@ -26,6 +26,7 @@ import ucar.nc2.time.CalendarDate;
 import ucar.nc2.time.CalendarDateRange;
 import ucar.nc2.util.cache.FileCacheIF;
 import ucar.nc2.util.cache.FileCacheable;
+import ucar.nc2.util.cache.MemoryCache;
 import ucar.nc2.wmo.CommonCodeTable;
 import ucar.unidata.io.RandomAccessFile;
 
@@ -34,6 +35,7 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -42,7 +44,7 @@ import java.util.*;
 
 /**
  * An Immutable GribCollection, corresponds to one index (ncx) file.
- * The index file has already been read; it is opened and the closed when a variable is first accessed to read in the record array (sa).
+ * The index file has already been read; it is opened and the closed when a variable is first accessed to read in the record array.
  * <p>
  * possible we could use the Proto equivalents, and eliminate GribCollectionMutable ?
  *
@@ -54,6 +56,61 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
   static private final Logger logger = LoggerFactory.getLogger(GribCollectionImmutable.class);
   public static int countGC; // debug
 
+  // record tables of all variables, LRU evicted; null means each VariableIndex keeps its own once read
+  static private volatile MemoryCache<RecordsKey, GribRecordTable> recordTableCache;
+
+  /**
+   * Bound the memory used by the record tables of the variables in all GRIB collections.
+   * A variable's records are read from the ncx4 index when it is first read, and by default kept for the life of
+   * the collection. With this set, the least recently used tables are dropped when the total goes over maxBytes,
+   * and are read again when needed. Tables already read by a variable are not affected.
+   * @param maxBytes maximum total size of the record tables; 0 turns the cache off.
+   */
+  static public synchronized void setRecordTableCache(long maxBytes) {
+    if (maxBytes < 0) throw new IllegalArgumentException("maxBytes must be >= 0");
+    if (recordTableCache != null) recordTableCache.clearCache();
+    recordTableCache = (maxBytes == 0) ? null :
+            new MemoryCache<>("GribRecordTableCache", maxBytes, GribRecordTable::getSizeInBytes);
+  }
+
+  /** @return the record table cache, or null if not enabled. */
+  static public MemoryCache<?, ?> getRecordTableCache() {
+    return recordTableCache;
+  }
+
+  // Key in the recordTableCache. Collections opened on the same index share their entries;
+  // an index that has been rewritten gets new ones.
+  private static final class RecordsKey {
+    private final String indexFilename;
+    private final long lastModified;
+    private final long recordsPos;
+
+    RecordsKey(String indexFilename, long lastModified, long recordsPos) {
+      this.indexFilename = indexFilename;
+      this.lastModified = lastModified;
+      this.recordsPos = recordsPos;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      RecordsKey that = (RecordsKey) o;
+      return lastModified == that.lastModified && recordsPos == that.recordsPos &&
+              indexFilename.equals(that.indexFilename);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(indexFilename, lastModified, recordsPos);
+    }
+
+    @Override
+    public String toString() {
+      return indexFilename + "@" + recordsPos;
+    }
+  }
+
   public enum Type {    // must match with GribCollectionProto.Dataset.Type
     SRC,               // GC: Single Runtime Collection                [ntimes]
     MRC,              // GC: Multiple Runtime Collection              [nruns, ntimes]
@@ -93,6 +150,7 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
   protected final Map<Integer, MFile> fileMap; // all the files used in the GC; key is the index in original collection, GC has subset of them
   protected final GribTables cust;
   protected final String indexFilename;       // full path of index Filename
+  private final long indexLastModified;       // of the index when it was read
 
   protected FileCacheIF objCache = null;  // optional object cache - used in the TDS
 
@@ -127,6 +185,7 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
         throw new IllegalStateException(indexFile.getPath() + " does not exist, nor in cache");
       indexFilename = indexFileInCache.getPath();
     }
+    indexLastModified = new File(indexFilename).lastModified();
   }
 
   // overridden in PartitionCollection
@@ -439,7 +498,7 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
     }
   }
 
-  @Immutable      // except for sa
+  @Immutable      // except for records
   public class VariableIndex {
     final GroupGC group;     // belongs to this group
     final VariableIndex.Info info;
@@ -452,8 +511,10 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
     // stats
     final int ndups, nrecords, nmissing;
 
-    // read in on demand
-    private SparseArray<Record> sa;   // for GC only; lazily read; same array shape as variable, minus x and y
+    // read in on demand, for GC only; same array shape as variable, minus x and y.
+    // kept here, or in the recordTableCache if that is set.
+    private volatile GribRecordTable records;
+    private volatile RecordsKey recordsKey; // made on first use, after the collection has its indexFilename
 
     protected VariableIndex(GroupGC g, GribCollectionMutable.VariableIndex gcVar) {
       this.group = g;
@@ -469,11 +530,54 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
       this.nmissing = gcVar.nmissing;
     }
 
-    public synchronized void readRecords() throws IOException {
-      if (this.sa != null) return;
+    /**
+     * Read the records from the index, if not already in memory.
+     * If the recordTableCache is set, they may be dropped later, and are then read again when needed.
+     */
+    public void readRecords() throws IOException {
+      getRecordTable();
+    }
+
+    // the records, reading them if needed; null if there are none
+    private GribRecordTable getRecordTable() throws IOException {
+      GribRecordTable result = records;
+      if (result != null || recordsLen == 0) return result;
+
+      MemoryCache<RecordsKey, GribRecordTable> cache = recordTableCache;
+      if (cache != null)
+        return cache.get(getRecordsKey(), this::readRecordTable);
+
+      synchronized (this) {
+        if (records == null)
+          records = readRecordTable();
+        return records;
+      }
+    }
+
+    // the records if they are in memory, else null
+    private GribRecordTable getRecordTableIfPresent() {
+      GribRecordTable result = records;
+      if (result != null) return result;
+      MemoryCache<RecordsKey, GribRecordTable> cache = recordTableCache;
+      return (cache == null) ? null : cache.getIfPresent(getRecordsKey());
+    }
+
+    private RecordsKey getRecordsKey() {
+      RecordsKey key = recordsKey;
+      if (key == null)
+        recordsKey = key = new RecordsKey(indexFilename, indexLastModified, recordsPos);
+      return key;
+    }
+
+    private GribRecordTable getRecordTableUnchecked() {
+      try {
+        return getRecordTable();
+      } catch (IOException ioe) {
+        throw new UncheckedIOException("reading records of " + name + " from " + indexFilename, ioe);
+      }
+    }
 
-      if (recordsLen == 0)
-        return;
+    private GribRecordTable readRecordTable() throws IOException {
       byte[] b = new byte[recordsLen];
 
       try (RandomAccessFile indexRaf = RandomAccessFile.acquire(indexFilename)) {
@@ -502,13 +606,19 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
           track[i] = proto.getTrack(i);
 
         int n = proto.getRecordsCount();
-        List<Record> records = new ArrayList<>(n);
+        int[] fileno = new int[n];
+        long[] startPos = new long[n];
+        int[] bmsOffset = new int[n];
+        int[] drsOffset = new int[n];
         for (int i = 0; i < n; i++) {
           GribCollectionProto.Record pr = proto.getRecords(i);
-          records.add(new Record(pr.getFileno(), pr.getStartPos(), pr.getBmsOffset(), pr.getDrsOffset()));
+          fileno[i] = pr.getFileno();
+          startPos[i] = pr.getStartPos();
+          bmsOffset[i] = pr.getBmsOffset();
+          drsOffset[i] = pr.getDrsOffset();
         }
         int ndups = proto.getNdups();
-        this.sa = new SparseArray<>(size, track, records, ndups);
+        return new GribRecordTable(size, track, fileno, startPos, bmsOffset, drsOffset, ndups);
 
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
         logger.error(" file={} recordsLen={} recordPos={}", indexFilename, recordsLen, recordsPos);
@@ -516,17 +626,17 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
       }
     }
 
-    public synchronized Record getRecordAt(int sourceIndex) {
-      return sa.getContent(sourceIndex);
+    public Record getRecordAt(int sourceIndex) {
+      return getRecordTableUnchecked().getRecord(sourceIndex);
     }
 
-    public synchronized Record getRecordAt(int[] sourceIndex) {
-      return sa.getContent(sourceIndex);
+    public Record getRecordAt(int[] sourceIndex) {
+      return getRecordTableUnchecked().getRecord(sourceIndex);
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // coord based record finding. note only one record at a time
-    public synchronized Record getRecordAt(SubsetParams coords) {
+    public Record getRecordAt(SubsetParams coords) {
       int[] want = new int[getRank()];
       int count = 0;
       int runIdx = -1;
@@ -602,7 +712,7 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
 
         want[count++] = idx;
       }
-      return sa.getContent(want);
+      return getRecordAt(want);
     }
 
     public List<Coordinate> getCoordinates() {
@@ -638,12 +748,18 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
       return coordIndex;
     }
 
+    /**
+     * Make a SparseArray of the records, for debugging and display. Reads the records if they are not in memory.
+     * @return null if the variable has no records
+     */
     public SparseArray<Record> getSparseArray() {
-      return sa;
+      GribRecordTable table = getRecordTableUnchecked();
+      return table == null ? null : table.toSparseArray();
     }
 
     public int getNRecords() {
-      return sa == null ? -1 : sa.countNotMissing();
+      GribRecordTable table = getRecordTableIfPresent();
+      return table == null ? -1 : table.countNotMissing();
     }
 
     public int getTableVersion() {
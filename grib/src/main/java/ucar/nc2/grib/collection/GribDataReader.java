@@ -6,6 +6,7 @@
 package ucar.nc2.grib.collection;
 
 import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ucar.coord.CoordinateTime2D;
@@ -28,6 +29,8 @@ import ucar.unidata.io.RandomAccessFile;
 import javax.annotation.concurrent.Immutable;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Grib Data Reader.
@@ -49,6 +52,14 @@ public abstract class GribDataReader {
   }
 
   protected abstract float[] readData(RandomAccessFile rafData, DataRecord dr) throws IOException;
+
+  /**
+   * Read only part of the (x,y) record.
+   * @return data for rows y0..y1 and columns x0..x1, row major; or null if the record cant be subset, use readData().
+   */
+  protected float[] readDataWindow(RandomAccessFile rafData, DataRecord dr, int y0, int y1, int x0, int x1) throws IOException {
+    return null;
+  }
   protected abstract void show(RandomAccessFile rafData, long dataPos) throws IOException;
 
   /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -57,9 +68,66 @@ public abstract class GribDataReader {
   static public String currentDataRafFilename;
   static boolean show = false;   // debug
 
+  // decode records of one read on at most this many threads; 1 means read them serially in the calling thread
+  static private int maxParallelism = 1;
+  static private ExecutorService decodePool;
+
+  /**
+   * Decode the GRIB records of a single read concurrently, on at most this many threads (including the calling thread).
+   * Records are grouped by data file, and each thread uses its own RandomAccessFile.
+   * The other n - 1 threads are in one pool shared by all reads; when they are all busy, a read does the work
+   * in its own thread. Reads already running finish on the old pool.
+   * @param n maximum threads per read; 1 (the default) reads serially.
+   */
+  static public synchronized void setMaxParallelism(int n) {
+    if (n < 1) throw new IllegalArgumentException("maxParallelism must be >= 1");
+    if (n != maxParallelism && decodePool != null) {
+      decodePool.shutdown(); // let running tasks finish
+      decodePool = null;
+    }
+    maxParallelism = n;
+    if (n > 1 && decodePool == null) // no queue, a worker that cant start right away is not needed
+      decodePool = new ThreadPoolExecutor(0, n - 1, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+              new ThreadFactoryBuilder().setNameFormat("GribDataReader-%d").setDaemon(true).build());
+  }
+
+  static public synchronized int getMaxParallelism() {
+    return maxParallelism;
+  }
+
+  /** Shut down the decode threads, reverting to serial reads. */
+  static public synchronized void shutdown() {
+    maxParallelism = 1;
+    if (decodePool != null) decodePool.shutdownNow();
+    decodePool = null;
+  }
+
+  static private synchronized ExecutorService getDecodePool() {
+    return decodePool;
+  }
+
+  // decoded fields, shared by all readers; null means no caching
+  static private GribFieldCache fieldCache;
+
+  /**
+   * Cache decoded fields in memory, shared by all GRIB collections.
+   * A cached field is always the full record, so a read that hits the cache does not use the (y,x) window.
+   * @param cache use this cache, or null to turn caching off.
+   */
+  static public synchronized void setFieldCache(GribFieldCache cache) {
+    if (fieldCache != null && fieldCache != cache) fieldCache.clearCache();
+    fieldCache = cache;
+  }
+
+  /** @return the decoded field cache, or null if not enabled. */
+  static public synchronized GribFieldCache getFieldCache() {
+    return fieldCache;
+  }
+
   protected final GribCollectionImmutable gribCollection;
   private final GribCollectionImmutable.VariableIndex vindex;
   private List<DataRecord> records = new ArrayList<>();
+  private int[] window; // y0, y1, x0, x1 to decode, if smaller than the record; may be null
 
   protected GribDataReader(GribCollectionImmutable gribCollection, GribCollectionImmutable.VariableIndex vindex) {
     this.gribCollection = gribCollection;
@@ -111,6 +179,7 @@ public abstract class GribDataReader {
 
     // sort by file and position, then read
     DataReceiverIF dataReceiver = new DataReceiver(want.getShape(), want.getRange(rank - 2), want.getRange(rank-1) );
+    window = makeWindow(want.getRange(rank - 2), want.getRange(rank-1));
     read(dataReceiver);
     return dataReceiver.getArray();
   }
@@ -160,6 +229,7 @@ public abstract class GribDataReader {
 
     // sort by file and position, then read
     DataReceiverIF dataReceiver = new DataReceiver(section.getShape(), section.getRange(rank-2), section.getRange(rank-1) );
+    window = makeWindow(section.getRange(rank-2), section.getRange(rank-1));
     readPartitioned(dataReceiver);
 
     return dataReceiver.getArray();
@@ -192,6 +262,7 @@ public abstract class GribDataReader {
     }
 
     DataReceiverIF dataReceiver = new DataReceiver(want.getShape(yRange, xRange), yRange, xRange );
+    window = makeWindow(yRange, xRange);
     read(dataReceiver);
     return dataReceiver.getArray();
   }
@@ -211,6 +282,7 @@ public abstract class GribDataReader {
 
     // sort by file and position, then read
     DataReceiverIF dataReceiver = new DataReceiver(want.getShape(yRange, xRange), yRange, xRange );
+    window = makeWindow(yRange, xRange);
     readPartitioned(dataReceiver);
 
     return dataReceiver.getArray();
@@ -232,14 +304,63 @@ public abstract class GribDataReader {
       records.add( new DataRecord(resultIndex, record.fileno, record.pos, record.bmsPos, record.scanMode, vindex.group.getGdsHorizCoordSys()));
   } */
 
+  /*
+   * If the wanted (y, x) is a small part of the record, the index range to decode from each record: y0, y1, x0, x1.
+   * Otherwise null, and the entire record is decoded.
+   */
+  private int[] makeWindow(RangeIterator yRange, RangeIterator xRange) {
+    int y0 = Integer.MAX_VALUE, y1 = -1, x0 = Integer.MAX_VALUE, x1 = -1;
+    for (int y : yRange) { y0 = Math.min(y0, y); y1 = Math.max(y1, y); }
+    for (int x : xRange) { x0 = Math.min(x0, x); x1 = Math.max(x1, x); }
+    if (y1 < 0 || x1 < 0) return null;
+
+    GdsHorizCoordSys hcs = vindex.group.getGdsHorizCoordSys();
+    long windowSize = (long) (y1 - y0 + 1) * (x1 - x0 + 1);
+    long recordSize = (long) hcs.nx * hcs.ny;
+    if (windowSize * 2 > recordSize) return null; // not worth it
+    return new int[] {y0, y1, x0, x1};
+  }
+
+  // read one record and send it to the receiver
+  private void readRecord(RandomAccessFile rafData, DataRecord dr, DataReceiverIF dataReceiver) throws IOException {
+    GribFieldCache cache = getFieldCache();
+    if (cache != null) {
+      float[] data = cache.get(rafData.getLocation(), rafData.getLastModified(), dr.record.pos, dr.record.drsOffset,
+              () -> readData(rafData, dr));
+      synchronized (dataReceiver) {
+        dataReceiver.addData(data, dr.resultIndex, dr.hcs.nx);
+      }
+      return;
+    }
+
+    if (window != null) {
+      float[] data = readDataWindow(rafData, dr, window[0], window[1], window[2], window[3]);
+      if (data != null) {
+        synchronized (dataReceiver) {
+          dataReceiver.addData(data, dr.resultIndex, window[3] - window[2] + 1, window[0], window[2]);
+        }
+        return;
+      }
+    }
+
+    float[] data = readData(rafData, dr);
+    synchronized (dataReceiver) {
+      dataReceiver.addData(data, dr.resultIndex, dr.hcs.nx);
+    }
+  }
+
   /**
    * Read all of the data records that have been added.
-   * The full (x,y) record is read, the reciever will subset the (x, y) as needed.
+   * The full (x,y) record is read, unless the data can be subset; the reciever will subset the (x, y) as needed.
    * @param dataReceiver send data here.
    * @throws IOException
    */
   private void read(DataReceiverIF dataReceiver) throws IOException {
     Collections.sort(records);
+    if (useParallel()) {
+      readParallel(dataReceiver, false);
+      return;
+    }
 
     int currFile = -1;
     RandomAccessFile rafData = null;
@@ -270,9 +391,7 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
-        GdsHorizCoordSys hcs = vindex.group.getGdsHorizCoordSys();
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        readRecord(rafData, dr, dataReceiver);
       }
 
     } finally {
@@ -287,6 +406,10 @@ public abstract class GribDataReader {
 
   private void readPartitioned(DataReceiverIF dataReceiver) throws IOException {
     Collections.sort(records);
+    if (useParallel()) {
+      readParallel(dataReceiver, true);
+      return;
+    }
 
     PartitionCollectionImmutable.DataRecord lastRecord = null;
     RandomAccessFile rafData = null;
@@ -316,9 +439,7 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
-        GdsHorizCoordSys hcs = dr.hcs;
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        readRecord(rafData, dr, dataReceiver);
       }
 
     } finally {
@@ -326,6 +447,107 @@ public abstract class GribDataReader {
     }
   }
 
+  /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  // parallel decoding
+
+  private boolean useParallel() {
+    if (records.size() < 2 || getMaxParallelism() < 2 || getDecodePool() == null) return false;
+    // debugging and validation stay on the serial path
+    return !(Grib.debugIndexOnly || Grib.debugGbxIndexOnly || GribDataReader.validator != null || show);
+  }
+
+  /*
+   * Split the sorted records into batches in the same file, so each batch can be read with one RandomAccessFile.
+   * Large files are split further so that a read against a single big file still uses all the threads.
+   */
+  private List<List<DataRecord>> makeBatches(boolean partitioned, int nthreads) {
+    int maxBatch = Math.max(1, records.size() / (4 * nthreads));
+    List<List<DataRecord>> batches = new ArrayList<>();
+    List<DataRecord> batch = null;
+    DataRecord last = null;
+    for (DataRecord dr : records) {
+      boolean sameFile = (last != null) && (partitioned ?
+              ((PartitionCollectionImmutable.DataRecord) dr).usesSameFile((PartitionCollectionImmutable.DataRecord) last) :
+              dr.record.fileno == last.record.fileno);
+      if (batch == null || !sameFile || batch.size() >= maxBatch) {
+        batch = new ArrayList<>();
+        batches.add(batch);
+      }
+      batch.add(dr);
+      last = dr;
+    }
+    return batches;
+  }
+
+  private RandomAccessFile openRaf(DataRecord dr, boolean partitioned) throws IOException {
+    if (partitioned) {
+      PartitionCollectionImmutable.DataRecord drp = (PartitionCollectionImmutable.DataRecord) dr;
+      return drp.usePartition.getRaf(drp.partno, dr.record.fileno);
+    }
+    return gribCollection.getDataRaf(dr.record.fileno);
+  }
+
+  /*
+   * Decode the records on up to maxParallelism threads, the calling thread being one of them.
+   * Each thread takes the next batch, opens its own RandomAccessFile, and decodes the batch in file order.
+   * DataReceiver places each field by its resultIndex, so the fields can be added in any order;
+   * readRecord() serializes the calls to addData on the receiver.
+   */
+  private void readParallel(final DataReceiverIF dataReceiver, final boolean partitioned) throws IOException {
+    int nthreads = Math.min(getMaxParallelism(), records.size());
+    final List<List<DataRecord>> batches = makeBatches(partitioned, nthreads);
+    nthreads = Math.min(nthreads, batches.size());
+    final AtomicInteger nextBatch = new AtomicInteger();
+
+    Callable<Void> worker = () -> {
+      int want;
+      while ((want = nextBatch.getAndIncrement()) < batches.size()) {
+        if (Thread.currentThread().isInterrupted()) throw new InterruptedException();
+        List<DataRecord> batch = batches.get(want);
+        try (RandomAccessFile rafData = openRaf(batch.get(0), partitioned)) {
+          for (DataRecord dr : batch) {
+            if (dr.record.pos == GribCollectionMutable.MISSING_RECORD) continue;
+            readRecord(rafData, dr, dataReceiver);
+          }
+        }
+      }
+      return null;
+    };
+
+    ExecutorService pool = getDecodePool();
+    List<Future<Void>> futures = new ArrayList<>(nthreads - 1);
+    try {
+      for (int i = 1; i < nthreads && pool != null; i++) {
+        try {
+          futures.add(pool.submit(worker));
+        } catch (RejectedExecutionException e) {
+          break; // pool is busy with other reads, or was replaced; the calling thread does the rest
+        }
+      }
+
+      worker.call(); // the calling thread works too
+      for (Future<Void> f : futures)
+        f.get();
+
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new IOException(cause);
+
+    } catch (IOException | RuntimeException e) {
+      throw e;
+
+    } catch (Exception e) { // InterruptedException
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+
+    } finally {
+      nextBatch.set(batches.size()); // stop the other workers after their current batch
+      for (Future<Void> f : futures) f.cancel(false); // dont interrupt reads of a cached raf
+    }
+  }
+
   static public class DataRecord implements Comparable<DataRecord> {
     int resultIndex; // index into the result array
     GribCollectionImmutable.Record record;
@@ -353,7 +575,14 @@ public abstract class GribDataReader {
   }
 
   public interface DataReceiverIF {
+    /** Add a record. The data may be shared with the field cache, and must not be modified. */
     void addData(float[] data, int resultIndex, int nx) throws IOException;
+
+    /**
+     * Add part of a record.
+     * @param data rows starting at yOffset, of nx points starting at xOffset
+     */
+    void addData(float[] data, int resultIndex, int nx, int yOffset, int xOffset) throws IOException;
     void setDataToZero(); // only used when debugging with gbx/ncx only, to fake the data
     Array getArray();
   }
@@ -381,11 +610,16 @@ public abstract class GribDataReader {
 
     @Override
     public void addData(float[] data, int resultIndex, int nx) throws IOException {
+      addData(data, resultIndex, nx, 0, 0);
+    }
+
+    @Override
+    public void addData(float[] data, int resultIndex, int nx, int yOffset, int xOffset) throws IOException {
       int start = resultIndex * horizSize;
       int count = 0;
       for (int y : yRange) {
         for (int x : xRange) {
-          int dataIdx = y * nx + x;
+          int dataIdx = (y - yOffset) * nx + (x - xOffset);
           dataArray.setFloat(start + count, data[dataIdx]);
           count++;
         }
@@ -461,6 +695,16 @@ public abstract class GribDataReader {
               hcs.nxRaw, hcs.nyRaw, hcs.nptsInLine);
     }
 
+    @Override
+    protected float[] readDataWindow(RandomAccessFile rafData, DataRecord dr, int y0, int y1, int x0, int x1) throws IOException {
+      GdsHorizCoordSys hcs = dr.hcs;
+      if (hcs.nx != hcs.nxRaw || hcs.ny != hcs.nyRaw) return null;
+      long dataPos = dr.record.pos + dr.record.drsOffset;
+      long bmsPos = (dr.record.bmsOffset > 0) ? dr.record.pos + dr.record.bmsOffset : 0;
+      return Grib2Record.readDataWindow(rafData, dataPos, bmsPos, hcs.gdsNumberPoints, hcs.getScanMode(),
+              hcs.nxRaw, hcs.nptsInLine, y0, y1, x0, x1);
+    }
+
     @Override
     protected void show(RandomAccessFile rafData, long pos) throws IOException {
       Grib2Record gr = Grib2RecordScanner.findRecordByDrspos(rafData, pos);
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib.collection;
+
+import ucar.nc2.util.cache.MemoryCache;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * A memory-bounded cache of decoded GRIB fields, keyed by data file, its last modified time, and record position.
+ * Used by GribDataReader so that the same message is not unpacked again when many clients read the same fields,
+ * eg the latest run of a model. Eviction is LRU, weighted by the size of the stored field.
+ * <p>
+ * The fields may be stored as float[] on the heap, as floats in direct (off-heap) buffers, or as
+ * IEEE half-precision in direct buffers. Half-precision keeps 11 significant bits, so use it only where that is
+ * acceptable, eg for display; missing values (NaN) are preserved.
+ * Half-precision can only hold magnitudes up to 65504, and keeps full precision only down to 2^-14 (about 6.1e-5),
+ * so a field with any value outside that range, eg pressure in Pa or specific humidity in kg/kg, is stored as
+ * floats in a direct buffer instead.
+ *
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class GribFieldCache {
+
+  public enum Storage {
+    heap,     // float[] on the java heap
+    offHeap,  // 4 bytes per point in a direct ByteBuffer
+    half      // 2 bytes per point (half-precision) in a direct ByteBuffer, lossy; floats if out of range
+  }
+
+  private final Storage storage;
+  private final MemoryCache<FieldKey, Object> cache;
+
+  /**
+   * Constructor.
+   *
+   * @param maxBytes maximum size in bytes of all the stored fields
+   * @param storage  how to store the fields
+   */
+  public GribFieldCache(long maxBytes, Storage storage) {
+    this.storage = storage;
+    this.cache = new MemoryCache<>("GribFieldCache-" + storage, maxBytes, GribFieldCache::weigh);
+  }
+
+  public Storage getStorage() {
+    return storage;
+  }
+
+  /**
+   * Get a decoded field from the cache, or decode it and add it to the cache.
+   *
+   * @param location data file location
+   * @param lastModified last modified time of the data file, so a rewritten file does not get the old fields
+   * @param pos      starting position of the GRIB record
+   * @param drsOffset offset of the data representation section from pos
+   * @param decoder  decode the field if its not in the cache
+   * @return the decoded field; with heap storage this is the cached array itself, which must not be modified
+   * @throws IOException on read error
+   */
+  public float[] get(String location, long lastModified, long pos, int drsOffset, Callable<float[]> decoder) throws IOException {
+    FieldKey key = new FieldKey(location, lastModified, pos, drsOffset);
+    if (storage == Storage.heap)
+      return (float[]) cache.get(key, decoder);
+    Object stored = cache.get(key, () -> store(decoder.call()));
+    return restore((Buffer) stored);
+  }
+
+  public void clearCache() {
+    cache.clearCache();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  public long getHits() {
+    return cache.getHits();
+  }
+
+  public long getMisses() {
+    return cache.getMisses();
+  }
+
+  public long getEvictions() {
+    return cache.getEvictions();
+  }
+
+  // debugging, same as FileCacheIF
+  public void showCache(Formatter f) {
+    cache.showCache(f);
+  }
+
+  public List<String> showCache() {
+    return cache.showCache();
+  }
+
+  public void showStats(Formatter f) {
+    cache.showStats(f);
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+
+  private static int weigh(Object value) {
+    if (value instanceof float[])
+      return 4 * ((float[]) value).length;
+    if (value instanceof ShortBuffer)
+      return 2 * ((ShortBuffer) value).capacity();
+    return 4 * ((FloatBuffer) value).capacity();
+  }
+
+  // half-precision in a ShortBuffer, or floats in a FloatBuffer; both are views of a direct ByteBuffer
+  private Buffer store(float[] data) {
+    if (storage == Storage.half && fitsHalf(data)) {
+      ShortBuffer sb = ByteBuffer.allocateDirect(2 * data.length).order(ByteOrder.nativeOrder()).asShortBuffer();
+      for (int i = 0; i < data.length; i++)
+        sb.put(i, toHalf(data[i]));
+      return sb;
+    }
+    FloatBuffer fb = ByteBuffer.allocateDirect(4 * data.length).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    fb.duplicate().put(data);
+    return fb;
+  }
+
+  // uses only absolute gets, so the stored buffer can be shared between threads
+  private float[] restore(Buffer stored) {
+    if (stored instanceof ShortBuffer) {
+      ShortBuffer sb = (ShortBuffer) stored;
+      float[] data = new float[sb.capacity()];
+      for (int i = 0; i < data.length; i++)
+        data[i] = fromHalf(sb.get(i));
+      return data;
+    }
+    FloatBuffer fb = ((FloatBuffer) stored).duplicate();
+    float[] data = new float[fb.capacity()];
+    fb.get(data);
+    return data;
+  }
+
+  /**
+   * Can the field be stored as half-precision without overflowing to infinity or losing precision in subnormals?
+   * NaN (missing) and infinite values are kept as they are.
+   */
+  static boolean fitsHalf(float[] data) {
+    for (float val : data) {
+      float abs = Math.abs(val);
+      if (abs > HALF_MAX && abs != Float.POSITIVE_INFINITY) return false;
+      if (abs != 0.0f && abs < HALF_MIN_NORMAL) return false;
+    }
+    return true;
+  }
+
+  static final float HALF_MAX = 65504.0f;
+  static final float HALF_MIN_NORMAL = 6.1035156E-5f; // 2^-14
+
+  /** Convert a float to IEEE 754 half-precision, rounding to nearest even. */
+  static short toHalf(float val) {
+    int bits = Float.floatToRawIntBits(val);
+    int sign = (bits >>> 16) & 0x8000;
+    int exp = (bits >>> 23) & 0xff;
+    int mant = bits & 0x7fffff;
+
+    if (exp == 0xff) // NaN or infinity
+      return (short) (sign | 0x7c00 | (mant != 0 ? 0x200 : 0));
+
+    int e = exp - 127 + 15;
+    if (e >= 0x1f) // overflow
+      return (short) (sign | 0x7c00);
+
+    if (e <= 0) { // subnormal or zero
+      if (e < -10) return (short) sign;
+      mant |= 0x800000;
+      int shift = 14 - e;
+      int half = mant >> shift;
+      int rem = mant & ((1 << shift) - 1);
+      int mid = 1 << (shift - 1);
+      if (rem > mid || (rem == mid && (half & 1) != 0)) half++;
+      return (short) (sign | half);
+    }
+
+    int half = (e << 10) | (mant >> 13);
+    int rem = mant & 0x1fff;
+    if (rem > 0x1000 || (rem == 0x1000 && (half & 1) != 0)) half++; // may carry into the exponent, which is correct
+    return (short) (sign | half);
+  }
+
+  /** Convert IEEE 754 half-precision to a float. */
+  static float fromHalf(short h) {
+    int sign = (h & 0x8000) << 16;
+    int exp = (h >>> 10) & 0x1f;
+    int mant = h & 0x3ff;
+
+    if (exp == 0x1f) // NaN or infinity
+      return Float.intBitsToFloat(sign | 0x7f800000 | (mant << 13));
+
+    if (exp == 0) {
+      if (mant == 0) return Float.intBitsToFloat(sign);
+      // subnormal: normalize
+      exp = 1;
+      while ((mant & 0x400) == 0) {
+        mant <<= 1;
+        exp--;
+      }
+      mant &= 0x3ff;
+    }
+    return Float.intBitsToFloat(sign | ((exp - 15 + 127) << 23) | (mant << 13));
+  }
+
+  @Immutable
+  private static class FieldKey {
+    private final String location;
+    private final long lastModified;
+    private final long pos;
+    private final int drsOffset;
+
+    FieldKey(String location, long lastModified, long pos, int drsOffset) {
+      this.location = location;
+      this.lastModified = lastModified;
+      this.pos = pos;
+      this.drsOffset = drsOffset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      FieldKey that = (FieldKey) o;
+      return pos == that.pos && drsOffset == that.drsOffset && lastModified == that.lastModified &&
+              location.equals(that.location);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = location.hashCode();
+      result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+      result = 31 * result + (int) (pos ^ (pos >>> 32));
+      result = 31 * result + drsOffset;
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return location + " lastModified=" + lastModified + " pos=" + pos + " drsOffset=" + drsOffset;
+    }
+  }
+}
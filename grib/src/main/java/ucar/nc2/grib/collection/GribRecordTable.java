@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib.collection;
+
+import ucar.coord.SparseArray;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The records of a GribCollectionImmutable.VariableIndex, stored as columns of primitive arrays instead of a
+ * SparseArray of Record objects.
+ * The track (1-based index into the records for each element of the variable, 0 = missing) and the record fields
+ * each use the narrowest of byte, short, int or long that holds their largest value.
+ * Records are made on demand in getRecord().
+ *
+ * @since 10/18/2026
+ */
+@Immutable
+class GribRecordTable {
+  private final int[] shape;    // multidim sizes
+  private final int[] stride;   // for index calculation
+  private final int ndups;
+
+  private final Column track;   // size totalSize
+  private final Column fileno;  // size nrecords
+  private final Column pos;
+  private final Column bmsOffset;
+  private final Column drsOffset;
+
+  /**
+   * Constructor. The arrays are not kept.
+   *
+   * @param shape     multidim sizes
+   * @param track     for each element, 1-based index into the records, 0 = missing
+   * @param fileno    for each record, which file
+   * @param pos       for each record, offset on file where message starts
+   * @param bmsOffset for each record, if non-zero, offset where bms starts
+   * @param drsOffset for each record, if non-zero, offset where drs starts
+   * @param ndups     duplicates found when creating
+   */
+  GribRecordTable(int[] shape, int[] track, int[] fileno, long[] pos, int[] bmsOffset, int[] drsOffset, int ndups) {
+    int totalSize = 1;
+    for (int size : shape) totalSize *= size;
+    if (track.length != totalSize)
+      throw new IllegalStateException("track len " + track.length + " != totalSize " + totalSize);
+
+    this.shape = shape.clone();
+    this.stride = new int[shape.length];
+    int product = 1;
+    for (int ii = shape.length - 1; ii >= 0; ii--) {
+      stride[ii] = product;
+      product *= shape[ii];
+    }
+    this.ndups = ndups;
+
+    this.track = Column.of(track);
+    this.fileno = Column.of(fileno);
+    this.pos = Column.of(pos);
+    this.bmsOffset = Column.of(bmsOffset);
+    this.drsOffset = Column.of(drsOffset);
+  }
+
+  /**
+   * @param idx index into the flattened shape
+   * @return the record there, or null if missing
+   */
+  GribCollectionImmutable.Record getRecord(int idx) {
+    int recno = (int) track.get(idx) - 1;
+    if (recno < 0)
+      return null; // missing
+    return new GribCollectionImmutable.Record((int) fileno.get(recno), pos.get(recno),
+            (int) bmsOffset.get(recno), (int) drsOffset.get(recno));
+  }
+
+  GribCollectionImmutable.Record getRecord(int[] index) {
+    return getRecord(calcIndex(index));
+  }
+
+  int calcIndex(int... index) {
+    assert index.length == shape.length;
+    int result = 0;
+    for (int ii = 0; ii < index.length; ii++)
+      result += index[ii] * stride[ii];
+    return result;
+  }
+
+  int getNRecords() {
+    return fileno.size();
+  }
+
+  int countNotMissing() {
+    int result = 0;
+    for (int i = 0; i < track.size(); i++)
+      if (track.get(i) > 0) result++;
+    return result;
+  }
+
+  /**
+   * @return approximate size in bytes, for a MemoryCache
+   */
+  int getSizeInBytes() {
+    long result = 64 + 4 * 2 * shape.length;
+    result += track.bytes() + fileno.bytes() + pos.bytes() + bmsOffset.bytes() + drsOffset.bytes();
+    return (int) Math.min(result, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Make the equivalent SparseArray, for debugging and display.
+   */
+  SparseArray<GribCollectionImmutable.Record> toSparseArray() {
+    int[] trackArray = new int[track.size()];
+    for (int i = 0; i < trackArray.length; i++)
+      trackArray[i] = (int) track.get(i);
+    List<GribCollectionImmutable.Record> records = new ArrayList<>(getNRecords());
+    for (int recno = 0; recno < getNRecords(); recno++)
+      records.add(new GribCollectionImmutable.Record((int) fileno.get(recno), pos.get(recno),
+              (int) bmsOffset.get(recno), (int) drsOffset.get(recno)));
+    return new SparseArray<>(shape.clone(), trackArray, records, ndups);
+  }
+
+  int getNdups() {
+    return ndups;
+  }
+
+  /////////////////////////////////////////////////////////////////////////////
+
+  // non-negative values, stored unsigned in the narrowest primitive array that holds the largest one
+  private static abstract class Column {
+    abstract long get(int i);
+
+    abstract int size();
+
+    abstract long bytes();
+
+    static Column of(int[] values) {
+      long[] longs = new long[values.length];
+      for (int i = 0; i < values.length; i++) longs[i] = values[i];
+      return of(longs);
+    }
+
+    static Column of(long[] values) {
+      long max = 0;
+      for (long v : values) {
+        if (v < 0) return new LongColumn(values.clone()); // not expected
+        max = Math.max(max, v);
+      }
+      if (max == 0) return new ZeroColumn(values.length); // eg bmsOffset and drsOffset in grib1
+      if (max <= 0xFF) {
+        byte[] store = new byte[values.length];
+        for (int i = 0; i < values.length; i++) store[i] = (byte) values[i];
+        return new ByteColumn(store);
+      }
+      if (max <= 0xFFFF) {
+        short[] store = new short[values.length];
+        for (int i = 0; i < values.length; i++) store[i] = (short) values[i];
+        return new ShortColumn(store);
+      }
+      if (max <= 0xFFFFFFFFL) {
+        int[] store = new int[values.length];
+        for (int i = 0; i < values.length; i++) store[i] = (int) values[i];
+        return new IntColumn(store);
+      }
+      return new LongColumn(values.clone());
+    }
+  }
+
+  private static class ZeroColumn extends Column {
+    private final int size;
+
+    ZeroColumn(int size) {
+      this.size = size;
+    }
+
+    long get(int i) {
+      if (i < 0 || i >= size) throw new ArrayIndexOutOfBoundsException(i);
+      return 0;
+    }
+
+    int size() {
+      return size;
+    }
+
+    long bytes() {
+      return 16;
+    }
+  }
+
+  private static class ByteColumn extends Column {
+    private final byte[] store;
+
+    ByteColumn(byte[] store) {
+      this.store = store;
+    }
+
+    long get(int i) {
+      return store[i] & 0xFF;
+    }
+
+    int size() {
+      return store.length;
+    }
+
+    long bytes() {
+      return 16 + store.length;
+    }
+  }
+
+  private static class ShortColumn extends Column {
+    private final short[] store;
+
+    ShortColumn(short[] store) {
+      this.store = store;
+    }
+
+    long get(int i) {
+      return store[i] & 0xFFFF;
+    }
+
+    int size() {
+      return store.length;
+    }
+
+    long bytes() {
+      return 16 + 2L * store.length;
+    }
+  }
+
+  private static class IntColumn extends Column {
+    private final int[] store;
+
+    IntColumn(int[] store) {
+      this.store = store;
+    }
+
+    long get(int i) {
+      return store[i] & 0xFFFFFFFFL;
+    }
+
+    int size() {
+      return store.length;
+    }
+
+    long bytes() {
+      return 16 + 4L * store.length;
+    }
+  }
+
+  private static class LongColumn extends Column {
+    private final long[] store;
+
+    LongColumn(long[] store) {
+      this.store = store;
+    }
+
+    long get(int i) {
+      return store[i];
+    }
+
+    int size() {
+      return store.length;
+    }
+
+    long bytes() {
+      return 16 + 8L * store.length;
+    }
+  }
+
+}
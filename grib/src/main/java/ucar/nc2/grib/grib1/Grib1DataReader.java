@@ -13,6 +13,7 @@ import ucar.unidata.io.RandomAccessFile;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Formatter;
 
 /**
@@ -130,15 +131,25 @@ public class Grib1DataReader {
         logger.error("Bitmap section length = {} != grid length {} ({},{}) for {}", bitmap.length, nPts, nxRaw, nyRaw, raf.getLocation());
         throw new IllegalStateException("Bitmap section length!= grid length");
       }
-      BitReader reader = new BitReader(raf, startPos + 11);
+      // unpack the points that are present, then spread them out according to the bitmap
+      int npresent = 0;
+      for (int i = 0; i < nPts; i++) {
+        if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0)
+          npresent++;
+      }
+      float[] present = new float[npresent];
+      if (!isConstant) {
+        BitReader reader = new BitReader(raf, startPos + 11);
+        reader.bits2Float(info.numberOfBits, present, 0, npresent, ref, scale, 1.0f);
+      } else {  // rdg - added this to handle a constant valued parameter
+        Arrays.fill(present, ref);
+      }
+
       values = new float[nPts];
+      int count = 0;
       for (int i = 0; i < nPts; i++) {
         if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) {
-          if (!isConstant) {
-            values[i] = ref + scale * reader.bits2UInt(info.numberOfBits);
-          } else {  // rdg - added this to handle a constant valued parameter
-            values[i] = ref;
-          }
+          values[i] = present[count++];
         } else {
           values[i] = staticMissingValue;
         }
@@ -155,10 +166,9 @@ public class Grib1DataReader {
             logger.warn("nptsExpected {} != npts {}", nptsExpected, nPts);
           values = new float[nPts];
         }
+        // values[i] = ref + scale * X
         BitReader reader = new BitReader(raf, startPos + 11);
-        for (int i = 0; i < values.length; i++) {
-          values[i] = ref + scale * reader.bits2UInt(info.numberOfBits);
-        }
+        reader.bits2Float(info.numberOfBits, values, 0, values.length, ref, scale, 1.0f);
         scanningModeCheck(values, scanMode, nxRaw);
 
       } else {                     // constant valued - same min and max
@@ -121,6 +121,111 @@ public class Grib2DataReader2 {
     return data;
   }
 
+  /**
+   * Decode only the rows y0..y1 and the columns x0..x1 of the grid, for data templates that allow random access
+   * (currently only 0, simple packing). Row and column indices are in the orientation returned by getData(), ie after
+   * scanningModeCheck().
+   *
+   * @return the window, row major with (x1-x0+1) points in each row; or null if this data template cannot be subset,
+   *   in which case use getData().
+   */
+  public float[] getDataWindow(RandomAccessFile raf, Grib2SectionBitMap bitmapSection, Grib2Drs gdrs,
+                               int y0, int y1, int x0, int x1) throws IOException {
+    if (dataTemplate != 0 || nx <= 0 || totalNPoints % nx != 0) return null;
+    int ny = totalNPoints / nx;
+    if (y0 < 0 || x0 < 0 || y1 >= ny || x1 >= nx || y0 > y1 || x0 > x1) return null;
+
+    this.bitmap = bitmapSection.getBitmap(raf);
+    this.bitmapIndicator = bitmapSection.getBitMapIndicator();
+    if (bitmap != null && bitmap.length * 8 < totalNPoints) {
+      log.warn("Bitmap section length = {} != grid length {} ({},{})", bitmap.length, totalNPoints, nx, totalNPoints/nx);
+      throw new IllegalStateException("Bitmap section length!= grid length");
+    }
+
+    return getData0Window((Grib2Drs.Type0) gdrs, raf, y0, y1, x0, x1);
+  }
+
+  // Simple packing: value k is at bit k * nb, so we can seek to the start of each row of the window.
+  // With a bitmap, k is the number of bits set in the bitmap before the point.
+  private float[] getData0Window(Grib2Drs.Type0 gdrs, RandomAccessFile raf, int y0, int y1, int x0, int x1) throws IOException {
+    int nb = gdrs.numberOfBits;
+    int D = gdrs.decimalScaleFactor;
+    float DD = (float) java.lang.Math.pow((double) 10, (double) D);
+    float R = gdrs.referenceValue;
+    int E = gdrs.binaryScaleFactor;
+    float EE = (float) java.lang.Math.pow( 2.0, (double) E);
+
+    int wnx = x1 - x0 + 1;
+    float[] data = new float[(y1 - y0 + 1) * wnx];
+    float[] row = new float[wnx];
+    BitReader reader = new BitReader(raf, startPos+5);
+
+    long bitmapPos = 0;   // bitmap has been counted up to here
+    long bitmapCount = 0; // number of bits set before bitmapPos
+
+    for (int y = y0; y <= y1; y++) {
+      boolean reversed = isRowReversed(y);
+      // the window columns of this row, in storage order
+      long rowStart = (long) y * nx + (reversed ? nx - 1 - x1 : x0);
+      int outStart = (y - y0) * wnx;
+
+      long k = rowStart; // index of the first packed value
+      if (bitmap != null) {
+        bitmapCount += countBits(bitmap, bitmapPos, rowStart);
+        bitmapPos = rowStart;
+        k = bitmapCount;
+      }
+      long bitOffset = k * nb;
+      if (bitOffset > Integer.MAX_VALUE) return null; // BitReader limit
+      reader.setBitOffset((int) bitOffset);
+
+      // the packed values of this row are contiguous: unpack them at once, then spread them out
+      int npresent = (bitmap == null) ? wnx : (int) countBits(bitmap, rowStart, rowStart + wnx);
+      reader.bits2Float(nb, row, 0, npresent, R, EE, DD);
+
+      int count = 0;
+      for (int i = 0; i < wnx; i++) {
+        int out = outStart + (reversed ? wnx - 1 - i : i);
+        if (bitmap != null) {
+          long s = rowStart + i;
+          if ((bitmap[(int) (s / 8)] & GribNumbers.bitmask[(int) (s % 8)]) == 0) {
+            data[out] = staticMissingValue;
+            continue;
+          }
+        }
+        data[out] = row[count++];
+      }
+    }
+
+    return data;
+  }
+
+  // does scanningModeCheck() reverse this row ?
+  private boolean isRowReversed(int row) {
+    if ((scanMode == 0) || (scanMode == 64)) return false;
+    if (!GribUtils.scanModeXisPositive(scanMode)) return true;
+    return !GribUtils.scanModeSameDirection(scanMode) && (row % 2 != 0);
+  }
+
+  // number of bits set in bitmap in [from, to)
+  private static long countBits(byte[] bitmap, long from, long to) {
+    long count = 0;
+    long i = from;
+    while (i < to && (i % 8) != 0) {
+      if ((bitmap[(int) (i / 8)] & GribNumbers.bitmask[(int) (i % 8)]) != 0) count++;
+      i++;
+    }
+    while (i + 8 <= to) {
+      count += Integer.bitCount(bitmap[(int) (i / 8)] & 0xff);
+      i += 8;
+    }
+    while (i < to) {
+      if ((bitmap[(int) (i / 8)] & GribNumbers.bitmask[(int) (i % 8)]) != 0) count++;
+      i++;
+    }
+    return count;
+  }
+
   public int[] getRawData(RandomAccessFile raf, Grib2SectionBitMap bitmapSection, Grib2Drs gdrs) throws IOException {
     this.bitmap = bitmapSection.getBitmap(raf);
     this.bitmapIndicator = bitmapSection.getBitMapIndicator();
@@ -215,14 +320,22 @@ public class Grib2DataReader2 {
 
     BitReader reader = new BitReader(raf, startPos+5);
     if (bitmap == null) {
+      //data[ i ] = (R + ( X1 + X2) * EE)/DD ;
+      reader.bits2Float(nb, data, 0, totalNPoints, R, EE, DD);
+    } else {
+      // unpack the points that are present, then spread them out according to the bitmap
+      int npresent = 0;
       for (int i = 0; i < totalNPoints; i++) {
-        //data[ i ] = (R + ( X1 + X2) * EE)/DD ;
-        data[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+        if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0)
+          npresent++;
       }
-    } else {
+      float[] present = new float[npresent];
+      reader.bits2Float(nb, present, 0, npresent, R, EE, DD);
+
+      int count = 0;
       for (int i = 0; i < totalNPoints; i++) {
         if ((bitmap[i / 8] & GribNumbers.bitmask[i % 8]) != 0) {
-          data[i] = (R + reader.bits2UInt(nb) * EE) / DD;
+          data[i] = present[count++];
         } else {
           data[i] = staticMissingValue;
           //data[i] = R / DD;
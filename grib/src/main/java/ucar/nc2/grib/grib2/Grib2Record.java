@@ -336,6 +336,30 @@ public class Grib2Record {
     return data;
   }
 
+  /**
+   * Read only the rows y0..y1 and columns x0..x1 of the data, if the data template allows it.
+   * @return the window, row major with (x1-x0+1) points in each row; or null if it cant be subset, use readData() instead.
+   */
+  static public float[] readDataWindow(RandomAccessFile raf, long drsPos, long bmsPos, int gdsNumberPoints, int scanMode, int nx,
+                                       int[] nptsInLine, int y0, int y1, int x0, int x1) throws IOException {
+    if (nptsInLine != null) return null; // quasi regular is expanded after decoding
+
+    raf.seek(drsPos);
+    Grib2SectionDataRepresentation drs = new Grib2SectionDataRepresentation(raf);
+    if (drs.getDataTemplate() != 0) return null;
+    Grib2SectionBitMap bms = new Grib2SectionBitMap(raf);
+    Grib2SectionData dataSection = new Grib2SectionData(raf);
+
+    if (bmsPos > 0)
+      bms = Grib2SectionBitMap.factory(raf, bmsPos);
+
+    Grib2DataReader2 reader = new Grib2DataReader2(drs.getDataTemplate(), gdsNumberPoints, drs.getDataPoints(),
+            scanMode, nx, dataSection.getStartingPosition(), dataSection.getMsgLength());
+
+    Grib2Drs gdrs = drs.getDrs(raf);
+    return reader.getDataWindow(raf, bms, gdrs, y0, y1, x0, x1);
+  }
+
   public void check(RandomAccessFile raf, Formatter f) throws IOException {
     long messLen = is.getMessageLength();
     long startPos = is.getStartPos();
@@ -0,0 +1,109 @@
+/* Copyright Unidata */
+package ucar.nc2.grib.collection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test GribFieldCache storage and eviction.
+ *
+ * @since 10/18/2026
+ */
+public class TestGribFieldCache {
+
+  private static float[] makeField(int n) {
+    float[] data = new float[n];
+    for (int i = 0; i < n; i++)
+      data[i] = (i % 10 == 0) ? Float.NaN : 273.15f + i * 0.37f;
+    return data;
+  }
+
+  @Test
+  public void testHeap() throws IOException {
+    GribFieldCache cache = new GribFieldCache(10000, GribFieldCache.Storage.heap);
+    AtomicInteger decodes = new AtomicInteger();
+    float[] field = makeField(100);
+
+    float[] first = cache.get("file", 0, 1000, 50, () -> { decodes.incrementAndGet(); return field; });
+    float[] second = cache.get("file", 0, 1000, 50, () -> { decodes.incrementAndGet(); return field; });
+    Assert.assertArrayEquals(field, first, 0.0f);
+    Assert.assertArrayEquals(field, second, 0.0f);
+    Assert.assertEquals(1, decodes.get());
+    Assert.assertEquals(1, cache.getHits());
+
+    cache.get("file", 0, 2000, 50, () -> { decodes.incrementAndGet(); return field; });
+    cache.get("other", 0, 1000, 50, () -> { decodes.incrementAndGet(); return field; });
+    Assert.assertEquals(3, decodes.get());
+
+    // the file was rewritten
+    cache.get("file", 1, 1000, 50, () -> { decodes.incrementAndGet(); return field; });
+    Assert.assertEquals(4, decodes.get());
+  }
+
+  @Test
+  public void testOffHeap() throws IOException {
+    GribFieldCache cache = new GribFieldCache(10000, GribFieldCache.Storage.offHeap);
+    float[] field = makeField(100);
+    cache.get("file", 0, 1000, 50, () -> field);
+    float[] got = cache.get("file", 0, 1000, 50, () -> { throw new IllegalStateException(); });
+    Assert.assertArrayEquals(field, got, 0.0f);
+  }
+
+  @Test
+  public void testHalf() throws IOException {
+    GribFieldCache cache = new GribFieldCache(10000, GribFieldCache.Storage.half);
+    float[] field = makeField(100);
+    cache.get("file", 0, 1000, 50, () -> field);
+    float[] got = cache.get("file", 0, 1000, 50, () -> { throw new IllegalStateException(); });
+    for (int i = 0; i < field.length; i++) {
+      if (Float.isNaN(field[i]))
+        Assert.assertTrue(Float.isNaN(got[i]));
+      else
+        Assert.assertEquals(field[i], got[i], Math.abs(field[i]) / 1024);
+    }
+  }
+
+  // values that half-precision cannot hold are stored as floats, so they come back unchanged
+  @Test
+  public void testHalfOutOfRange() throws IOException {
+    GribFieldCache cache = new GribFieldCache(10000, GribFieldCache.Storage.half);
+
+    float[] pressure = new float[100]; // Pa
+    for (int i = 0; i < pressure.length; i++)
+      pressure[i] = (i % 10 == 0) ? Float.NaN : 101325.0f - i * 13.7f;
+    Assert.assertFalse(GribFieldCache.fitsHalf(pressure));
+    cache.get("file", 0, 1000, 50, () -> pressure);
+    Assert.assertArrayEquals(pressure, cache.get("file", 0, 1000, 50, () -> { throw new IllegalStateException(); }), 0.0f);
+
+    float[] humidity = new float[100]; // kg/kg
+    for (int i = 0; i < humidity.length; i++)
+      humidity[i] = 1.0e-5f + i * 1.0e-4f;
+    Assert.assertFalse(GribFieldCache.fitsHalf(humidity));
+    cache.get("file", 0, 2000, 50, () -> humidity);
+    Assert.assertArrayEquals(humidity, cache.get("file", 0, 2000, 50, () -> { throw new IllegalStateException(); }), 0.0f);
+
+    Assert.assertTrue(GribFieldCache.fitsHalf(makeField(100)));
+    Assert.assertTrue(GribFieldCache.fitsHalf(new float[] {0.0f, -65504.0f, Float.NaN, Float.NEGATIVE_INFINITY}));
+  }
+
+  @Test
+  public void testHalfConversion() {
+    float[] vals = {0.0f, -0.0f, 1.0f, -2.5f, 65504.0f, 6.1035156E-5f, 5.9604645E-8f, Float.POSITIVE_INFINITY};
+    for (float val : vals)
+      Assert.assertEquals(val, GribFieldCache.fromHalf(GribFieldCache.toHalf(val)), 0.0f);
+    Assert.assertEquals(Float.POSITIVE_INFINITY, GribFieldCache.fromHalf(GribFieldCache.toHalf(1.0e6f)), 0.0f);
+    Assert.assertTrue(Float.isNaN(GribFieldCache.fromHalf(GribFieldCache.toHalf(Float.NaN))));
+  }
+
+  @Test
+  public void testEvictsBySize() throws IOException {
+    GribFieldCache cache = new GribFieldCache(4000, GribFieldCache.Storage.heap); // 10 fields of 100 floats
+    for (int i = 0; i < 20; i++)
+      cache.get("file", 0, i * 1000, 50, () -> makeField(100));
+    Assert.assertTrue(cache.size() <= 10);
+    Assert.assertTrue(cache.getEvictions() >= 10);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package ucar.nc2.grib.collection;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.coord.SparseArray;
+
+import java.util.Random;
+
+/**
+ * Test that GribRecordTable gives the same records as the SparseArray it replaces, whatever the width of its columns.
+ *
+ * @since 10/18/2026
+ */
+public class TestGribRecordTable {
+
+  @Test
+  public void testColumnWidths() {
+    // largest value in each column: zero, byte, short, int, and more than 32 bits
+    long[] maxValues = {0, 200, 60000, 3000000000L, 9000000000L};
+    for (long max : maxValues) {
+      check(new int[]{3, 4, 5}, max, 0.7, 1);
+      check(new int[]{300, 1}, max, 0.99, 2); // more than 255 records
+      check(new int[]{70000}, max, 1.0, 3);   // more than 65535 records
+    }
+  }
+
+  @Test
+  public void testAllMissing() {
+    GribRecordTable table = new GribRecordTable(new int[]{2, 3}, new int[6], new int[0], new long[0], new int[0], new int[0], 0);
+    for (int i = 0; i < 6; i++)
+      Assert.assertNull(table.getRecord(i));
+    Assert.assertEquals(0, table.countNotMissing());
+    Assert.assertEquals(0, table.getNRecords());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testBadTrack() {
+    new GribRecordTable(new int[]{2, 3}, new int[5], new int[0], new long[0], new int[0], new int[0], 0);
+  }
+
+  private void check(int[] shape, long max, double density, long seed) {
+    Random r = new Random(seed);
+    int totalSize = 1;
+    for (int size : shape) totalSize *= size;
+
+    int[] track = new int[totalSize];
+    int nrecords = 0;
+    for (int i = 0; i < totalSize; i++) {
+      if (r.nextDouble() < density)
+        track[i] = ++nrecords;
+    }
+
+    int[] fileno = new int[nrecords];
+    long[] pos = new long[nrecords];
+    int[] bmsOffset = new int[nrecords];
+    int[] drsOffset = new int[nrecords];
+    for (int i = 0; i < nrecords; i++) {
+      fileno[i] = (int) Math.min(Integer.MAX_VALUE, (long) (r.nextDouble() * max));
+      pos[i] = (i == 0) ? max : (long) (r.nextDouble() * max);
+      bmsOffset[i] = (int) Math.min(Integer.MAX_VALUE, pos[i]);
+      drsOffset[i] = (i == 0) ? 0 : r.nextInt(1000);
+    }
+
+    GribRecordTable table = new GribRecordTable(shape, track, fileno, pos, bmsOffset, drsOffset, 7);
+    SparseArray<GribCollectionImmutable.Record> sa = table.toSparseArray();
+    Assert.assertEquals(nrecords, table.getNRecords());
+    Assert.assertEquals(sa.countNotMissing(), table.countNotMissing());
+    Assert.assertEquals(7, table.getNdups());
+
+    for (int i = 0; i < totalSize; i++) {
+      GribCollectionImmutable.Record record = table.getRecord(i);
+      if (track[i] == 0) {
+        Assert.assertNull(record);
+        Assert.assertNull(sa.getContent(i));
+        continue;
+      }
+      int recno = track[i] - 1;
+      Assert.assertEquals(fileno[recno], record.fileno);
+      Assert.assertEquals(pos[recno], record.pos);
+      Assert.assertEquals(bmsOffset[recno], record.bmsOffset);
+      Assert.assertEquals(drsOffset[recno], record.drsOffset);
+      Assert.assertEquals(record.toString(), sa.getContent(i).toString());
+    }
+
+    int[] index = new int[shape.length];
+    for (int k = 0; k < shape.length; k++) index[k] = shape[k] - 1;
+    Assert.assertEquals(String.valueOf(sa.getContent(index)), String.valueOf(table.getRecord(index)));
+  }
+
+}
@@ -425,6 +425,12 @@ public class Tdm {
     @Parameter(names = {"-nthreads"}, description = "number of threads", required = false)
     public int nthreads = 1;
 
+    @Parameter(names = {"-indexThreads"}, description = "number of threads to read or create the gbx9 indexes of a collection", required = false)
+    public int indexThreads = 1;
+
+    @Parameter(names = {"-skipUnchangedLeaves"}, description = "dont check leaf files and directories older than the partition index; the partition index is still rebuilt", required = false)
+    public boolean skipUnchangedLeaves;
+
     @Parameter(names = {"-showOnly"}, description = "show collections and exit", required = false)
     public boolean showOnly;
 
@@ -495,6 +501,15 @@ public class Tdm {
         if (cmdLine.nthreads != 0)
           app.setNThreads(cmdLine.nthreads);
 
+        if (cmdLine.indexThreads > 1)
+          GribCdmIndex.setIndexThreads(cmdLine.indexThreads);
+
+        if (cmdLine.skipUnchangedLeaves) {
+          GribCdmIndex.setSkipUnchangedLeaves(true);
+          tdmLogger.warn("-skipUnchangedLeaves: leaves are checked by last modified time only, files rewritten with an older" +
+                  " timestamp are missed. Partition indexes are still rebuilt from all of their children.");
+        }
+
         if (cmdLine.showOnly)
           app.setShowOnly(true);
 
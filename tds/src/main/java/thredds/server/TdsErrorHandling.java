@@ -41,6 +41,9 @@ import static org.springframework.web.util.HtmlUtils.htmlEscape;
  *   BindException                          BAD_REQUEST
  *   Throwable                              INTERNAL_SERVER_ERROR
  *
+ * If the response was already committed, eg while streaming, these are rethrown instead, so that the container
+ * closes the connection rather than appending an error message to the data that has been sent.
+ *
  * @author caron
  * @see "https://spring.io/blog/2013/11/01/exception-handling-in-spring-mvc"
  * @since 4/15/2015
@@ -78,12 +81,13 @@ public class TdsErrorHandling implements HandlerExceptionResolver {
   }
 
   @ExceptionHandler(IOException.class)
-  public ResponseEntity<String> handle(IOException ex) {
+  public ResponseEntity<String> handle(IOException ex, HttpServletResponse res) throws IOException {
     String eName = ex.getClass().getName(); // dont want compile time dependency on ClientAbortException
     if (eName.equals("org.apache.catalina.connector.ClientAbortException")) {
       logger.debug("ClientAbortException while sending file: ", ex);
       return null;
     }
+    rethrowIfCommitted(ex, res);
 
     logger.warn("TDS Error", ex);
 
@@ -94,7 +98,8 @@ public class TdsErrorHandling implements HandlerExceptionResolver {
   }
 
   @ExceptionHandler(IllegalArgumentException.class)
-  public ResponseEntity<String> handle(IllegalArgumentException ex) {
+  public ResponseEntity<String> handle(IllegalArgumentException ex, HttpServletResponse res) {
+    rethrowIfCommitted(ex, res);
     logger.warn("TDS Error", ex);
 
     HttpHeaders responseHeaders = new HttpHeaders();
@@ -144,7 +149,9 @@ public class TdsErrorHandling implements HandlerExceptionResolver {
 
   // LOOK this could be a problem
   @ExceptionHandler(Throwable.class)
-  public ResponseEntity<String> handle(Throwable ex) throws Throwable {
+  public ResponseEntity<String> handle(Throwable ex, HttpServletResponse res) throws Throwable {
+    rethrowIfCommitted(ex, res);
+
     // If the exception is annotated with @ResponseStatus rethrow it and let
     // the framework handle it - like the OrderNotFoundException example
     // at the start of this post.
@@ -168,6 +175,13 @@ public class TdsErrorHandling implements HandlerExceptionResolver {
     return new ResponseEntity<>("Throwable exception handled : " + htmlEscape(msg), responseHeaders, HttpStatus.INTERNAL_SERVER_ERROR);
   }
 
+  private static <T extends Throwable> void rethrowIfCommitted(T ex, HttpServletResponse res) throws T {
+    if (res.isCommitted()) {
+      logger.error("exception after the response was committed, abort the connection", ex);
+      throw ex;
+    }
+  }
+
   /////////////////////////////////////////////
   /// this catches exception from everything else, eg views
 
@@ -18,6 +18,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import thredds.core.TdsRequestedDataset;
+import thredds.server.config.ThreddsConfig;
 import ucar.nc2.NetcdfFile;
 
 import javax.servlet.ServletContext;
@@ -90,6 +91,11 @@ public class Dap4Controller extends DapController
         } catch (Exception e) {
             DapLog.warn("Cannot load ucar.nc2.jni.netcdf.Nc4Iosp");
         }
+
+        // Size the DSP cache
+        long maxWeight = ThreddsConfig.getLong("DAP4.cache.maxWeight", DapCache.MAXWEIGHT);
+        int expireSecs = ThreddsConfig.getSeconds("DAP4.cache.expire", (int) DapCache.EXPIRESECONDS);
+        DapCache.setCacheParameters(maxWeight, expireSecs);
     }
 
     //////////////////////////////////////////////////
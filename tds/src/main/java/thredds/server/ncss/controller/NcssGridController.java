@@ -109,8 +109,20 @@ public class NcssGridController extends AbstractNcssController {
                 "Grid requests with vertCoord must have variables with same vertical levels.");
       }
 
-    String responseFile = getResponseFileName(datasetPath, version);
-    File netcdfResult = makeCFNetcdfFile(gcd, responseFile, params, version);
+    SubsetParams subset = params.makeSubset(gcd);
+
+    // netcdf3 is streamed. The subset is checked and the header and length worked out before anything is sent
+    CFGridCoverageWriter2.Netcdf3Stream netcdf3Stream = null;
+    if (version == NetcdfFileWriter.Version.netcdf3) {
+      Optional<CFGridCoverageWriter2.Netcdf3Stream> streamo =
+              CFGridCoverageWriter2.makeNetcdf3Stream(gcd, params.getVar(), subset, params.isAddLatLon());
+      if (!streamo.isPresent())
+        throw new InvalidRangeException("Request contains no data: " + streamo.getErrorMessage());
+      netcdf3Stream = streamo.get();
+      checkRequestSize(netcdf3Stream.getSizeOfVars());
+    } else {
+      checkRequestSize(gcd, subset, params, version);
+    }
 
     // filename download attachment
     String suffix = version.getSuffix();
@@ -125,6 +137,23 @@ public class NcssGridController extends AbstractNcssController {
     httpHeaders.set(ContentType.HEADER, sf.getMimeType());
     httpHeaders.set(Constants.Content_Disposition, Constants.setContentDispositionValue(filename));
 
+    if (netcdf3Stream != null) {
+      // The status and headers are committed before the data is read, so a later failure can't change the status.
+      // Instead the exception goes up to the container, which drops the connection (see TdsErrorHandling), and
+      // with the exact Content-Length the client sees a short, failed response rather than a truncated file.
+      httpHeaders.set(Constants.Content_Length, Long.toString(netcdf3Stream.getLength()));
+      setResponseHeaders(res, httpHeaders);
+      res.setStatus(HttpServletResponse.SC_OK);
+      netcdf3Stream.write(res.getOutputStream());
+      res.flushBuffer();
+      res.getOutputStream().close();
+      return;
+    }
+
+    // netcdf4 is written to a file in the disk cache first
+    String responseFile = getResponseFileName(datasetPath, version);
+    File netcdfResult = makeCFNetcdfFile(gcd, responseFile, subset, params, version);
+
     // set content length
     httpHeaders.set(Constants.Content_Length, Constants.getContentLengthValue(netcdfResult));
 
@@ -136,11 +165,9 @@ public class NcssGridController extends AbstractNcssController {
     res.setStatus(HttpServletResponse.SC_OK);
   }
 
-  private File makeCFNetcdfFile(CoverageCollection gcd, String responseFilename, NcssGridParamsBean params,
+  // Test maxFileDownloadSize
+  private void checkRequestSize(CoverageCollection gcd, SubsetParams subset, NcssGridParamsBean params,
           NetcdfFileWriter.Version version) throws InvalidRangeException, IOException {
-    SubsetParams subset = params.makeSubset(gcd);
-
-    // Test maxFileDownloadSize
     long maxFileDownloadSize = ThreddsConfig.getBytes("NetcdfSubsetService.maxFileDownloadSize", -1L);
     if (maxFileDownloadSize > 0) {
       Optional<Long> estimatedSizeo = CFGridCoverageWriter2.writeOrTestSize(
@@ -152,11 +179,19 @@ public class NcssGridController extends AbstractNcssController {
       if (version == NetcdfFileWriter.Version.netcdf4)
         estimatedSize /= ESTIMATED_COMPRESION_RATE;
 
-      if (estimatedSize > maxFileDownloadSize)
-        throw new RequestTooLargeException(
-                "NCSS response too large = " + estimatedSize + " max = " + maxFileDownloadSize);
+      checkRequestSize(estimatedSize);
     }
+  }
+
+  private void checkRequestSize(long estimatedSize) {
+    long maxFileDownloadSize = ThreddsConfig.getBytes("NetcdfSubsetService.maxFileDownloadSize", -1L);
+    if (maxFileDownloadSize > 0 && estimatedSize > maxFileDownloadSize)
+      throw new RequestTooLargeException(
+              "NCSS response too large = " + estimatedSize + " max = " + maxFileDownloadSize);
+  }
 
+  private File makeCFNetcdfFile(CoverageCollection gcd, String responseFilename, SubsetParams subset,
+          NcssGridParamsBean params, NetcdfFileWriter.Version version) throws InvalidRangeException, IOException {
     // write the file
     NetcdfFileWriter writer = NetcdfFileWriter.createNew(
             version, responseFilename, null);  // default chunking - let user control at some point
@@ -12,6 +12,7 @@ import ucar.nc2.ft.*;
 import ucar.nc2.ft.point.PointIteratorFiltered;
 import ucar.nc2.ft.point.StationFeature;
 import ucar.nc2.ft.point.StationPointFeature;
+import ucar.nc2.ft.point.StationTimeSeriesCollectionImpl;
 import ucar.nc2.ft.point.StationTimeSeriesFeatureImpl;
 import ucar.nc2.ft2.coverage.SubsetParams;
 import ucar.nc2.time.CalendarDate;
@@ -210,6 +211,12 @@ public abstract class AbstractStationSubsetWriter extends DsgSubsetWriter {
    */
   public static Station findClosestStation(StationTimeSeriesFeatureCollection stationFeatCol, LatLonPoint pt)
           throws IOException {
+    if (stationFeatCol instanceof StationTimeSeriesCollectionImpl) { // uses a spatial index
+      List<StationFeature> nearest =
+              ((StationTimeSeriesCollectionImpl) stationFeatCol).getNearestStationFeatures(pt, 1);
+      return nearest.isEmpty() ? stationFeatCol.getStationFeatures().get(0) : nearest.get(0);
+    }
+
     double lat = pt.getLatitude();
     double lon = pt.getLongitude();
     double cos = Math.cos(Math.toRadians(lat));
@@ -6,6 +6,7 @@
 package thredds.server.opendap;
 
 import opendap.dap.InvalidDimensionException;
+import opendap.dap.NoSuchVariableException;
 import ucar.ma2.*;
 import ucar.nc2.*;
 
@@ -31,6 +32,14 @@ public class NcSDArray extends SDArray implements HasNetcdfVariable {
   static private org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(NcSDArray.class);
 
   private static final boolean debug = false, debugRead = false;
+
+  // arrays bigger than this are read and written in slabs
+  static private long maxSlabBytes = 20 * 1000 * 1000;
+
+  static public void setMaxSlabBytes(long maxSlabBytes) {
+    NcSDArray.maxSlabBytes = maxSlabBytes;
+  }
+
   private Variable ncVar = null;
   //ignore protected BaseType elemType;
 
@@ -78,10 +87,7 @@ public class NcSDArray extends SDArray implements HasNetcdfVariable {
         log.debug(getRequestedRange());
 
       // set up the netcdf read
-      int n = numDimensions();
-      List<Range> ranges = new ArrayList<>(n);
-      for (int i = 0; i < n; i++)
-        ranges.add(new Range(getStart(i), getStop(i), getStride(i)));
+      List<Range> ranges = makeRanges();
 
       try {
         a = ncVar.read(ranges);
@@ -116,6 +122,15 @@ public class NcSDArray extends SDArray implements HasNetcdfVariable {
     return (false);
   }
 
+  // the ranges set by the constraint evaluator
+  private List<Range> makeRanges() throws InvalidDimensionException, InvalidRangeException {
+    int n = numDimensions();
+    List<Range> ranges = new ArrayList<>(n);
+    for (int i = 0; i < n; i++)
+      ranges.add(new Range(getStart(i), getStop(i), getStride(i)));
+    return ranges;
+  }
+
   private String getRequestedRange() {
     try {
       StringBuilder sbuff = new StringBuilder();
@@ -174,11 +189,111 @@ public class NcSDArray extends SDArray implements HasNetcdfVariable {
     setRead(true);
   }
 
+  /**
+   * Same as SDArray.serialize(), but the values of a primitive array are written through XdrEncoder.
+   */
+  @Override
+  public void serialize(String dataset, DataOutputStream sink, CEEvaluator ce, Object specialO)
+          throws NoSuchVariableException, DAP2ServerSideException, IOException {
+    PrimitiveVector pv = getPrimitiveVector();
+    if (!XdrEncoder.canEncode(pv)) {
+      super.serialize(dataset, sink, ce, specialO);
+      return;
+    }
+
+    if (!isRead() && serializeSlabs(dataset, sink, ce, specialO))
+      return;
+
+    if (!isRead())
+      read(dataset, specialO);
+
+    if (ce.evalClauses(specialO)) {
+      long tstart = System.currentTimeMillis();
+
+      // both XDR and OPeNDAP read the length, so write it twice
+      int length = pv.getLength();
+      sink.writeInt(length);
+      sink.writeInt(length);
+      XdrEncoder.externalize(sink, pv);
+
+      if (log.isDebugEnabled()) {
+        long tookTime = System.currentTimeMillis() - tstart;
+        log.debug("NcSDArray serialize " + length + " values: " + tookTime * .001 + " seconds");
+      }
+    }
+  }
+
+  /**
+   * If the requested data is bigger than maxSlabBytes, read and write it in slabs along the outer dimension,
+   * so that only one slab at a time is in memory. The values are not kept, and the array is left unread.
+   *
+   * @return true if the data was written, false if it is small enough to be read all at once.
+   */
+  private boolean serializeSlabs(String dataset, DataOutputStream sink, CEEvaluator ce, Object specialO)
+          throws NoSuchVariableException, DAP2ServerSideException, IOException {
+    if (numDimensions() == 0) return false;
+
+    List<Range> ranges;
+    try {
+      ranges = makeRanges();
+    } catch (InvalidDimensionException | InvalidRangeException e) {
+      return false; // let read() report it
+    }
+    Section section = new Section(ranges);
+    long size = section.computeSize();
+    if (size * ncVar.getElementSize() <= maxSlabBytes) return false;
+
+    if (!ce.evalClauses(specialO)) return true;
+    long tstart = System.currentTimeMillis();
+
+    Range outer = ranges.get(0);
+    long rowBytes = (size / outer.length()) * ncVar.getElementSize();
+    int rowsPerSlab = (int) Math.max(1, Math.min(outer.length(), maxSlabBytes / Math.max(1, rowBytes)));
+
+    // both XDR and OPeNDAP read the length, so write it twice
+    sink.writeInt((int) size);
+    sink.writeInt((int) size);
+
+    int nslabs = 0;
+    for (int row = 0; row < outer.length(); row += rowsPerSlab) {
+      int last = Math.min(row + rowsPerSlab, outer.length()) - 1;
+      Array slab;
+      try {
+        ranges.set(0, new Range(outer.getName(), outer.element(row), outer.element(last), outer.stride()));
+        slab = ncVar.read(ranges);
+      } catch (InvalidRangeException e) {
+        log.error(getRequestedRange(), e);
+        throw new IllegalStateException("NcSDArray InvalidRangeException=" + e.getMessage());
+      }
+
+      Object pa = slab.get1DJavaArray(slab.getElementType());
+      if (!XdrEncoder.writeValues(sink, pa))
+        throw new IllegalStateException("NcSDArray cant serialize " + pa.getClass().getName() + " for " + ncVar.getFullName());
+      nslabs++;
+    }
+    if (ncVar.getDataType().getPrimitiveClassType() == byte.class)
+      XdrEncoder.writePad(sink, size);
+
+    if (log.isDebugEnabled()) {
+      long tookTime = System.currentTimeMillis() - tstart;
+      log.debug("NcSDArray serialize " + size + " values in " + nslabs + " slabs: " + tookTime * .001 + " seconds");
+    }
+    return true;
+  }
+
   public void serialize(DataOutputStream sink, StructureData sdata, StructureMembers.Member m) throws IOException {
     long tstart = System.currentTimeMillis();
 
     setData(sdata.getArray(m));
-    externalize(sink);
+    PrimitiveVector pv = getPrimitiveVector();
+    if (XdrEncoder.canEncode(pv)) {
+      int length = pv.getLength();
+      sink.writeInt(length);
+      sink.writeInt(length);
+      XdrEncoder.externalize(sink, pv);
+    } else {
+      externalize(sink);
+    }
 
     if (log.isDebugEnabled()) {
       long tookTime = System.currentTimeMillis() - tstart;
@@ -13,6 +13,7 @@ import opendap.dap.BaseType;
 import opendap.dap.NoSuchVariableException;
 import ucar.nc2.Variable;
 
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 
@@ -48,4 +49,24 @@ public class NcSDGrid extends SDGrid {
     setRead(true);
     return(false);
   }
+
+  /**
+   * Same as SDGrid.serialize(), but the arrays are not read first. Each one is read as it is serialized,
+   * so a large data array can be sent in slabs, see NcSDArray.
+   */
+  @Override
+  public void serialize(String dataset, DataOutputStream sink, CEEvaluator ce, Object specialO)
+          throws NoSuchVariableException, DAP2ServerSideException, IOException {
+
+    if (ce.evalClauses(specialO)) {
+      if (((ServerMethods) arrayVar).isProject())
+        ((ServerMethods) arrayVar).serialize(dataset, sink, ce, specialO);
+
+      for (Object mapVar : mapVars) {
+        ServerMethods sm = (ServerMethods) mapVar;
+        if (sm.isProject())
+          sm.serialize(dataset, sink, ce, specialO);
+      }
+    }
+  }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 1998-2018 John Caron and University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package thredds.server.opendap;
+
+import opendap.dap.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Writes the values of a PrimitiveVector as XDR, the same bytes as PrimitiveVector.externalize().
+ * The values are put into a big endian ByteBuffer through a typed view, a block at a time, and each block is written
+ * to the stream with a single call, instead of one DataOutputStream.writeXXX() call for each value.
+ *
+ * @since 10/18/2026
+ */
+class XdrEncoder {
+  static private final int maxBufferSize = 64 * 1024;
+
+  /**
+   * Can this PrimitiveVector be encoded here?
+   * Only looks at the class, so can be called before the data is read.
+   */
+  static boolean canEncode(PrimitiveVector pv) {
+    return (pv instanceof Float32PrimitiveVector) || (pv instanceof Float64PrimitiveVector) ||
+            (pv instanceof Int32PrimitiveVector) || (pv instanceof Int16PrimitiveVector) ||
+            (pv instanceof BytePrimitiveVector);
+  }
+
+  /**
+   * Write the values of the PrimitiveVector, not including the lengths. Falls back to pv.externalize() if the
+   * internal storage is not a primitive array.
+   *
+   * @param sink write to this
+   * @param pv   the values, already read
+   * @throws IOException on write error
+   */
+  static void externalize(DataOutputStream sink, PrimitiveVector pv) throws IOException {
+    Object storage = pv.getInternalStorage();
+    if (!writeValues(sink, storage)) {
+      pv.externalize(sink);
+      return;
+    }
+    if (storage instanceof byte[])
+      writePad(sink, ((byte[]) storage).length);
+  }
+
+  /**
+   * Write the values of a primitive array. Bytes are not padded, so that an array may be written in pieces;
+   * call writePad() with the total number of bytes after the last piece.
+   *
+   * @param sink    write to this
+   * @param storage float[], double[], int[], short[] or byte[]
+   * @return false if storage is not one of these, and nothing was written
+   * @throws IOException on write error
+   */
+  static boolean writeValues(DataOutputStream sink, Object storage) throws IOException {
+    if (storage instanceof float[]) {
+      float[] vals = (float[]) storage;
+      ByteBuffer bb = makeBuffer(4L * vals.length, 4);
+      int blockSize = bb.capacity() / 4;
+      for (int start = 0; start < vals.length; start += blockSize) {
+        int n = Math.min(blockSize, vals.length - start);
+        bb.asFloatBuffer().put(vals, start, n);
+        sink.write(bb.array(), 0, 4 * n);
+      }
+
+    } else if (storage instanceof double[]) {
+      double[] vals = (double[]) storage;
+      ByteBuffer bb = makeBuffer(8L * vals.length, 8);
+      int blockSize = bb.capacity() / 8;
+      for (int start = 0; start < vals.length; start += blockSize) {
+        int n = Math.min(blockSize, vals.length - start);
+        bb.asDoubleBuffer().put(vals, start, n);
+        sink.write(bb.array(), 0, 8 * n);
+      }
+
+    } else if (storage instanceof int[]) {
+      int[] vals = (int[]) storage;
+      ByteBuffer bb = makeBuffer(4L * vals.length, 4);
+      int blockSize = bb.capacity() / 4;
+      for (int start = 0; start < vals.length; start += blockSize) {
+        int n = Math.min(blockSize, vals.length - start);
+        bb.asIntBuffer().put(vals, start, n);
+        sink.write(bb.array(), 0, 4 * n);
+      }
+
+    } else if (storage instanceof short[]) { // XDR has no 16 bit type, shorts are sign extended to 32 bits
+      short[] vals = (short[]) storage;
+      ByteBuffer bb = makeBuffer(4L * vals.length, 4);
+      int blockSize = bb.capacity() / 4;
+      for (int start = 0; start < vals.length; start += blockSize) {
+        int n = Math.min(blockSize, vals.length - start);
+        IntBuffer ib = bb.asIntBuffer();
+        for (int i = start; i < start + n; i++)
+          ib.put(vals[i]);
+        sink.write(bb.array(), 0, 4 * n);
+      }
+
+    } else if (storage instanceof byte[]) { // bytes are packed
+      sink.write((byte[]) storage);
+
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Pad an array of bytes out to a multiple of four bytes.
+   *
+   * @param sink   write to this
+   * @param nbytes total number of bytes in the array
+   * @throws IOException on write error
+   */
+  static void writePad(DataOutputStream sink, long nbytes) throws IOException {
+    int modFour = (int) (nbytes % 4);
+    int pad = (modFour != 0) ? (4 - modFour) : 0;
+    for (int i = 0; i < pad; i++)
+      sink.writeByte(0);
+  }
+
+  // big endian is the default, and is what XDR wants
+  static private ByteBuffer makeBuffer(long nbytes, int elemSize) {
+    int size = (int) Math.max(elemSize, Math.min(nbytes, maxBufferSize));
+    return ByteBuffer.allocate(size);
+  }
+
+}
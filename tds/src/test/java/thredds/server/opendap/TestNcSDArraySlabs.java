@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package thredds.server.opendap;
+
+import opendap.servers.CEEvaluator;
+import opendap.servers.ServerDDS;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.dataset.NetcdfDataset;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+
+/**
+ * Test that serializing arrays in slabs gives the same DAP2 data response as reading them all at once.
+ *
+ * @since 10/18/2026
+ */
+public class TestNcSDArraySlabs {
+
+  // jan.nc has T(time=31, lat=3, lon=4), P(time, lat, lon) as doubles, and the coordinates
+  private static final String[] constraints = {
+          "",
+          "T[2:3:29][0:2][1:3]",
+          "P[5][1][0:3],lat,time[0:2:30]",
+  };
+
+  @Test
+  public void testSlabsSameAsWhole() throws Exception {
+    try (NetcdfFile ncfile = NetcdfDataset.openFile(TestDir.cdmLocalTestDataDir + "jan.nc", null)) {
+      for (String constraint : constraints) {
+        byte[] whole = send(ncfile, constraint, 1000 * 1000);
+        for (long maxSlabBytes : new long[]{1, 40, 100}) {
+          byte[] slabs = send(ncfile, constraint, maxSlabBytes);
+          Assert.assertArrayEquals("'" + constraint + "' maxSlabBytes=" + maxSlabBytes, whole, slabs);
+        }
+      }
+    } finally {
+      NcSDArray.setMaxSlabBytes(20 * 1000 * 1000);
+    }
+  }
+
+  private byte[] send(NetcdfFile ncfile, String constraint, long maxSlabBytes) throws Exception {
+    NcSDArray.setMaxSlabBytes(maxSlabBytes);
+    ServerDDS dds = new NcDDS("jan.nc", ncfile);
+    CEEvaluator ce = new CEEvaluator(dds);
+    ce.parseConstraint(constraint, null);
+
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    try (DataOutputStream sink = new DataOutputStream(bout)) {
+      ce.send(dds.getEncodedName(), sink, null);
+    }
+    Assert.assertTrue(bout.size() > 0);
+    return bout.toByteArray();
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 1998-2018 University Corporation for Atmospheric Research/Unidata
+ * See LICENSE for license information.
+ */
+
+package thredds.server.opendap;
+
+import opendap.dap.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Test that XdrEncoder writes the same bytes as PrimitiveVector.externalize().
+ *
+ * @since 10/18/2026
+ */
+public class TestXdrEncoder {
+  // include lengths that are not a multiple of 4, and bigger than the encoder buffer
+  private static final int[] lengths = {0, 1, 3, 4, 5, 1000, 40 * 1000};
+
+  @Test
+  public void testFloats() throws IOException {
+    for (int n : lengths) {
+      float[] vals = new float[n];
+      for (int i = 0; i < n; i++) vals[i] = (i % 7 == 0) ? Float.NaN : i * 1.5f - 100;
+      compare(new Float32PrimitiveVector(new DFloat32()), vals);
+
+      double[] dvals = new double[n];
+      for (int i = 0; i < n; i++) dvals[i] = (i % 7 == 0) ? Double.NaN : i * 1.5e100 - 1;
+      compare(new Float64PrimitiveVector(new DFloat64()), dvals);
+    }
+  }
+
+  @Test
+  public void testInts() throws IOException {
+    for (int n : lengths) {
+      int[] vals = new int[n];
+      for (int i = 0; i < n; i++) vals[i] = i * 100003 - Integer.MAX_VALUE / 2;
+      compare(new Int32PrimitiveVector(new DInt32()), vals);
+      compare(new UInt32PrimitiveVector(new DUInt32()), vals.clone());
+    }
+  }
+
+  @Test
+  public void testShorts() throws IOException {
+    for (int n : lengths) {
+      short[] vals = new short[n];
+      for (int i = 0; i < n; i++) vals[i] = (short) (i * 31 - 5000); // negative and "unsigned" values
+      compare(new Int16PrimitiveVector(new DInt16()), vals);
+      compare(new UInt16PrimitiveVector(new DUInt16()), vals.clone());
+    }
+  }
+
+  @Test
+  public void testBytes() throws IOException {
+    for (int n : lengths) {
+      byte[] vals = new byte[n];
+      for (int i = 0; i < n; i++) vals[i] = (byte) i;
+      compare(new BytePrimitiveVector(new DByte()), vals);
+    }
+  }
+
+  private void compare(PrimitiveVector pv, Object storage) throws IOException {
+    Assert.assertTrue(XdrEncoder.canEncode(pv));
+    pv.setInternalStorage(storage);
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(expected)) {
+      pv.externalize(out);
+    }
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(actual)) {
+      XdrEncoder.externalize(out, pv);
+    }
+    Assert.assertArrayEquals(pv.getClass().getSimpleName() + " length " + pv.getLength(),
+            expected.toByteArray(), actual.toByteArray());
+  }
+
+}
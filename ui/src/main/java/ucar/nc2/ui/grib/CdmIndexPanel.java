@@ -410,8 +410,8 @@ public class CdmIndexPanel extends JPanel {
             try {
               v.readRecords();
               SparseArray<GribCollectionImmutable.Record> sa = v.getSparseArray();
-              int ntracks = sa.getTotalSize();
-              int nrecords = sa.getContent().size();
+              int ntracks = (sa == null) ? 0 : sa.getTotalSize(); // null if the variable has no records
+              int nrecords = (sa == null) ? 0 : sa.getContent().size();
               int memEstForSA = 276 + nrecords * 40 + ntracks * 4;
               int memEstBytes = 280 + memEstForSA;
               f.format("%6d %6d %-50s nrecords=%6d%n", memEstBytes, memEstForSA, bean.getName(), nrecords);
@@ -478,8 +478,8 @@ public class CdmIndexPanel extends JPanel {
             try {
               v.readRecords();
               SparseArray<GribCollectionImmutable.Record> sa = v.getSparseArray();
-              int ntracks = sa.getTotalSize();
-              int nrecords = sa.getContent().size();
+              int ntracks = (sa == null) ? 0 : sa.getTotalSize(); // null if the variable has no records
+              int nrecords = (sa == null) ? 0 : sa.getContent().size();
               int memEstForSA = 276 + nrecords * 40 + ntracks * 4;
               int memEstBytes = 280 + memEstForSA;
               f.format("%6d %6d %-50s nrecords=%6d%n", memEstBytes, memEstForSA, bean.getName(), nrecords);
@@ -1214,8 +1214,8 @@ public class CdmIndexPanel extends JPanel {
           e.printStackTrace();
           return;
         }
-        if (v.getSparseArray() != null) {
-          SparseArray<GribCollectionImmutable.Record> sa = v.getSparseArray();
+        SparseArray<GribCollectionImmutable.Record> sa = v.getSparseArray();
+        if (sa != null) {
           sa.showInfo(f, null);
           f.format("%n");
           sa.showTracks(f);
@@ -333,8 +333,8 @@ public class CdmIndexReportPanel extends ReportPanel {
               VarInfo vinfo = varCount.get(hash);
               if (!vinfo.ok) {
                 vi.readRecords();
-                if (vi.getSparseArray() != null) {
-                  SparseArray<GribCollectionImmutable.Record> sa = vi.getSparseArray();
+                SparseArray<GribCollectionImmutable.Record> sa = vi.getSparseArray();
+                if (sa != null) {
                   for (GribCollectionImmutable.Record record : sa.getContent()) {
                     String filename = gc.getFilename(record.fileno);
                     f.format(">%s%s: %s at pos %d%n", indent, vinfo.name, filename, record.pos);